@@ -0,0 +1,116 @@
+package com.example.aiservice.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Serializable;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Header danh tính do api-gateway ký sau khi đã verify JWT.
+ *
+ * X-Identity-Signature = Base64url(HMAC-SHA256(identity.secret, id \n name \n roles \n expires)).
+ * Request qua gateway chỉ cần kiểm tra HMAC và hạn ở đây, không parse JWT lần nữa.
+ */
+@Component
+public class IdentityHeaders {
+
+    private static final String USER_ID = "X-User-Id";
+    private static final String USER_NAME = "X-User-Name";
+    private static final String USER_ROLES = "X-User-Roles";
+    private static final String EXPIRES = "X-Identity-Expires";
+    private static final String SIGNATURE = "X-Identity-Signature";
+
+    private final ThreadLocal<Mac> mac;
+
+    public IdentityHeaders(@Value("${identity.secret}") String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(key);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Người dùng trong header nếu chữ ký đúng và chưa hết hạn; không có header / sai thì rỗng
+     */
+    public Optional<AuthenticatedUser> verify(HttpServletRequest request) {
+        String name = request.getHeader(USER_NAME);
+        String expires = request.getHeader(EXPIRES);
+        String signature = request.getHeader(SIGNATURE);
+        if (name == null || name.isEmpty() || expires == null || signature == null) {
+            return Optional.empty();
+        }
+        String id = nullToEmpty(request.getHeader(USER_ID));
+        String roles = nullToEmpty(request.getHeader(USER_ROLES));
+        try {
+            if (Long.parseLong(expires) * 1000 <= System.currentTimeMillis()) {
+                return Optional.empty();
+            }
+            String payload = id + "\n" + name + "\n" + roles + "\n" + expires;
+            byte[] expected = mac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            if (!MessageDigest.isEqual(expected, Base64.getUrlDecoder().decode(signature))) {
+                return Optional.empty();
+            }
+            return Optional.of(new AuthenticatedUser(
+                    id.isEmpty() ? null : Long.valueOf(id),
+                    decode(name),
+                    roles.isEmpty() ? List.of() : Arrays.asList(decode(roles).split(","))));
+        } catch (IllegalArgumentException e) { // số / Base64 sai định dạng
+            return Optional.empty();
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Principal đặt vào SecurityContext; getName() trả username nên auth.getName() dùng như cũ
+     */
+    public record AuthenticatedUser(Long id, String username, List<String> roles)
+            implements AuthenticatedPrincipal, Serializable {
+
+        // Dựng từ claims của JWT (request gọi thẳng service, không qua gateway)
+        public static AuthenticatedUser of(Object uid, String username, Object roles) {
+            Long id = uid instanceof Number n ? Long.valueOf(n.longValue()) : null;
+            List<String> roleList = roles instanceof List<?> list
+                    ? list.stream().map(Object::toString).toList()
+                    : List.of();
+            return new AuthenticatedUser(id, username, roleList);
+        }
+
+        public List<GrantedAuthority> authorities() {
+            return roles.stream()
+                    .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                    .toList();
+        }
+
+        @Override
+        public String getName() {
+            return username;
+        }
+    }
+}
@@ -4,39 +4,108 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class JwtService {
 
+    // Token không có exp thì chỉ giữ trong cache khoảng này
+    private static final long NO_EXP_TTL_MS = 10 * 60 * 1000L;
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration-ms}")
     private long jwtExpirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+    @Value("${jwt.claims-cache-size:10000}")
+    private int claimsCacheSize;
+
+    // Claims của token đã verify, key = SHA-256 của token; hết hạn đúng lúc token hết hạn
+    private final Map<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+
+    // Dựng 1 lần khi khởi động, không dựng lại key từ chuỗi secret mỗi request
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String extractUsername(String token) {
         return extractAllClaims(token).getSubject();
     }
 
+    /**
+     * Token đã gặp thì lấy claims từ cache, không parse / verify HMAC lại.
+     * Token sai chữ ký, hết hạn... vẫn ném JwtException như trước.
+     */
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT token is empty");
+        }
+        String key = hash(token);
+        VerifiedClaims cached = verified.get(key);
+        if (cached != null) {
+            if (System.currentTimeMillis() < cached.expiresAt()) {
+                return cached.claims();
+            }
+            verified.remove(key);
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date exp = claims.getExpiration();
+        long expiresAt = exp != null ? exp.getTime() : System.currentTimeMillis() + NO_EXP_TTL_MS;
+        if (verified.size() >= claimsCacheSize) {
+            evict();
+        }
+        verified.put(key, new VerifiedClaims(claims, expiresAt));
+        return claims;
+    }
+
+    // Bỏ token hết hạn trước, rồi tới token sắp hết hạn nhất
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(v -> v.expiresAt() <= now);
+        int excess = verified.size() - claimsCacheSize + 1;
+        if (excess <= 0) {
+            return;
+        }
+        int toRemove = Math.max(excess, claimsCacheSize / 10);
+        verified.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                .limit(toRemove)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(verified::remove);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedClaims(Claims claims, long expiresAt) {
     }
 
     public boolean isTokenValid(String token) {
@@ -63,7 +132,7 @@ public class JwtService {
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiry)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -24,6 +25,12 @@ public class DataService {
 
     private static final Duration TIMEOUT = Duration.ofSeconds(10);
 
+    // Bản catalog lần trước + ETag, product-service trả 304 nếu catalog không đổi
+    private volatile CachedProducts cachedProducts;
+
+    private record CachedProducts(String etag, List<Map<String, Object>> products) {
+    }
+
     /**
      * Lấy danh sách sản phẩm từ product-service
      */
@@ -65,19 +72,38 @@ public class DataService {
     private List<Map<String, Object>> fetchProductsList(String token) {
         try {
             WebClient webClient = webClientBuilder.baseUrl(apiGatewayUrl).build();
-            Map<String, Object> response = webClient.get()
+            CachedProducts cached = cachedProducts;
+            ResponseEntity<Map<String, Object>> entity = webClient.get()
                     .uri("/api/products")
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .headers(h -> {
+                        if (cached != null) {
+                            h.setIfNoneMatch(cached.etag());
+                        }
+                    })
                     .accept(MediaType.APPLICATION_JSON)
                     .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
+                    .toEntity(new ParameterizedTypeReference<Map<String, Object>>() {
                     })
                     .block(TIMEOUT);
 
+            if (entity != null && entity.getStatusCode().value() == 304 && cached != null) {
+                return cached.products();
+            }
+            Map<String, Object> response = entity != null ? entity.getBody() : null;
+
             if (response != null && response.containsKey("data")) {
                 // ApiResponse wrapper
                 List<Map<String, Object>> data = (List<Map<String, Object>>) response.get("data");
-                return data != null ? data : new ArrayList<>();
+                if (data == null) {
+                    return new ArrayList<>();
+                }
+                String etag = entity.getHeaders().getETag();
+                if (etag != null) {
+                    data = Collections.unmodifiableList(data);
+                    cachedProducts = new CachedProducts(etag, data);
+                }
+                return data;
             } else {
                 // Thử parse như array
                 try {
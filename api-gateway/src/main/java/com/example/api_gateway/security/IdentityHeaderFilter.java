@@ -0,0 +1,65 @@
+package com.example.api_gateway.security;
+
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Verify JWT 1 lần tại gateway rồi gắn header danh tính đã ký cho service phía sau.
+ *
+ * - Luôn xóa header danh tính client tự gửi lên (không cho giả mạo)
+ * - Token sai / hết hạn thì không gắn header, để service trả 401/403 như trước
+ * - Authorization vẫn được chuyển tiếp (service nào cần token gốc vẫn dùng được)
+ */
+@Component
+public class IdentityHeaderFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(IdentityHeaderFilter.class);
+
+    private final JwtVerifier jwtVerifier;
+    private final IdentityHeaders identityHeaders;
+
+    public IdentityHeaderFilter(JwtVerifier jwtVerifier, IdentityHeaders identityHeaders) {
+        this.jwtVerifier = jwtVerifier;
+        this.identityHeaders = identityHeaders;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Map<String, String> identity = null;
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                identity = identityHeaders.sign(jwtVerifier.verify(authHeader.substring(7)));
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("[GATEWAY] Invalid JWT: {}", e.getMessage());
+            }
+        }
+
+        Map<String, String> signed = identity;
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    IdentityHeaders.ALL.forEach(headers::remove);
+                    if (signed != null) {
+                        signed.forEach(headers::set);
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
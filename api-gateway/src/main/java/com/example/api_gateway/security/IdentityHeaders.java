@@ -0,0 +1,91 @@
+package com.example.api_gateway.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Header danh tính gateway gửi xuống service sau khi verify JWT.
+ *
+ * X-Identity-Signature = Base64url(HMAC-SHA256(identity.secret, id \n name \n roles \n expires)),
+ * tính trên đúng giá trị header (name, roles đã URL-encode). Service chỉ kiểm tra HMAC và hạn,
+ * không parse JWT.
+ */
+@Component
+public class IdentityHeaders {
+
+    public static final String USER_ID = "X-User-Id";
+    public static final String USER_NAME = "X-User-Name";
+    public static final String USER_ROLES = "X-User-Roles";
+    public static final String EXPIRES = "X-Identity-Expires";
+    public static final String SIGNATURE = "X-Identity-Signature";
+
+    public static final List<String> ALL = List.of(USER_ID, USER_NAME, USER_ROLES, EXPIRES, SIGNATURE);
+
+    static final String SERVICE_AUTHORITY = "SERVICE";
+
+    private final ThreadLocal<Mac> mac;
+
+    public IdentityHeaders(@Value("${identity.secret}") String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(key);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Header đã ký cho claims của 1 token hợp lệ; hết hạn cùng lúc với token
+     */
+    public Map<String, String> sign(Claims claims) {
+        Object uid = claims.get("uid");
+        String id = uid != null ? uid.toString() : "";
+        String name = encode(claims.getSubject());
+        Object rolesObj = claims.get("roles");
+        // Quyền SERVICE chỉ dành cho danh tính service tự ký, không cấp cho người dùng
+        String roles = rolesObj instanceof List<?> list
+                ? encode(list.stream()
+                        .map(Object::toString)
+                        .filter(r -> !SERVICE_AUTHORITY.equals(r))
+                        .collect(Collectors.joining(",")))
+                : "";
+        Date exp = claims.getExpiration();
+        long expiresAtMs = exp != null ? exp.getTime() : System.currentTimeMillis() + JwtVerifier.NO_EXP_TTL_MS;
+        String expires = Long.toString(expiresAtMs / 1000);
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(USER_ID, id);
+        headers.put(USER_NAME, name);
+        headers.put(USER_ROLES, roles);
+        headers.put(EXPIRES, expires);
+        headers.put(SIGNATURE, signature(id, name, roles, expires));
+        return headers;
+    }
+
+    private String signature(String id, String name, String roles, String expires) {
+        String payload = id + "\n" + name + "\n" + roles + "\n" + expires;
+        byte[] digest = mac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    private static String encode(String value) {
+        return value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.api_gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verify JWT tại gateway (chỉ đọc, không phát hành token).
+ *
+ * Token đã gặp thì lấy claims từ cache tới lúc token hết hạn; token sai chữ ký, hết hạn...
+ * ném JwtException.
+ */
+@Component
+public class JwtVerifier {
+
+    // Token không có exp thì chỉ giữ trong cache khoảng này
+    static final long NO_EXP_TTL_MS = 10 * 60 * 1000L;
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    @Value("${jwt.claims-cache-size:10000}")
+    private int claimsCacheSize;
+
+    // Claims của token đã verify, key = SHA-256 của token
+    private final Map<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+    }
+
+    public Claims verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT token is empty");
+        }
+        String key = hash(token);
+        VerifiedClaims cached = verified.get(key);
+        if (cached != null) {
+            if (System.currentTimeMillis() < cached.expiresAt()) {
+                return cached.claims();
+            }
+            verified.remove(key);
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date exp = claims.getExpiration();
+        long expiresAt = exp != null ? exp.getTime() : System.currentTimeMillis() + NO_EXP_TTL_MS;
+        if (verified.size() >= claimsCacheSize) {
+            evict();
+        }
+        verified.put(key, new VerifiedClaims(claims, expiresAt));
+        return claims;
+    }
+
+    // Bỏ token hết hạn trước, rồi tới token sắp hết hạn nhất
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(v -> v.expiresAt() <= now);
+        int excess = verified.size() - claimsCacheSize + 1;
+        if (excess <= 0) {
+            return;
+        }
+        int toRemove = Math.max(excess, claimsCacheSize / 10);
+        verified.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                .limit(toRemove)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(verified::remove);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedClaims(Claims claims, long expiresAt) {
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.auth_service.repository;
 
 import com.example.auth_service.entity.AdUser;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
 
 public interface AdUserRepository extends JpaRepository<AdUser, Long> {
     Optional<AdUser> findByUsername(String username);
+
+    // User + roles trong 1 câu JOIN (xác thực không cần query riêng cho roles)
+    @EntityGraph(attributePaths = "roles")
+    Optional<AdUser> findWithRolesByUsername(String username);
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -22,7 +23,8 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final CustomUserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
+    private final IdentityHeaders identityHeaders;
 
     @Override
     protected void doFilterInternal(
@@ -38,6 +40,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        // Request qua api-gateway: JWT đã verify ở gateway, chỉ kiểm tra chữ ký header danh tính
+        Optional<IdentityHeaders.AuthenticatedUser> identity = identityHeaders.verify(request);
+        if (identity.isPresent()) {
+            try {
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    UserDetails userDetails = userDetailsCache.get(identity.get().username());
+                    if (userDetails.isEnabled()) {
+                        authenticate(userDetails, request);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Identity header authentication failed", e);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         // Với các endpoint khác, kiểm tra JWT token
         final String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -51,19 +70,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             final String username = jwtService.extractUsername(token);
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = userDetailsCache.get(username);
 
-                if (jwtService.isTokenValid(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                // Tài khoản đã bị vô hiệu hóa thì token cũ không còn dùng được
+                if (userDetails.isEnabled() && jwtService.isTokenValid(token, userDetails)) {
+                    authenticate(userDetails, request);
                 }
             }
         } catch (Exception e) {
@@ -74,4 +85,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private void authenticate(UserDetails userDetails, HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
+        authToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
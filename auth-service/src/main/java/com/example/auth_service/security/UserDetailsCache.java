@@ -0,0 +1,113 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.common.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserDetails theo username cho JwtAuthenticationFilter: request đã đăng nhập không đọc DB
+ * khi cache còn hạn.
+ *
+ * - Giữ {@code ttl-ms}, tối đa {@code max-size} user (bỏ mục hết hạn trước, rồi mục nạp lâu nhất)
+ * - Bản lưu không chứa mật khẩu; đăng nhập vẫn đọc DB qua {@link CustomUserDetailsService}
+ * - Sửa profile / khóa tài khoản / đổi quyền thì xóa sau khi commit; ttl giới hạn độ trễ
+ *   khi dữ liệu đổi ở instance khác hoặc sửa thẳng trong DB
+ */
+@Component
+@Slf4j
+public class UserDetailsCache {
+
+    private final CustomUserDetailsService userDetailsService;
+    private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+    // Tăng mỗi lần xóa: lần nạp chồng lên lần xóa không được lưu
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${auth.user-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${auth.user-cache.max-size:10000}")
+    private int maxSize;
+
+    public UserDetailsCache(CustomUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    private record CachedUser(UserDetails user, long loadedAt, long expiresAt) {
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    /**
+     * @throws org.springframework.security.core.userdetails.UsernameNotFoundException nếu user không tồn tại
+     */
+    public UserDetails get(String username) {
+        CachedUser cached = cache.get(username);
+        if (cached != null && !cached.isExpired()) {
+            return cached.user();
+        }
+        long generationAtStart = generation.get();
+        UserDetails user = withoutPassword(userDetailsService.loadUserByUsername(username));
+        long now = System.currentTimeMillis();
+        CachedUser entry = new CachedUser(user, now, now + ttlMs);
+        // So generation và put dưới cùng lock với invalidate: lần xóa không thể chen giữa 2 bước
+        synchronized (this) {
+            if (generation.get() == generationAtStart) {
+                cache.put(username, entry);
+                if (cache.size() > maxSize) {
+                    evict();
+                }
+            }
+        }
+        return user;
+    }
+
+    public synchronized void invalidate(String username) {
+        generation.incrementAndGet();
+        cache.remove(username);
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    public void invalidateAfterCommit(String username) {
+        TransactionHooks.afterCommit(() -> invalidate(username));
+    }
+
+    private synchronized void evict() {
+        cache.values().removeIf(CachedUser::isExpired);
+        int excess = cache.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        int toRemove = Math.max(excess, maxSize / 10);
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .limit(toRemove)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(cache::remove);
+    }
+
+    private static UserDetails withoutPassword(UserDetails user) {
+        return User.withUsername(user.getUsername())
+                .password("")
+                .authorities(user.getAuthorities())
+                .accountExpired(!user.isAccountNonExpired())
+                .accountLocked(!user.isAccountNonLocked())
+                .credentialsExpired(!user.isCredentialsNonExpired())
+                .disabled(!user.isEnabled())
+                .build();
+    }
+}
@@ -8,6 +8,7 @@ import com.example.auth_service.entity.AdUser;
 import com.example.auth_service.exception.NotFoundException;
 import com.example.auth_service.repository.AdUserRepository;
 import com.example.auth_service.security.JwtService;
+import com.example.auth_service.security.UserDetailsCache;
 import com.example.auth_service.service.AuthService;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
@@ -17,6 +18,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class AuthServiceImpl implements AuthService {
@@ -24,13 +26,16 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final AdUserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     public AuthServiceImpl(AuthenticationManager authenticationManager,
                            JwtService jwtService,
-                           AdUserRepository userRepository) {
+                           AdUserRepository userRepository,
+                           UserDetailsCache userDetailsCache) {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
@@ -47,7 +52,13 @@ public class AuthServiceImpl implements AuthService {
         org.springframework.security.core.userdetails.User userDetails =
                 (org.springframework.security.core.userdetails.User) auth.getPrincipal();
 
-        String token = jwtService.generateToken(userDetails);
+        // uid trong token: gateway chuyển xuống service dưới dạng X-User-Id, service không phải tra DB
+        Long userId = userRepository.findByUsername(userDetails.getUsername())
+                .map(AdUser::getId)
+                .orElse(null);
+        String token = userId != null
+                ? jwtService.generateToken(Map.of("uid", userId), userDetails)
+                : jwtService.generateToken(userDetails);
 
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
@@ -104,6 +115,7 @@ public class AuthServiceImpl implements AuthService {
 
         user.setUpdatedAt(new Date());
         user = userRepository.save(user);
+        userDetailsCache.invalidateAfterCommit(username);
 
         return UserProfileDto.fromEntity(user);
     }
@@ -118,5 +130,6 @@ public class AuthServiceImpl implements AuthService {
         user.setActive(false);
         user.setUpdatedAt(new Date());
         userRepository.save(user);
+        userDetailsCache.invalidateAfterCommit(username);
     }
 }
\ No newline at end of file
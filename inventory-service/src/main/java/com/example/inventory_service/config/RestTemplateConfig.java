@@ -1,5 +1,6 @@
 package com.example.inventory_service.config;
 
+import com.example.inventory_service.security.IdentityHeaders;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -27,7 +28,9 @@ public class RestTemplateConfig {
     }
 
     /**
-     * Interceptor để forward JWT token từ request hiện tại sang các service calls
+     * Interceptor để forward danh tính từ request hiện tại sang các service calls.
+     * Có header danh tính gateway đã ký thì chỉ chép các header đó (service nhận không phải
+     * verify JWT lại); request gọi thẳng không qua gateway thì forward JWT như trước.
      */
     private static class JwtForwardingInterceptor implements ClientHttpRequestInterceptor {
         @Override
@@ -38,10 +41,12 @@ public class RestTemplateConfig {
 
             if (attributes != null) {
                 HttpServletRequest httpRequest = attributes.getRequest();
-                String authHeader = httpRequest.getHeader("Authorization");
+                if (!IdentityHeaders.copy(httpRequest, request.getHeaders())) {
+                    String authHeader = httpRequest.getHeader("Authorization");
 
-                if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                    request.getHeaders().set("Authorization", authHeader);
+                    if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                        request.getHeaders().set("Authorization", authHeader);
+                    }
                 }
             }
 
@@ -104,7 +104,11 @@ public class ExportController {
     // ================= CREATE =====================
     @PostMapping
     public ApiResponse<SupplierExportDto> create(
-            @RequestBody SupplierExportRequest request) {
+            @RequestBody SupplierExportRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            request.setIdempotencyKey(idempotencyKey.trim());
+        }
         SupplierExportDto dto = service.create(request);
         return ApiResponse.ok("Created", dto);
     }
@@ -61,6 +61,14 @@ public class StockController {
         return ApiResponse.ok(stockService.getStockByStoreId(storeId));
     }
 
+    // 4b) Tồn kho của nhiều sản phẩm tại 1 kho: /api/stocks/store/{storeId}/products?ids=1,2,3
+    @GetMapping("/store/{storeId}/products")
+    public ApiResponse<List<StockByStoreDto>> getByStoreAndProducts(
+            @PathVariable Long storeId,
+            @RequestParam List<Long> ids) {
+        return ApiResponse.ok(stockService.getStockByStoreAndProducts(storeId, ids));
+    }
+
     // 5) Tạo hoặc cập nhật tồn kho
     @PostMapping
     public ApiResponse<StockByStoreDto> createOrUpdateStock(@RequestBody CreateStockRequest request) {
@@ -19,4 +19,7 @@ public class SupplierExportRequest {
     private String description;
     private List<String> attachmentImages; // đường dẫn ảnh FE gửi (/uploads/... hoặc full URL)
     private List<ExportDetailRequest> items;
+
+    // Lấy từ header Idempotency-Key: gửi lại cùng khóa thì trả về phiếu đã tạo
+    private String idempotencyKey;
 }
@@ -113,4 +113,10 @@ public class ShopExport {
 
     @Column(name = "exported_at")
     private LocalDateTime exportedAt;
+
+    /**
+     * Khóa idempotency do hệ thống gửi (VD: order-service gửi lại phiếu xuất cho đơn hàng)
+     */
+    @Column(name = "idempotency_key", length = 100, unique = true)
+    private String idempotencyKey;
 }
@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ShopExportRepository extends JpaRepository<ShopExport, Long> {
 
@@ -18,6 +19,8 @@ public interface ShopExportRepository extends JpaRepository<ShopExport, Long> {
 
   Page<ShopExport> findByOrderId(Long orderId, Pageable pageable);
 
+  Optional<ShopExport> findByIdempotencyKey(String idempotencyKey);
+
   // Unified search with pagination
   @Query("""
          SELECT e FROM ShopExport e
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,11 @@ public interface ShopStockRepository extends JpaRepository<ShopStock, Long> {
      */
     List<ShopStock> findByStoreId(Long storeId);
 
+    /**
+     * Tồn kho của nhiều sản phẩm tại 1 kho (kiểm tra tồn khi tạo đơn)
+     */
+    List<ShopStock> findByStoreIdAndProductIdIn(Long storeId, Collection<Long> productIds);
+
     /**
      * Lấy tất cả tồn kho của 1 sản phẩm (tại tất cả các kho)
      */
@@ -1,5 +1,6 @@
 package com.example.inventory_service.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -16,7 +17,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -24,6 +25,7 @@ import java.util.List;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final IdentityHeaders identityHeaders;
 
     @Override
     protected void doFilterInternal(
@@ -35,6 +37,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String path = request.getRequestURI();
         log.info("[JWT] Request path: {}", path);
 
+        // Request qua api-gateway: JWT đã verify ở gateway, chỉ kiểm tra chữ ký header danh tính
+        Optional<IdentityHeaders.AuthenticatedUser> identity = identityHeaders.verify(request);
+        if (identity.isPresent()) {
+            authenticate(identity.get(), request);
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             log.info("[JWT] No Authorization header");
@@ -45,14 +55,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7);
 
         try {
-            String username = jwtService.extractUsername(token);
+            Claims claims = jwtService.extractAllClaims(token);
+            String username = claims.getSubject();
             log.info("[JWT] Username from token: {}", username);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(username, null, List.of());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (username != null) {
+                authenticate(IdentityHeaders.AuthenticatedUser.of(claims.get("uid"), username, claims.get("roles")),
+                        request);
             }
         } catch (ExpiredJwtException e) {
             log.warn("[JWT] Token expired at {}", e.getClaims().getExpiration(), e);
@@ -62,4 +71,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private void authenticate(IdentityHeaders.AuthenticatedUser user, HttpServletRequest request) {
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            return;
+        }
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(user, null, user.authorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
@@ -24,6 +24,9 @@ public interface StockService {
     // Tồn kho của tất cả sản phẩm tại 1 kho
     List<StockByStoreDto> getStockByStoreId(Long storeId);
 
+    // Tồn kho của nhiều sản phẩm tại 1 kho (sản phẩm chưa có record trả về quantity = 0)
+    List<StockByStoreDto> getStockByStoreAndProducts(Long storeId, List<Long> productIds);
+
     // ========= TỒN KHO TỪ LỊCH SỬ (CŨ - GIỮ LẠI ĐỂ TƯƠNG THÍCH) =========
     
     // tồn kho tất cả sản phẩm (từ lịch sử import/export)
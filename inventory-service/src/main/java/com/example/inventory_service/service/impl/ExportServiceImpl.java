@@ -16,12 +16,15 @@ import com.example.inventory_service.repository.ShopStockRepository;
 import com.example.inventory_service.service.ExportService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -33,6 +36,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -46,23 +50,53 @@ public class ExportServiceImpl implements ExportService {
     private final com.example.inventory_service.repository.ShopStoreRepository storeRepo;
     private final ShopStockRepository stockRepo;
     private com.example.inventory_service.repository.UserQueryRepository userRepo;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readTx;
 
     public ExportServiceImpl(
             ShopExportRepository exportRepo,
             ShopExportDetailRepository detailRepo,
             com.example.inventory_service.repository.ShopStoreRepository storeRepo,
             ShopStockRepository stockRepo,
-            com.example.inventory_service.repository.UserQueryRepository userRepo) {
+            com.example.inventory_service.repository.UserQueryRepository userRepo,
+            PlatformTransactionManager transactionManager) {
         this.exportRepo = exportRepo;
         this.detailRepo = detailRepo;
         this.storeRepo = storeRepo;
         this.stockRepo = stockRepo;
         this.userRepo = userRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
     }
 
+    /**
+     * Tạo phiếu trong transaction riêng: 2 request cùng khóa idempotency chạy song song thì bên thua
+     * vướng unique idempotency_key, transaction của nó đã rollback nên đọc lại được phiếu bên kia đã tạo.
+     */
     @Override
-    @Transactional
     public SupplierExportDto create(SupplierExportRequest req) {
+        try {
+            return tx.execute(status -> doCreate(req));
+        } catch (DataIntegrityViolationException e) {
+            String key = req.getIdempotencyKey();
+            if (key == null) {
+                throw e;
+            }
+            return readTx.execute(status -> exportRepo.findByIdempotencyKey(key).map(this::toDtoWithCalcTotal))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private SupplierExportDto doCreate(SupplierExportRequest req) {
+        // Gửi lại (retry) với cùng khóa: trả về phiếu đã tạo, không tạo trùng
+        if (req.getIdempotencyKey() != null) {
+            Optional<ShopExport> existing = exportRepo.findByIdempotencyKey(req.getIdempotencyKey());
+            if (existing.isPresent()) {
+                return toDtoWithCalcTotal(existing.get());
+            }
+        }
+
         // Validation: Phiếu xuất bắt buộc phải có kho và khách hàng
         // Lấy storeId từ header hoặc từ item đầu tiên
         Long storeId = req.getStoreId();
@@ -99,6 +133,7 @@ public class ExportServiceImpl implements ExportService {
         export.setExportsDate(now);
         export.setUserId(null);
         export.setOrderId(req.getOrderId());
+        export.setIdempotencyKey(req.getIdempotencyKey());
         export.setCreatedAt(now);
         export.setUpdatedAt(now);
         
@@ -745,6 +780,13 @@ public class ExportServiceImpl implements ExportService {
      */
     private Long getCurrentUserId() {
         try {
+            // uid có sẵn trong header danh tính gateway đã ký (hoặc claim uid của JWT): không tra DB
+            Long identityUserId = com.example.inventory_service.security.IdentityHeaders.current()
+                    .map(com.example.inventory_service.security.IdentityHeaders.AuthenticatedUser::id)
+                    .orElse(null);
+            if (identityUserId != null) {
+                return identityUserId;
+            }
             if (userRepo == null) {
                 System.err.println("⚠️ userRepo is null in getCurrentUserId");
                 return null;
@@ -708,6 +708,13 @@ public class ImportServiceImpl implements ImportService {
      */
     private Long getCurrentUserId() {
         try {
+            // uid có sẵn trong header danh tính gateway đã ký (hoặc claim uid của JWT): không tra DB
+            Long identityUserId = com.example.inventory_service.security.IdentityHeaders.current()
+                    .map(com.example.inventory_service.security.IdentityHeaders.AuthenticatedUser::id)
+                    .orElse(null);
+            if (identityUserId != null) {
+                return identityUserId;
+            }
             if (userRepo == null) {
                 System.err.println("⚠️ userRepo is null in getCurrentUserId");
                 return null;
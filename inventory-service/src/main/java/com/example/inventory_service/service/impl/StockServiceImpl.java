@@ -161,6 +161,29 @@ public class StockServiceImpl implements StockService {
         return dto;
     }
 
+    @Override
+    public List<StockByStoreDto> getStockByStoreAndProducts(Long storeId, List<Long> productIds) {
+        Map<Long, ShopStock> byProduct = new HashMap<>();
+        for (ShopStock stock : stockRepo.findByStoreIdAndProductIdIn(storeId, productIds)) {
+            byProduct.put(stock.getProductId(), stock);
+        }
+
+        List<StockByStoreDto> result = new ArrayList<>();
+        for (Long productId : new LinkedHashSet<>(productIds)) {
+            ShopStock stock = byProduct.get(productId);
+            StockByStoreDto dto = new StockByStoreDto();
+            dto.setProductId(productId);
+            dto.setStoreId(storeId);
+            dto.setQuantity(stock != null ? stock.getQuantity() : 0);
+            if (stock != null) {
+                dto.setMinStock(stock.getMinStock());
+                dto.setMaxStock(stock.getMaxStock());
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
     @Override
     public List<StockByStoreDto> getStockByStoreId(Long storeId) {
         List<ShopStock> stocks = stockRepo.findByStoreId(storeId);
@@ -0,0 +1,4 @@
+-- Khóa idempotency cho phiếu xuất tạo tự động (order-service gửi lại khi retry)
+-- NULL cho phiếu tạo tay; MySQL cho phép nhiều NULL trong UNIQUE index
+ALTER TABLE shop_exports ADD COLUMN idempotency_key VARCHAR(100) NULL;
+CREATE UNIQUE INDEX uk_exports_idempotency_key ON shop_exports(idempotency_key);
@@ -0,0 +1,80 @@
+package com.example.order_service.client;
+
+import com.example.order_service.dto.ApiResponse;
+import com.example.order_service.dto.StockLevelDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class InventoryClient {
+
+    private static final ParameterizedTypeReference<ApiResponse<List<StockLevelDto>>> STOCK_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ApiResponse<Object>> EXPORT_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final Duration exportTimeout;
+
+    public InventoryClient(WebClient remoteWebClient,
+            @Value("${order.remote.timeout-ms:2000}") long timeoutMs,
+            @Value("${order.remote.export-timeout-ms:10000}") long exportTimeoutMs) {
+        this.webClient = remoteWebClient;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.exportTimeout = Duration.ofMillis(exportTimeoutMs);
+    }
+
+    /**
+     * Tồn kho hiện tại của các sản phẩm tại 1 kho (1 lần gọi cho cả đơn): productId -> số lượng
+     */
+    public Mono<Map<Long, Integer>> getStock(Long storeId, Collection<Long> productIds) {
+        return webClient.get()
+                .uri(uri -> uri.scheme("http").host("inventory-service")
+                        .path("/api/stocks/store/{storeId}/products")
+                        .queryParam("ids", productIds.toArray())
+                        .build(storeId))
+                .retrieve()
+                .bodyToMono(STOCK_RESPONSE)
+                .timeout(timeout)
+                .map(res -> {
+                    if (!res.isSuccess() || res.getData() == null) {
+                        throw new IllegalStateException("Không đọc được tồn kho: " + res.getMessage());
+                    }
+                    Map<Long, Integer> stock = new HashMap<>();
+                    for (StockLevelDto s : res.getData()) {
+                        stock.put(s.getProductId(), s.getQuantity() != null ? s.getQuantity() : 0);
+                    }
+                    return stock;
+                });
+    }
+
+    /**
+     * Tạo phiếu xuất kho từ payload JSON đã lưu sẵn; inventory-service bỏ qua request trùng khóa
+     */
+    public Mono<ApiResponse<Object>> createExport(String payloadJson, String idempotencyKey) {
+        return webClient.post()
+                .uri("http://inventory-service/api/exports")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", idempotencyKey)
+                // connector mặc định cắt response sau order.remote.timeout-ms: nới riêng cho lệnh xuất
+                .httpRequest(request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(exportTimeout))
+                .bodyValue(payloadJson)
+                .retrieve()
+                .bodyToMono(EXPORT_RESPONSE)
+                .timeout(exportTimeout);
+    }
+}
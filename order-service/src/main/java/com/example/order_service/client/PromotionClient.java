@@ -2,41 +2,221 @@ package com.example.order_service.client;
 
 import com.example.order_service.dto.ApiResponse;
 import com.example.order_service.dto.VoucherDto;
-import lombok.RequiredArgsConstructor;
+import com.example.order_service.dto.VoucherRedeemRequest;
+import com.example.order_service.security.IdentityHeaders;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tra voucher ở promotion-service, có cache theo mã.
+ *
+ * - Voucher tìm thấy giữ {@code ttl-ms}, mã không tồn tại giữ {@code negative-ttl-ms}.
+ * - Nhiều request cùng mã khi cache trống chỉ gọi promotion-service 1 lần (single-flight).
+ * - Scheduler poll /api/vouchers/version; phiên bản đổi thì xóa cả cache.
+ * - promotion-service lỗi/chậm mà còn bản cũ thì dùng tạm bản cũ.
+ * - Mọi lời gọi đi bằng danh tính service: các API voucher này không mở công khai.
+ */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class PromotionClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private static final ParameterizedTypeReference<ApiResponse<VoucherDto>> VOUCHER_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ApiResponse<String>> VERSION_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ApiResponse<Object>> REDEMPTION_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient webClient;
+    private final IdentityHeaders identityHeaders;
+    private final Duration timeout;
+
+    private final Map<String, CachedVoucher> cache = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Optional<VoucherDto>>> inFlight = new ConcurrentHashMap<>();
+    private volatile String version;
+
+    @Value("${order.voucher-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${order.voucher-cache.negative-ttl-ms:10000}")
+    private long negativeTtlMs;
+
+    @Value("${order.voucher-cache.max-size:10000}")
+    private int maxSize;
+
+    public PromotionClient(WebClient remoteWebClient,
+            IdentityHeaders identityHeaders,
+            @Value("${order.remote.timeout-ms:2000}") long timeoutMs) {
+        this.webClient = remoteWebClient;
+        this.identityHeaders = identityHeaders;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * Voucher theo mã; rỗng nếu không tìm thấy. Cache còn hạn thì trả ngay không gọi mạng.
+     */
+    public Mono<VoucherDto> findVoucherByCode(String code) {
+        String key = code.trim();
+        CachedVoucher cached = cache.get(key);
+        if (cached != null && !cached.isExpired()) {
+            return Mono.justOrEmpty(cached.voucher());
+        }
+        return inFlight.computeIfAbsent(key, this::load)
+                .flatMap(Mono::justOrEmpty);
+    }
 
     public VoucherDto getVoucherByCode(String code) {
-        ApiResponse<VoucherDto> response = webClientBuilder.build()
-                .get()
-                .uri("http://promotion-service/api/vouchers/code/{code}", code)
+        return findVoucherByCode(code).block();
+    }
+
+    private Mono<Optional<VoucherDto>> load(String key) {
+        // Ghi nhận phiên bản trước khi gọi: nếu phiên bản đổi trong lúc gọi thì không lưu kết quả
+        String versionAtStart = version;
+        return webClient.get()
+                .uri("http://promotion-service/api/vouchers/code/{code}", key)
+                .headers(identityHeaders.service(null))
                 .retrieve()
-                .bodyToMono(ApiResponseVoucherResponse.class)
-                .block()
-                .toApiResponse();
+                .bodyToMono(VOUCHER_RESPONSE)
+                .timeout(timeout)
+                .map(res -> Optional.ofNullable(res.isSuccess() ? res.getData() : null))
+                .doOnNext(found -> {
+                    if (Objects.equals(versionAtStart, version)) {
+                        put(key, found.orElse(null));
+                    }
+                })
+                .onErrorResume(e -> {
+                    CachedVoucher stale = cache.get(key);
+                    if (stale == null) {
+                        return Mono.error(e);
+                    }
+                    log.warn("[VOUCHER] promotion-service error, using cached voucher {}: {}", key, e.getMessage());
+                    return Mono.just(Optional.ofNullable(stale.voucher()));
+                })
+                .doFinally(signal -> inFlight.remove(key))
+                .cache();
+    }
+
+    private void put(String key, VoucherDto voucher) {
+        long ttl = voucher != null ? ttlMs : negativeTtlMs;
+        cache.put(key, new CachedVoucher(voucher, System.currentTimeMillis(), System.currentTimeMillis() + ttl));
+        if (cache.size() > maxSize) {
+            evict();
+        }
+    }
 
-        if (response == null || !response.isSuccess() || response.getData() == null) {
-            return null;
+    // Bỏ mục hết hạn trước; vẫn đầy thì bỏ 10% mục nạp lâu nhất
+    private synchronized void evict() {
+        cache.values().removeIf(CachedVoucher::isExpired);
+        int excess = cache.size() - maxSize;
+        if (excess <= 0) {
+            return;
         }
-        return response.getData();
+        int toRemove = Math.max(excess, maxSize / 10);
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .limit(toRemove)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(cache::remove);
+    }
+
+    /**
+     * Giữ 1 lượt dùng voucher giới hạn lượt. true = đã giữ; false = promotion-service từ chối
+     * (hết lượt, hết hạn, không tồn tại). Lỗi mạng / timeout trả về lỗi: chưa rõ đã giữ hay chưa,
+     * bên gọi phải trả lượt theo redemptionKey. Khách đi trong danh tính service (X-User-Id),
+     * promotion-service không nhận customerId từ body.
+     */
+    public Mono<Boolean> reserveRedemption(String code, Long customerId, String redemptionKey) {
+        return webClient.post()
+                .uri("http://promotion-service/api/vouchers/redemptions")
+                .headers(identityHeaders.service(customerId))
+                .bodyValue(new VoucherRedeemRequest(code, redemptionKey))
+                .retrieve()
+                .bodyToMono(REDEMPTION_RESPONSE)
+                .timeout(timeout)
+                .map(ApiResponse::isSuccess)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    int status = e.getStatusCode().value();
+                    if (status >= 400 && status < 500 && status != 408 && status != 429) {
+                        log.info("[VOUCHER] Redemption of {} rejected: {}", code, e.getResponseBodyAsString());
+                        return Mono.just(false);
+                    }
+                    return Mono.error(e);
+                });
+    }
+
+    /**
+     * Trả lượt đã giữ; promotion-service bỏ qua key không tồn tại / đã trả nên gọi lại an toàn
+     */
+    public Mono<Void> releaseRedemption(String redemptionKey) {
+        return webClient.post()
+                .uri("http://promotion-service/api/vouchers/redemptions/{key}/release", redemptionKey)
+                .headers(identityHeaders.service(null))
+                .retrieve()
+                .bodyToMono(REDEMPTION_RESPONSE)
+                .timeout(timeout)
+                .flatMap(res -> res.isSuccess()
+                        ? Mono.<Void>empty()
+                        : Mono.error(new IllegalStateException("promotion-service: " + res.getMessage())));
+    }
+
+    public void invalidate(String code) {
+        cache.remove(code.trim());
+    }
+
+    public void invalidateAll() {
+        cache.clear();
     }
 
     /**
-     * Trick nhỏ để map JSON có generic ApiResponse<VoucherDto>
+     * Poll phiên bản dữ liệu voucher; khác lần trước thì xóa cache
      */
-    private static class ApiResponseVoucherResponse extends ApiResponse<VoucherDto> {
-        public ApiResponse<VoucherDto> toApiResponse() {
-            ApiResponse<VoucherDto> res = new ApiResponse<>();
-            res.setSuccess(this.isSuccess());
-            res.setMessage(this.getMessage());
-            res.setData(this.getData());
-            return res;
+    @Scheduled(fixedDelayString = "${order.voucher-cache.version-poll-ms:5000}")
+    public void checkVersion() {
+        try {
+            ApiResponse<String> res = webClient.get()
+                    .uri("http://promotion-service/api/vouchers/version")
+                    .headers(identityHeaders.service(null))
+                    .retrieve()
+                    .bodyToMono(VERSION_RESPONSE)
+                    .block(timeout);
+            if (res == null || !res.isSuccess() || res.getData() == null) {
+                return;
+            }
+            String latest = res.getData();
+            if (version != null && !version.equals(latest)) {
+                log.info("[VOUCHER] Voucher data changed ({} -> {}), clearing {} cached codes",
+                        version, latest, cache.size());
+                version = latest;
+                invalidateAll();
+            } else {
+                version = latest;
+            }
+        } catch (Exception e) {
+            // Không lấy được phiên bản: cache vẫn tự hết hạn theo TTL
+            log.debug("[VOUCHER] Version check failed: {}", e.getMessage());
+        }
+    }
+
+    private record CachedVoucher(VoucherDto voucher, long loadedAt, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
         }
     }
 }
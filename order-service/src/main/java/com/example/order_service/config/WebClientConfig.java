@@ -1,23 +1,82 @@
 package com.example.order_service.config;
 
+import com.example.order_service.security.IdentityHeaders;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Value("${order.remote.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${order.remote.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${order.remote.timeout-ms:2000}")
+    private long timeoutMs;
+
+    /**
+     * Pool kết nối dùng chung cho mọi lời gọi sang service khác
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider remoteConnectionProvider() {
+        return ConnectionProvider.builder("order-remote")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(timeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(60))
+                .build();
+    }
+
+    /**
+     * responseTimeout ở đây là mặc định cho mọi lời gọi; lời gọi cần lâu hơn (tạo phiếu xuất)
+     * tự đặt lại qua {@code httpRequest(...)}
+     */
     @Bean
     @LoadBalanced
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(ConnectionProvider remoteConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(remoteConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(timeoutMs));
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+
+    /**
+     * WebClient dựng 1 lần (đã có load balancer), không build lại mỗi request
+     */
+    @Bean
+    public WebClient remoteWebClient(@LoadBalanced WebClient.Builder webClientBuilder) {
+        return webClientBuilder.build();
     }
 
+    /**
+     * Proxy lệnh nhập / xuất sang inventory-service: kèm header danh tính gateway đã ký của
+     * request hiện tại để inventory-service không phải verify JWT lại
+     */
     @Bean
     @LoadBalanced
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+                IdentityHeaders.copy(attributes.getRequest(), request.getHeaders());
+            }
+            return execution.execute(request, body);
+        });
+        return restTemplate;
     }
 }
@@ -6,8 +6,10 @@ import com.example.order_service.dto.CustomerRequest;
 import com.example.order_service.service.CustomerService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -29,6 +31,20 @@ public class CustomerController {
         return service.search(code, name, phone, pageable);
     }
 
+    // GET /api/customers/segment?from&to&status&minOrders&minSpent&afterId&size
+    // Id khách theo phân khúc đơn hàng, phân trang keyset: trang sau truyền afterId = id cuối trang trước
+    @GetMapping("/segment")
+    public ApiResponse<List<Long>> segment(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long minOrders,
+            @RequestParam(required = false) Double minSpent,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "5000") int size) {
+        return ApiResponse.ok(service.segmentIds(from, to, status, minOrders, minSpent, afterId, size));
+    }
+
     @GetMapping
     public ApiResponse<List<CustomerDto>> getAll() {
         return ApiResponse.ok(service.getAll());
@@ -1,7 +1,9 @@
 package com.example.order_service.controller;
 
 import com.example.order_service.common.ApiResponse;
+import com.example.order_service.dto.OrderDailyStatDto;
 import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderPageDto;
 import com.example.order_service.dto.OrderRequest;
 import com.example.order_service.dto.OrderStatusUpdateRequest;
 import com.example.order_service.dto.OrderSummaryDto;
@@ -34,6 +36,17 @@ public class OrderController {
         return ApiResponse.ok(service.getByCustomer(customerId));
     }
 
+    // Lịch sử đơn của khách, phân trang keyset: trang sau truyền nextLastDate/nextLastId của trang trước
+    @GetMapping("/by-customer/{customerId}/page")
+    public ApiResponse<OrderPageDto> getByCustomerPage(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date lastDate,
+            @RequestParam(required = false) Long lastId,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        return ApiResponse.ok(service.getByCustomer(customerId, lastDate, lastId, size, summary));
+    }
+
     // Xem chi tiết một đơn
     @GetMapping("/{id}")
     public ApiResponse<OrderDto> getById(@PathVariable Long id) {
@@ -65,20 +78,35 @@ public class OrderController {
         return ApiResponse.ok(service.search(fromDate, toDate, status));
     }
 
-    @GetMapping("/summary")
-public ApiResponse<OrderSummaryDto> summary(
-        @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-        @RequestParam("to")   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
-        @RequestParam("status") String status) {
-
-    Date fromDate = java.sql.Date.valueOf(from);
-    Date toDate   = java.sql.Date.valueOf(to);
-
-    return ApiResponse.ok(
-            "Order summary",
-            service.summary(fromDate, toDate, status)
-    );
-}
+    @GetMapping("/search-keyset")
+    public ApiResponse<OrderPageDto> searchKeyset(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date lastDate,
+            @RequestParam(required = false) Long lastId,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        Date fromDate = from != null ? java.sql.Date.valueOf(from) : null;
+        Date toDate = to != null ? java.sql.Date.valueOf(to.plusDays(1)) : null;
+        return ApiResponse.ok(service.searchKeyset(fromDate, toDate, status, lastDate, lastId, size, summary));
+    }
 
+    // Tổng hợp từ bảng thống kê theo ngày, tính cả ngày "to"
+    @GetMapping("/summary")
+    public ApiResponse<OrderSummaryDto> summary(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "status", required = false) String status) {
+        return ApiResponse.ok("Order summary", service.summary(from, to, status));
+    }
 
+    // Số đơn / doanh thu theo từng ngày và trạng thái
+    @GetMapping("/summary/daily")
+    public ApiResponse<List<OrderDailyStatDto>> dailySummary(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "status", required = false) String status) {
+        return ApiResponse.ok(service.dailyStats(from, to, status));
+    }
 }
@@ -4,13 +4,18 @@ import lombok.Data;
 
 import java.util.List;
 
+// Khớp SupplierExportRequest của inventory-service (POST /api/exports)
+
 @Data
 public class InventoryExportRequest {
 
     private Long storeId;      // kho xuất (shop_stores.stores_id)
     private Long userId;       // nhân viên tạo đơn (ad_users.user_id)
     private Long orderId;      // đơn hàng liên quan (shop_orders.order_id)
+    private Long customerId;   // khách hàng (shop_customers.customers_id)
+    private String customerName;    // bắt buộc nếu không có customerId
+    private String customerAddress;
     private String note;       // ghi chú phiếu xuất
 
-    private List<InventoryExportDetailRequest> details;
+    private List<InventoryExportDetailRequest> items;
 }
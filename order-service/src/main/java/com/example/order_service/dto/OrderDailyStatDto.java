@@ -0,0 +1,19 @@
+package com.example.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderDailyStatDto {
+    private LocalDate date;
+    private String status;
+    private long orderCount;
+    private BigDecimal totalAmount;    // tổng tiền sau giảm
+    private BigDecimal totalDiscount;  // tổng tiền giảm
+}
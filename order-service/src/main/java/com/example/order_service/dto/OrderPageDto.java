@@ -0,0 +1,17 @@
+package com.example.order_service.dto;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 1 trang đơn hàng phân trang keyset, mới nhất trước (orderDate DESC, id DESC)
+ */
+@Data
+public class OrderPageDto {
+    private List<OrderDto> items;
+    private boolean hasMore;      // còn trang sau
+    private Date nextLastDate;    // truyền lại vào ?lastDate= để lấy trang sau
+    private Long nextLastId;      // truyền lại vào ?lastId=
+}
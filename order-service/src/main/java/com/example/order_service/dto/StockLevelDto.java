@@ -0,0 +1,12 @@
+package com.example.order_service.dto;
+
+import lombok.Data;
+
+// Tồn kho 1 sản phẩm tại 1 kho (đọc từ inventory-service)
+
+@Data
+public class StockLevelDto {
+    private Long productId;
+    private Long storeId;
+    private Integer quantity;
+}
@@ -3,6 +3,7 @@ package com.example.order_service.dto;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 // DTO VoucherDto ở order-service (để đọc dữ liệu từ promotion-service)
 
@@ -11,7 +12,11 @@ public class VoucherDto {
  private Long id;
     private String code;
     private String description;
+    private String type;
     private Double discountAmount;   // lấy discountAmount từ promotion-service
+    private Integer maxUser;         // có giới hạn lượt thì phải giữ lượt khi tạo đơn
+    private Integer maxPerCustomer;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    private List<Long> productIds;   // voucher gắn sản phẩm: giỏ phải có ít nhất 1 sản phẩm trong đó
 }
@@ -0,0 +1,14 @@
+package com.example.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Body gửi promotion-service để giữ 1 lượt dùng voucher (khách đi trong header danh tính service)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoucherRedeemRequest {
+    private String code;
+    private String redemptionKey;
+}
@@ -74,4 +74,11 @@ public class ShopOrder {
     @Column(name = "discount_amount")
     private Double discountAmount;
 
+    @Column(name = "voucher_code")
+    private String voucherCode;
+
+    // Khóa giữ lượt voucher ở promotion-service, null nếu voucher không giới hạn lượt
+    @Column(name = "voucher_redemption_key")
+    private String voucherRedemptionKey;
+
 }
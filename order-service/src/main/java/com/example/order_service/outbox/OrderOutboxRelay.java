@@ -0,0 +1,224 @@
+package com.example.order_service.outbox;
+
+import com.example.order_service.client.InventoryClient;
+import com.example.order_service.client.PromotionClient;
+import com.example.order_service.repository.OrderOutboxJdbcRepository;
+import com.example.order_service.repository.OrderOutboxJdbcRepository.Failure;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gửi các sự kiện trong order_outbox sang service đích.
+ *
+ * Mỗi vòng nhận 1 batch dòng tới hạn (có lease để instance khác không nhận trùng), gửi song song
+ * kèm Idempotency-Key, rồi ghi kết quả theo batch. Lỗi tạm thời thử lại với backoff lũy thừa;
+ * lỗi 4xx hoặc quá số lần thử thì chuyển FAILED để xử lý tay.
+ */
+@Component
+@Slf4j
+public class OrderOutboxRelay {
+
+    public static final String INVENTORY_EXPORT = "INVENTORY_EXPORT";
+    // payload = redemptionKey cần trả ở promotion-service
+    public static final String VOUCHER_RELEASE = "VOUCHER_RELEASE";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OrderOutboxJdbcRepository outboxRepo;
+    private final InventoryClient inventoryClient;
+    private final PromotionClient promotionClient;
+    private final TransactionTemplate tx;
+
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter dead;
+
+    private volatile OrderOutboxJdbcRepository.Stats stats = new OrderOutboxJdbcRepository.Stats(0, null, 0);
+
+    @Value("${order.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${order.outbox.concurrency:8}")
+    private int concurrency;
+
+    @Value("${order.outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${order.outbox.max-attempts:15}")
+    private int maxAttempts;
+
+    @Value("${order.outbox.retry-base-ms:5000}")
+    private long retryBaseMs;
+
+    @Value("${order.outbox.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    @Value("${order.outbox.retention-days:7}")
+    private int retentionDays;
+
+    public OrderOutboxRelay(OrderOutboxJdbcRepository outboxRepo,
+            InventoryClient inventoryClient,
+            PromotionClient promotionClient,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry registry) {
+        this.outboxRepo = outboxRepo;
+        this.inventoryClient = inventoryClient;
+        this.promotionClient = promotionClient;
+        this.tx = new TransactionTemplate(transactionManager);
+
+        this.delivered = registry.counter("order.outbox.delivered");
+        this.retried = registry.counter("order.outbox.retried");
+        this.dead = registry.counter("order.outbox.dead");
+        Gauge.builder("order.outbox.backlog", this, r -> r.stats.pending())
+                .description("Số sự kiện đang chờ gửi")
+                .register(registry);
+        Gauge.builder("order.outbox.failed", this, r -> r.stats.failed())
+                .description("Số sự kiện đã bỏ cuộc (cần xử lý tay)")
+                .register(registry);
+        TimeGauge.builder("order.outbox.lag", this, TimeUnit.MILLISECONDS, OrderOutboxRelay::lagMillis)
+                .description("Tuổi của sự kiện chờ gửi lâu nhất")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-ms:1000}")
+    public void relay() {
+        try {
+            List<OutboxMessage> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                }
+            } while (batch.size() >= batchSize);
+        } catch (Exception e) {
+            log.warn("[OUTBOX] Relay failed: {}", e.getMessage());
+        }
+    }
+
+    private List<OutboxMessage> claim() {
+        long now = System.currentTimeMillis();
+        return tx.execute(status -> outboxRepo.claimDue(new Timestamp(now), new Timestamp(now + leaseMs), batchSize));
+    }
+
+    private void deliver(List<OutboxMessage> batch) {
+        List<Outcome> outcomes = Flux.fromIterable(batch)
+                .flatMap(m -> send(m)
+                        .thenReturn(new Outcome(m, null))
+                        .onErrorResume(e -> Mono.just(new Outcome(m, e))), concurrency)
+                .collectList()
+                .block(Duration.ofMillis(leaseMs));
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Long> sent = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        for (Outcome o : outcomes) {
+            if (o.error == null) {
+                sent.add(o.message.id());
+                continue;
+            }
+            int attempts = o.message.attempts() + 1;
+            String error = describe(o.error);
+            if (isPermanent(o.error) || attempts >= maxAttempts) {
+                log.error("[OUTBOX] Giving up {} #{} ({}) after {} attempts: {}", o.message.eventType(),
+                        o.message.aggregateId(), o.message.idempotencyKey(), attempts, error);
+                failures.add(new Failure(o.message.id(), OrderOutboxJdbcRepository.FAILED, now, error));
+                dead.increment();
+            } else {
+                log.warn("[OUTBOX] {} #{} attempt {} failed: {}", o.message.eventType(),
+                        o.message.aggregateId(), attempts, error);
+                failures.add(new Failure(o.message.id(), OrderOutboxJdbcRepository.PENDING,
+                        new Timestamp(now.getTime() + backoffMs(attempts)), error));
+                retried.increment();
+            }
+        }
+        outboxRepo.markSent(sent, now);
+        outboxRepo.markFailures(failures);
+        delivered.increment(sent.size());
+    }
+
+    private Mono<Void> send(OutboxMessage m) {
+        return switch (m.eventType()) {
+            case INVENTORY_EXPORT -> inventoryClient.createExport(m.payload(), m.idempotencyKey())
+                    .flatMap(res -> res.isSuccess()
+                            ? Mono.<Void>empty()
+                            : Mono.error(new IllegalStateException("inventory-service: " + res.getMessage())));
+            case VOUCHER_RELEASE -> promotionClient.releaseRedemption(m.payload());
+            default -> Mono.error(new UnsupportedOperationException("Loại sự kiện không hỗ trợ: " + m.eventType()));
+        };
+    }
+
+    // Backoff lũy thừa có jitter: base, 2*base, 4*base... tối đa retryMaxMs
+    private long backoffMs(int attempts) {
+        long delay = retryBaseMs << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, retryMaxMs);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // 4xx (trừ 408/429) là request sai, gửi lại cũng không thành công
+    private static boolean isPermanent(Throwable e) {
+        if (e instanceof WebClientResponseException w) {
+            int code = w.getStatusCode().value();
+            return code >= 400 && code < 500 && code != 408 && code != 429;
+        }
+        return e instanceof UnsupportedOperationException;
+    }
+
+    private static String describe(Throwable e) {
+        String msg = e instanceof WebClientResponseException w
+                ? w.getStatusCode().value() + " " + w.getResponseBodyAsString()
+                : e.getClass().getSimpleName() + ": " + e.getMessage();
+        return msg.length() > MAX_ERROR_LENGTH ? msg.substring(0, MAX_ERROR_LENGTH) : msg;
+    }
+
+    private double lagMillis() {
+        Timestamp oldest = stats.oldestPending();
+        return oldest == null ? 0 : Math.max(0, System.currentTimeMillis() - oldest.getTime());
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.stats-ms:15000}")
+    public void refreshStats() {
+        try {
+            stats = outboxRepo.stats();
+        } catch (Exception e) {
+            log.warn("[OUTBOX] Failed to read outbox stats: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dọn dòng đã gửi quá thời gian lưu
+     */
+    @Scheduled(cron = "${order.outbox.cleanup-cron:0 45 3 * * *}")
+    public void purgeSent() {
+        Timestamp before = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxRepo.deleteSentBefore(before, 5000);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            log.info("[OUTBOX] Purged {} sent events", total);
+        }
+    }
+
+    private record Outcome(OutboxMessage message, Throwable error) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.order_service.outbox;
+
+/**
+ * 1 dòng order_outbox đã được relay nhận để gửi
+ */
+public record OutboxMessage(long id, String eventType, long aggregateId,
+        String idempotencyKey, String payload, int attempts) {
+}
@@ -0,0 +1,102 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.dto.OrderDailyStatDto;
+import com.example.order_service.dto.OrderSummaryDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bảng order_daily_stats: 1 dòng cho mỗi (ngày, trạng thái)
+ */
+@Repository
+public class OrderDailyStatsJdbcRepository {
+
+    // DATE(?) tính ở DB để ngày khớp với DATE(order_date) của job đối soát
+    private static final String ADD_SQL = "INSERT INTO order_daily_stats "
+            + "(stat_date, order_status, order_count, total_amount, total_discount) "
+            + "VALUES (DATE(?), ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "total_amount = total_amount + VALUES(total_amount), "
+            + "total_discount = total_discount + VALUES(total_discount)";
+
+    private static final String AGGREGATE_SQL = "SELECT DATE(order_date), COALESCE(order_status, ''), COUNT(*), "
+            + "COALESCE(SUM(total_amount), 0), COALESCE(SUM(discount_amount), 0) FROM shop_orders "
+            + "WHERE order_date >= ? AND order_date < ? GROUP BY DATE(order_date), COALESCE(order_status, '')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderDailyStatsJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Cộng (hoặc trừ khi sign = -1) 1 đơn vào dòng (ngày của orderDate, status)
+     */
+    public void add(Timestamp orderDate, String status, int sign, Double totalAmount, Double discountAmount) {
+        jdbcTemplate.update(ADD_SQL,
+                orderDate,
+                status != null ? status : "",
+                sign,
+                amount(totalAmount).multiply(BigDecimal.valueOf(sign)),
+                amount(discountAmount).multiply(BigDecimal.valueOf(sign)));
+    }
+
+    /**
+     * Tổng các ngày trong [from, to]; status = null thì cộng mọi trạng thái
+     */
+    public OrderSummaryDto sum(LocalDate from, LocalDate to, String status) {
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        String sql = "SELECT COALESCE(SUM(order_count), 0), COALESCE(SUM(total_amount), 0), "
+                + "COALESCE(SUM(total_discount), 0) FROM order_daily_stats WHERE stat_date BETWEEN ? AND ?";
+        if (status != null) {
+            sql += " AND order_status = ?";
+            args.add(status);
+        }
+        return jdbcTemplate.queryForObject(sql, (rs, i) -> {
+            OrderSummaryDto dto = new OrderSummaryDto();
+            dto.setTotalOrders(rs.getLong(1));
+            dto.setTotalAmount(rs.getBigDecimal(2));
+            dto.setTotalDiscount(rs.getBigDecimal(3));
+            return dto;
+        }, args.toArray());
+    }
+
+    public List<OrderDailyStatDto> findDaily(LocalDate from, LocalDate to, String status) {
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        String sql = "SELECT stat_date, order_status, order_count, total_amount, total_discount "
+                + "FROM order_daily_stats WHERE stat_date BETWEEN ? AND ?";
+        if (status != null) {
+            sql += " AND order_status = ?";
+            args.add(status);
+        }
+        sql += " ORDER BY stat_date, order_status";
+        return jdbcTemplate.query(sql, (rs, i) -> new OrderDailyStatDto(
+                rs.getDate(1).toLocalDate(), rs.getString(2), rs.getLong(3),
+                rs.getBigDecimal(4), rs.getBigDecimal(5)), args.toArray());
+    }
+
+    /**
+     * Tính lại các ngày trong [from, to] từ shop_orders bằng câu GROUP BY (đối soát).
+     * Phải chạy trong transaction.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        jdbcTemplate.update("DELETE FROM order_daily_stats WHERE stat_date BETWEEN ? AND ?",
+                Date.valueOf(from), Date.valueOf(to));
+        return jdbcTemplate.update("INSERT INTO order_daily_stats "
+                + "(stat_date, order_status, order_count, total_amount, total_discount) " + AGGREGATE_SQL,
+                start, end);
+    }
+
+    private static BigDecimal amount(Double value) {
+        return value != null ? BigDecimal.valueOf(value) : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.entity.ShopOrderDetail;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Ghi chi tiết đơn hàng theo batch bằng JDBC (IDENTITY nên Hibernate không batch insert được)
+ */
+@Repository
+public class OrderDetailJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO shop_order_details "
+            + "(order_id, products_id, quantity, unit_price, discount_percent, discount_amount, "
+            + "order_details_status, date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderDetailJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Thêm nhiều dòng trong 1 batch và gán id vừa sinh vào từng entity
+     */
+    public void insertAll(List<ShopOrderDetail> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (ShopOrderDetail d : details) {
+                    ps.setLong(1, d.getOrderId());
+                    if (d.getProductId() != null) {
+                        ps.setLong(2, d.getProductId());
+                    } else {
+                        ps.setNull(2, Types.BIGINT);
+                    }
+                    if (d.getQuantity() != null) {
+                        ps.setInt(3, d.getQuantity());
+                    } else {
+                        ps.setNull(3, Types.INTEGER);
+                    }
+                    ps.setBigDecimal(4, d.getUnitPrice());
+                    ps.setBigDecimal(5, d.getDiscountPercent());
+                    ps.setBigDecimal(6, d.getDiscountAmount());
+                    ps.setString(7, d.getOrderDetailsStatus());
+                    ps.setTimestamp(8, d.getDate() != null ? new Timestamp(d.getDate().getTime()) : null);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < details.size()) {
+                        details.get(i++).setId(keys.getLong(1));
+                    }
+                    if (i != details.size()) {
+                        throw new IllegalStateException("Không lấy được id của chi tiết đơn hàng vừa thêm");
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.outbox.OutboxMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Bảng order_outbox: ghi trong transaction của đơn hàng, relay nhận/cập nhật theo batch
+ */
+@Repository
+public class OrderOutboxJdbcRepository {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    public OrderOutboxJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public void insert(String eventType, long aggregateId, String idempotencyKey, String payload, Timestamp now) {
+        jdbcTemplate.update("INSERT INTO order_outbox (event_type, aggregate_id, idempotency_key, payload, "
+                + "status, attempts, next_attempt_at, created_at) VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)",
+                eventType, aggregateId, idempotencyKey, payload, now, now);
+    }
+
+    /**
+     * Nhận tối đa limit dòng đã tới hạn và dời hạn tới leaseUntil để relay khác (instance khác)
+     * không nhận trùng. Phải chạy trong transaction; SKIP LOCKED bỏ qua dòng đang bị khóa.
+     */
+    public List<OutboxMessage> claimDue(Timestamp now, Timestamp leaseUntil, int limit) {
+        List<OutboxMessage> due = jdbcTemplate.query(
+                "SELECT id, event_type, aggregate_id, idempotency_key, payload, attempts FROM order_outbox "
+                        + "WHERE status = 'PENDING' AND next_attempt_at <= ? "
+                        + "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, i) -> new OutboxMessage(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                        rs.getString(4), rs.getString(5), rs.getInt(6)),
+                now, limit);
+        if (!due.isEmpty()) {
+            namedJdbc.update("UPDATE order_outbox SET next_attempt_at = :lease WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", due.stream().map(OutboxMessage::id).toList())
+                            .addValue("lease", leaseUntil));
+        }
+        return due;
+    }
+
+    public void markSent(List<Long> ids, Timestamp now) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        namedJdbc.update("UPDATE order_outbox SET status = 'SENT', sent_at = :now, attempts = attempts + 1, "
+                + "last_error = NULL WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids).addValue("now", now));
+    }
+
+    /**
+     * Ghi lần thử thất bại: status PENDING (thử lại lúc nextAttemptAt) hoặc FAILED (bỏ cuộc)
+     */
+    public void markFailures(List<Failure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE order_outbox SET status = ?, attempts = attempts + 1, "
+                + "next_attempt_at = ?, last_error = ? WHERE id = ?",
+                failures, failures.size(), (ps, f) -> {
+                    ps.setString(1, f.status());
+                    ps.setTimestamp(2, f.nextAttemptAt());
+                    ps.setString(3, f.error());
+                    ps.setLong(4, f.id());
+                });
+    }
+
+    /**
+     * Số dòng PENDING, thời điểm tạo của dòng PENDING cũ nhất và số dòng FAILED
+     */
+    public Stats stats() {
+        return jdbcTemplate.queryForObject(
+                "SELECT SUM(status = 'PENDING'), MIN(CASE WHEN status = 'PENDING' THEN created_at END), "
+                        + "SUM(status = 'FAILED') FROM order_outbox WHERE status IN ('PENDING', 'FAILED')",
+                (rs, i) -> new Stats(rs.getLong(1), rs.getTimestamp(2), rs.getLong(3)));
+    }
+
+    public int deleteSentBefore(Timestamp before, int limit) {
+        return jdbcTemplate.update("DELETE FROM order_outbox WHERE status = 'SENT' AND sent_at < ? LIMIT ?",
+                before, limit);
+    }
+
+    public record Failure(long id, String status, Timestamp nextAttemptAt, String error) {
+    }
+
+    public record Stats(long pending, Timestamp oldestPending, long failed) {
+    }
+}
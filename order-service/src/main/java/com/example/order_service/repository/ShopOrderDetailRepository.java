@@ -3,8 +3,12 @@ package com.example.order_service.repository;
 import com.example.order_service.entity.ShopOrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ShopOrderDetailRepository extends JpaRepository<ShopOrderDetail, Long> {
     List<ShopOrderDetail> findByOrderId(Long orderId);
+
+    // Nạp chi tiết của nhiều đơn trong 1 câu (danh sách đơn hàng)
+    List<ShopOrderDetail> findByOrderIdIn(Collection<Long> orderIds);
 }
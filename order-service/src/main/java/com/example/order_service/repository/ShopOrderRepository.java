@@ -1,14 +1,75 @@
 package com.example.order_service.repository;
 
 import com.example.order_service.entity.ShopOrder;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface ShopOrderRepository extends JpaRepository<ShopOrder, Long> {
-    List<ShopOrder> findByCustomerId(Long customerId);
+    List<ShopOrder> findByCustomerIdOrderByOrderDateDescIdDesc(Long customerId);
 
     // tìm theo khoảng ngày & trạng thái
-    List<ShopOrder> findByOrderDateBetweenAndOrderStatus(Date from, Date to, String status);
+    List<ShopOrder> findByOrderDateBetweenAndOrderStatusOrderByOrderDateDescIdDesc(Date from, Date to, String status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM ShopOrder o WHERE o.id = :id")
+    Optional<ShopOrder> findByIdForUpdate(@Param("id") Long id);
+
+    // Keyset: trang sau bắt đầu ngay sau (lastDate, lastId); không đếm tổng nên chỉ 1 câu SELECT
+    @Query("""
+           SELECT o FROM ShopOrder o
+           WHERE o.customerId = :customerId
+             AND (:lastDate IS NULL OR :lastId IS NULL OR
+                  (o.orderDate < :lastDate OR (o.orderDate = :lastDate AND o.id < :lastId)))
+           ORDER BY o.orderDate DESC, o.id DESC
+        """)
+    List<ShopOrder> findByCustomerKeyset(
+            @Param("customerId") Long customerId,
+            @Param("lastDate") Date lastDate,
+            @Param("lastId") Long lastId,
+            Pageable pageable);
+
+    @Query("""
+           SELECT o FROM ShopOrder o
+           WHERE (:status IS NULL OR o.orderStatus = :status)
+             AND (:fromDate IS NULL OR o.orderDate >= :fromDate)
+             AND (:toDate IS NULL OR o.orderDate < :toDate)
+             AND (:lastDate IS NULL OR :lastId IS NULL OR
+                  (o.orderDate < :lastDate OR (o.orderDate = :lastDate AND o.id < :lastId)))
+           ORDER BY o.orderDate DESC, o.id DESC
+        """)
+    List<ShopOrder> searchKeyset(
+            @Param("status") String status,
+            @Param("fromDate") Date fromDate,
+            @Param("toDate") Date toDate,
+            @Param("lastDate") Date lastDate,
+            @Param("lastId") Long lastId,
+            Pageable pageable);
+
+    // Khách hàng thỏa phân khúc (số đơn, tổng chi tiêu trong khoảng ngày), keyset theo customers_id
+    @Query("""
+           SELECT o.customerId FROM ShopOrder o
+           WHERE o.customerId > :afterId
+             AND (:status IS NULL OR o.orderStatus = :status)
+             AND (:fromDate IS NULL OR o.orderDate >= :fromDate)
+             AND (:toDate IS NULL OR o.orderDate < :toDate)
+           GROUP BY o.customerId
+           HAVING COUNT(o) >= :minOrders AND COALESCE(SUM(o.totalAmount), 0) >= :minSpent
+           ORDER BY o.customerId
+        """)
+    List<Long> findSegmentCustomerIds(
+            @Param("afterId") Long afterId,
+            @Param("status") String status,
+            @Param("fromDate") Date fromDate,
+            @Param("toDate") Date toDate,
+            @Param("minOrders") long minOrders,
+            @Param("minSpent") double minSpent,
+            Pageable pageable);
 }
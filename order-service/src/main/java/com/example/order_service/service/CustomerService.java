@@ -5,6 +5,7 @@ import com.example.order_service.dto.CustomerRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Date;
 import java.util.List;
 
 public interface CustomerService {
@@ -14,4 +15,8 @@ public interface CustomerService {
     CustomerDto update(Long id, CustomerRequest req);
     void delete(Long id);
     Page<CustomerDto> search(String code, String name, String phone, Pageable pageable);
+
+    // Id khách thỏa phân khúc theo đơn hàng, tăng dần sau afterId (promotion-service phát voucher)
+    List<Long> segmentIds(Date from, Date to, String status, Long minOrders, Double minSpent,
+            Long afterId, int size);
 }
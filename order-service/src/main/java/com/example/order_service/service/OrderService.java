@@ -1,10 +1,13 @@
 package com.example.order_service.service;
 
+import com.example.order_service.dto.OrderDailyStatDto;
 import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderPageDto;
 import com.example.order_service.dto.OrderRequest;
 import com.example.order_service.dto.OrderStatusUpdateRequest;
 import com.example.order_service.dto.OrderSummaryDto;
 
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 
@@ -14,6 +17,9 @@ public interface OrderService {
 
     List<OrderDto> getByCustomer(Long customerId);
 
+    // Phân trang keyset (lastDate/lastId của trang trước); summaryOnly = true thì không nạp chi tiết
+    OrderPageDto getByCustomer(Long customerId, Date lastDate, Long lastId, int size, boolean summaryOnly);
+
     OrderDto getById(Long id);
 
     // OrderDto updateStatus(Long id, String status);
@@ -21,6 +27,13 @@ public interface OrderService {
 
     List<OrderDto> search(Date from, Date to, String status);
 
-    OrderSummaryDto summary(Date from, Date to, String status);
+    OrderPageDto searchKeyset(Date from, Date to, String status,
+            Date lastDate, Long lastId, int size, boolean summaryOnly);
+
+    // Tổng các ngày trong [from, to] (tính cả ngày to); status rỗng = mọi trạng thái
+    OrderSummaryDto summary(LocalDate from, LocalDate to, String status);
+
+    // Số đơn / doanh thu / giảm giá theo từng ngày và trạng thái
+    List<OrderDailyStatDto> dailyStats(LocalDate from, LocalDate to, String status);
 
 }
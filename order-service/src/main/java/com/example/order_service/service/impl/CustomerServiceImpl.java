@@ -5,8 +5,10 @@ import com.example.order_service.dto.CustomerRequest;
 import com.example.order_service.entity.ShopCustomer;
 import com.example.order_service.exception.NotFoundException;
 import com.example.order_service.repository.ShopCustomerRepository;
+import com.example.order_service.repository.ShopOrderRepository;
 import com.example.order_service.service.CustomerService;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -17,10 +19,14 @@ import java.util.List;
 @Service
 public class CustomerServiceImpl implements CustomerService {
 
+    private static final int MAX_SEGMENT_PAGE_SIZE = 10000;
+
     private final ShopCustomerRepository repo;
+    private final ShopOrderRepository orderRepo;
 
-    public CustomerServiceImpl(ShopCustomerRepository repo) {
+    public CustomerServiceImpl(ShopCustomerRepository repo, ShopOrderRepository orderRepo) {
         this.repo = repo;
+        this.orderRepo = orderRepo;
     }
 
     @Override
@@ -155,6 +161,19 @@ public class CustomerServiceImpl implements CustomerService {
         return repo.findAll(spec, pageable).map(this::toDto);
     }
 
+    @Override
+    public List<Long> segmentIds(Date from, Date to, String status, Long minOrders, Double minSpent,
+            Long afterId, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_SEGMENT_PAGE_SIZE));
+        return orderRepo.findSegmentCustomerIds(
+                afterId != null ? afterId : 0L,
+                status != null && !status.isBlank() ? status : null,
+                from, to,
+                minOrders != null ? minOrders : 1L,
+                minSpent != null ? minSpent : 0.0,
+                PageRequest.of(0, limit));
+    }
+
     private CustomerDto toDto(ShopCustomer c) {
         CustomerDto dto = new CustomerDto();
         dto.setId(c.getId());
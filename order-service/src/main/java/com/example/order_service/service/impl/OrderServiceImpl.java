@@ -1,77 +1,158 @@
 package com.example.order_service.service.impl;
 
+import com.example.order_service.client.InventoryClient;
+import com.example.order_service.client.PromotionClient;
 import com.example.order_service.dto.*;
 import com.example.order_service.entity.ShopOrder;
 import com.example.order_service.entity.ShopOrderDetail;
 import com.example.order_service.exception.NotFoundException;
+import com.example.order_service.outbox.OrderOutboxRelay;
+import com.example.order_service.repository.OrderDailyStatsJdbcRepository;
+import com.example.order_service.repository.OrderDetailJdbcRepository;
+import com.example.order_service.repository.OrderOutboxJdbcRepository;
 import com.example.order_service.repository.ShopOrderDetailRepository;
 import com.example.order_service.repository.ShopOrderRepository;
 import com.example.order_service.service.OrderService;
-import org.springframework.core.ParameterizedTypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
+@Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    // Giới hạn số id trong 1 câu IN khi nạp chi tiết
+    private static final int DETAIL_BATCH_SIZE = 1000;
+
     private final ShopOrderRepository orderRepo;
     private final ShopOrderDetailRepository detailRepo;
-    private final WebClient.Builder webClientBuilder;
+    private final OrderDetailJdbcRepository detailJdbcRepo;
+    private final PromotionClient promotionClient;
+    private final InventoryClient inventoryClient;
+    private final OrderOutboxJdbcRepository outboxRepo;
+    private final OrderDailyStatsJdbcRepository dailyStatsRepo;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
+    // Timeout của 1 lời gọi sang service khác
+    private final Duration remoteTimeout;
+    // Chốt chặn cuối cho cả nhóm gọi song song (nhánh voucher có 2 lời gọi nối tiếp)
+    private final Duration remoteDeadline;
+
+    @Value("${order.stats.rebuild-days:3}")
+    private int statsRebuildDays;
 
     public OrderServiceImpl(ShopOrderRepository orderRepo,
             ShopOrderDetailRepository detailRepo,
-            WebClient.Builder webClientBuilder) {
+            OrderDetailJdbcRepository detailJdbcRepo,
+            PromotionClient promotionClient,
+            InventoryClient inventoryClient,
+            OrderOutboxJdbcRepository outboxRepo,
+            OrderDailyStatsJdbcRepository dailyStatsRepo,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${order.remote.timeout-ms:2000}") long remoteTimeoutMs) {
         this.orderRepo = orderRepo;
         this.detailRepo = detailRepo;
-        this.webClientBuilder = webClientBuilder;
+        this.detailJdbcRepo = detailJdbcRepo;
+        this.promotionClient = promotionClient;
+        this.inventoryClient = inventoryClient;
+        this.outboxRepo = outboxRepo;
+        this.dailyStatsRepo = dailyStatsRepo;
+        this.objectMapper = objectMapper;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.remoteTimeout = Duration.ofMillis(remoteTimeoutMs);
+        this.remoteDeadline = Duration.ofMillis(2 * remoteTimeoutMs + 500);
     }
 
     @Override
     public OrderDto create(OrderRequest req) {
+        List<OrderDetailRequest> lines = req.getDetails() != null ? req.getDetails() : List.of();
 
         // TÍNH SUBTOTAL (tổng tiền hàng)
         double subtotal = 0.0;
-        if (req.getDetails() != null) {
-            for (OrderDetailRequest d : req.getDetails()) {
-                if (d.getUnitPrice() != null && d.getQuantity() != null) {
-                    subtotal += d.getUnitPrice().doubleValue() * d.getQuantity();
-                }
+        for (OrderDetailRequest d : lines) {
+            if (d.getUnitPrice() != null && d.getQuantity() != null) {
+                subtotal += d.getUnitPrice().doubleValue() * d.getQuantity();
             }
         }
 
-        // GỌI PROMOTION-SERVICE NẾU CÓ voucherCode
-        double discount = 0.0;
-
-        if (req.getVoucherCode() != null && !req.getVoucherCode().isBlank()) {
-            try {
-                ApiResponse<VoucherDto> res = webClientBuilder.build()
-                        .get()
-                        .uri("http://promotion-service/api/vouchers/code/{code}", req.getVoucherCode())
-                        .retrieve()
-                        .bodyToMono(new ParameterizedTypeReference<ApiResponse<VoucherDto>>() {
-                        })
-                        .block();
-
-                if (res != null && res.isSuccess()
-                        && res.getData() != null
-                        && res.getData().getDiscountAmount() != null) {
-                    discount = res.getData().getDiscountAmount();
-                }
-
-            } catch (Exception e) {
-                // nếu gọi fail thì coi như không có voucher
-                System.out.println("Call promotion-service error: " + e.getMessage());
+        // GỌI SONG SONG PROMOTION-SERVICE (voucher) VÀ INVENTORY-SERVICE (tồn kho), chưa mở transaction
+        //    voucher giới hạn lượt thì giữ lượt luôn trong cùng nhánh
+        //    mỗi nhánh có timeout + phương án dự phòng riêng: service chậm thì đơn vẫn tạo,
+        //    chỉ bỏ giảm giá / bỏ kiểm tra tồn
+        String redemptionKey = "order-voucher-" + UUID.randomUUID();
+        boolean hasVoucher = req.getVoucherCode() != null && !req.getVoucherCode().isBlank();
+        // Không rõ đã giữ lượt hay chưa: không giảm giá, saveOrder ghi outbox trả lượt theo key
+        AppliedVoucher voucherUnknown = hasVoucher
+                ? new AppliedVoucher(null, redemptionKey, false)
+                : AppliedVoucher.NONE;
+        Mono<AppliedVoucher> voucherBranch = lookupVoucher(req.getVoucherCode())
+                .flatMap(v -> applyVoucher(v, lines, req.getCustomerId(), redemptionKey))
+                .timeout(remoteTimeout.multipliedBy(2))
+                .onErrorResume(e -> {
+                    log.warn("[ORDER] Voucher {} skipped: {}", req.getVoucherCode(), e.toString());
+                    return Mono.just(voucherUnknown);
+                });
+        Mono<Optional<Map<Long, Integer>>> stockBranch = lookupStock(req.getStoreId(), lines)
+                .timeout(remoteTimeout)
+                .onErrorResume(e -> {
+                    log.warn("[ORDER] Stock check skipped: {}", e.toString());
+                    return Mono.just(Optional.empty());
+                });
+        Tuple2<AppliedVoucher, Optional<Map<Long, Integer>>> remote;
+        try {
+            remote = Mono.zip(voucherBranch, stockBranch).block(remoteDeadline);
+        } catch (RuntimeException e) {
+            // Chốt chặn cuối (các nhánh đã tự hết giờ trước đó): xử lý như cả 2 service đều lỗi
+            log.warn("[ORDER] Remote calls did not finish in {}: {}", remoteDeadline, e.getMessage());
+            remote = Tuples.of(voucherUnknown, Optional.empty());
+        }
+        AppliedVoucher applied = remote.getT1();
+        try {
+            return saveOrder(req, lines, subtotal, applied, remote.getT2());
+        } catch (RuntimeException e) {
+            // Đơn không tạo được: trả lượt voucher đã giữ
+            if (applied.redemptionKey() != null) {
+                releaseVoucherLater(applied.redemptionKey());
             }
+            throw e;
         }
+    }
+
+    private OrderDto saveOrder(OrderRequest req, List<OrderDetailRequest> lines, double subtotal,
+            AppliedVoucher applied, Optional<Map<Long, Integer>> stock) {
+        stock.ifPresent(s -> checkStock(s, lines));
 
         // Không cho giảm quá subtotal
-        if (discount > subtotal) {
-            discount = subtotal;
-        }
+        double discount = applied.voucher() != null ? discountOf(applied.voucher(), subtotal) : 0.0;
 
         // tiền hàng sau giảm
         double itemTotal = subtotal - discount;
@@ -105,74 +186,210 @@ public class OrderServiceImpl implements OrderService {
         // LƯU TỔNG TIỀN + GIẢM GIÁ
         order.setTotalAmount(finalTotal);
         order.setDiscountAmount(discount);
+        if (applied.voucher() != null) {
+            order.setVoucherCode(applied.voucher().getCode());
+            order.setVoucherRedemptionKey(applied.reserved() ? applied.redemptionKey() : null);
+        }
 
-        order = orderRepo.save(order);
-
-        // 3. lưu chi tiết
-        if (req.getDetails() != null) {
-            for (OrderDetailRequest d : req.getDetails()) {
+        // 3. lưu order + chi tiết (1 batch) + sự kiện xuất kho (outbox) trong 1 transaction;
+        //    relay gửi phiếu xuất sang inventory-service sau, không chờ ở đây
+        List<ShopOrderDetail> details = new ArrayList<>(lines.size());
+        ShopOrder saved = tx.execute(status -> {
+            ShopOrder o = orderRepo.save(order);
+            for (OrderDetailRequest d : lines) {
                 ShopOrderDetail detail = new ShopOrderDetail();
-                detail.setOrderId(order.getId());
+                detail.setOrderId(o.getId());
                 detail.setProductId(d.getProductId());
                 detail.setQuantity(d.getQuantity());
                 detail.setUnitPrice(d.getUnitPrice());
                 // nếu sau này muốn phân bổ discount xuống detail thì set thêm ở đây
-                detailRepo.save(detail);
+                details.add(detail);
+            }
+            detailJdbcRepo.insertAll(details);
+            dailyStatsRepo.add(new Timestamp(o.getOrderDate().getTime()), o.getOrderStatus(), 1,
+                    o.getTotalAmount(), o.getDiscountAmount());
+            enqueueInventoryExport(req, o.getId(), lines);
+            if (applied.redemptionKey() != null && !applied.reserved()) {
+                // Giữ lượt bị timeout: có thể promotion-service đã giữ, trả lại cho chắc
+                enqueueVoucherRelease(o.getId(), applied.redemptionKey());
             }
+            return o;
+        });
+
+        return toDto(saved, details);
+    }
+
+    private Mono<Optional<VoucherDto>> lookupVoucher(String code) {
+        if (code == null || code.isBlank()) {
+            return Mono.just(Optional.empty());
         }
+        return promotionClient.findVoucherByCode(code)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(e -> {
+                    // nếu gọi fail thì coi như không có voucher
+                    log.warn("[ORDER] Call promotion-service error: {}", e.getMessage());
+                    return Mono.just(Optional.empty());
+                });
+    }
 
-        // 3.2 GỌI INVENTORY-SERVICE TẠO PHIẾU XUẤT
-        try {
-            if (req.getDetails() != null && !req.getDetails().isEmpty()) {
-
-                InventoryExportRequest exportReq = new InventoryExportRequest();
-                exportReq.setStoreId(req.getStoreId());
-                exportReq.setUserId(req.getUserId());
-                exportReq.setOrderId(order.getId());
-                exportReq.setNote("Xuất kho cho đơn hàng #" + order.getId());
-
-                List<InventoryExportDetailRequest> exportDetails = req.getDetails().stream()
-                        .map(d -> {
-                            InventoryExportDetailRequest ed = new InventoryExportDetailRequest();
-                            ed.setProductId(d.getProductId());
-                            ed.setQuantity(d.getQuantity());
-                            ed.setUnitPrice(d.getUnitPrice());
-                            return ed;
-                        })
-                        .toList();
-                exportReq.setDetails(exportDetails);
-
-                ApiResponse<?> res = webClientBuilder.build()
-                        .post()
-                        .uri("http://inventory-service/api/exports")
-                        .bodyValue(exportReq)
-                        .retrieve()
-                        .bodyToMono(new ParameterizedTypeReference<ApiResponse<?>>() {
-                        })
-                        .block();
-
-                if (res == null || !res.isSuccess()) {
-                    System.out.println("Tạo phiếu xuất kho thất bại: " +
-                            (res != null ? res.getMessage() : "null response"));
-                }
+    /**
+     * Voucher hợp lệ thì áp; voucher giới hạn lượt (tổng / theo khách) phải giữ được lượt
+     * ở promotion-service mới được giảm giá
+     */
+    private Mono<AppliedVoucher> applyVoucher(Optional<VoucherDto> found, List<OrderDetailRequest> lines,
+            Long customerId, String key) {
+        if (found.isEmpty() || !isVoucherActive(found.get()) || !appliesTo(found.get(), lines)) {
+            return Mono.just(AppliedVoucher.NONE);
+        }
+        VoucherDto voucher = found.get();
+        if (voucher.getMaxUser() == null && voucher.getMaxPerCustomer() == null) {
+            return Mono.just(new AppliedVoucher(voucher, null, false));
+        }
+        return promotionClient.reserveRedemption(voucher.getCode(), customerId, key)
+                .map(reserved -> reserved ? new AppliedVoucher(voucher, key, true) : AppliedVoucher.NONE)
+                .onErrorResume(e -> {
+                    // Không rõ đã giữ hay chưa: không giảm giá, ghi nhớ key để trả lượt
+                    log.warn("[ORDER] Reserve voucher {} error: {}", voucher.getCode(), e.getMessage());
+                    return Mono.just(new AppliedVoucher(null, key, false));
+                });
+    }
+
+    /**
+     * @param voucher        voucher được áp (null = không giảm giá)
+     * @param redemptionKey  khóa giữ lượt đã gửi promotion-service (null = không cần giữ lượt)
+     * @param reserved       true nếu chắc chắn đã giữ được lượt
+     */
+    private record AppliedVoucher(VoucherDto voucher, String redemptionKey, boolean reserved) {
+        static final AppliedVoucher NONE = new AppliedVoucher(null, null, false);
+    }
+
+    private Mono<Optional<Map<Long, Integer>>> lookupStock(Long storeId, List<OrderDetailRequest> lines) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (OrderDetailRequest d : lines) {
+            if (d.getProductId() != null) {
+                productIds.add(d.getProductId());
             }
-        } catch (Exception e) {
-            System.out.println("Call inventory-service error: " + e.getMessage());
         }
+        if (storeId == null || productIds.isEmpty()) {
+            return Mono.just(Optional.empty());
+        }
+        return inventoryClient.getStock(storeId, productIds)
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    // inventory-service lỗi/chậm: không chặn đơn, phiếu xuất sẽ kiểm tra lại
+                    log.warn("[ORDER] Call inventory-service stock error: {}", e.getMessage());
+                    return Mono.just(Optional.empty());
+                });
+    }
 
-        // 4. load lại details từ DB
-        List<ShopOrderDetail> details = detailRepo.findByOrderId(order.getId());
-        return toDto(order, details);
+    private static boolean isVoucherActive(VoucherDto v) {
+        LocalDateTime now = LocalDateTime.now();
+        return v.getDiscountAmount() != null
+                && (v.getStartDate() == null || !v.getStartDate().isAfter(now))
+                && (v.getEndDate() == null || v.getEndDate().isAfter(now));
+    }
+
+    // Voucher gắn sản phẩm chỉ áp khi đơn có ít nhất 1 sản phẩm đó (như /api/vouchers/validate)
+    private static boolean appliesTo(VoucherDto v, List<OrderDetailRequest> lines) {
+        if (v.getProductIds() == null || v.getProductIds().isEmpty()) {
+            return true;
+        }
+        return lines.stream().anyMatch(d -> v.getProductIds().contains(d.getProductId()));
+    }
+
+    /**
+     * Số tiền giảm trên tổng tiền hàng, tính như /api/vouchers/validate: PERCENT là % của subtotal
+     * (làm tròn 2 chữ số), loại khác là số tiền cố định; không vượt quá subtotal
+     */
+    private static double discountOf(VoucherDto v, double subtotal) {
+        BigDecimal cartTotal = BigDecimal.valueOf(subtotal);
+        BigDecimal amount = BigDecimal.valueOf(v.getDiscountAmount());
+        BigDecimal discount = "PERCENT".equalsIgnoreCase(v.getType())
+                ? cartTotal.multiply(amount).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP)
+                : amount;
+        return discount.min(cartTotal).max(BigDecimal.ZERO).doubleValue();
+    }
+
+    private static void checkStock(Map<Long, Integer> stock, List<OrderDetailRequest> lines) {
+        Map<Long, Integer> required = new HashMap<>();
+        for (OrderDetailRequest d : lines) {
+            if (d.getProductId() != null && d.getQuantity() != null) {
+                required.merge(d.getProductId(), d.getQuantity(), Integer::sum);
+            }
+        }
+        required.forEach((productId, qty) -> {
+            int available = stock.getOrDefault(productId, 0);
+            if (available < qty) {
+                throw new IllegalStateException("Sản phẩm #" + productId + " không đủ tồn kho (còn "
+                        + available + ", cần " + qty + ")");
+            }
+        });
+    }
+
+    // PHIẾU XUẤT KHO: ghi vào outbox, OrderOutboxRelay gửi sang inventory-service (có retry)
+    private void enqueueInventoryExport(OrderRequest req, Long orderId, List<OrderDetailRequest> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        InventoryExportRequest exportReq = new InventoryExportRequest();
+        exportReq.setStoreId(req.getStoreId());
+        exportReq.setUserId(req.getUserId());
+        exportReq.setOrderId(orderId);
+        exportReq.setCustomerId(req.getCustomerId());
+        exportReq.setCustomerName(req.getShipName());
+        exportReq.setCustomerAddress(req.getShipAddress());
+        exportReq.setNote("Xuất kho cho đơn hàng #" + orderId);
+        exportReq.setItems(lines.stream()
+                .map(d -> {
+                    InventoryExportDetailRequest ed = new InventoryExportDetailRequest();
+                    ed.setProductId(d.getProductId());
+                    ed.setQuantity(d.getQuantity());
+                    ed.setUnitPrice(d.getUnitPrice());
+                    return ed;
+                })
+                .toList());
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(exportReq);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        outboxRepo.insert(OrderOutboxRelay.INVENTORY_EXPORT, orderId, "order-" + orderId + "-export",
+                payload, new Timestamp(System.currentTimeMillis()));
+    }
+
+    // TRẢ LƯỢT VOUCHER: ghi vào outbox, relay gọi promotion-service (có retry)
+    private void enqueueVoucherRelease(long orderId, String redemptionKey) {
+        try {
+            outboxRepo.insert(OrderOutboxRelay.VOUCHER_RELEASE, orderId, "voucher-release-" + redemptionKey,
+                    redemptionKey, new Timestamp(System.currentTimeMillis()));
+        } catch (DuplicateKeyException e) {
+            // Đã có sự kiện trả lượt cho key này: promotion-service trả theo key nên 1 lần là đủ
+        }
+    }
+
+    // Đơn không được lưu nên không có transaction nào để gắn sự kiện: ghi outbox riêng
+    private void releaseVoucherLater(String redemptionKey) {
+        try {
+            tx.executeWithoutResult(status -> enqueueVoucherRelease(0L, redemptionKey));
+        } catch (RuntimeException e) {
+            log.error("[ORDER] Failed to enqueue voucher release {}: {}", redemptionKey, e.getMessage());
+        }
     }
 
     @Override
     public List<OrderDto> getByCustomer(Long customerId) {
-        return orderRepo.findByCustomerId(customerId).stream()
-                .map(o -> {
-                    List<ShopOrderDetail> details = detailRepo.findByOrderId(o.getId());
-                    return toDto(o, details);
-                })
-                .toList();
+        return toDtos(orderRepo.findByCustomerIdOrderByOrderDateDescIdDesc(customerId), true);
+    }
+
+    @Override
+    public OrderPageDto getByCustomer(Long customerId, Date lastDate, Long lastId, int size, boolean summaryOnly) {
+        int limit = pageSize(size);
+        List<ShopOrder> orders = orderRepo.findByCustomerKeyset(customerId, lastDate, lastId,
+                PageRequest.of(0, limit + 1));
+        return toPage(orders, limit, summaryOnly);
     }
 
     @Override
@@ -186,6 +403,46 @@ public class OrderServiceImpl implements OrderService {
 
     // =================== helper =====================
 
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // orders lấy dư 1 dòng để biết còn trang sau hay không
+    private OrderPageDto toPage(List<ShopOrder> orders, int limit, boolean summaryOnly) {
+        boolean hasMore = orders.size() > limit;
+        List<ShopOrder> page = hasMore ? orders.subList(0, limit) : orders;
+
+        OrderPageDto dto = new OrderPageDto();
+        dto.setItems(toDtos(page, !summaryOnly));
+        dto.setHasMore(hasMore);
+        if (!page.isEmpty()) {
+            ShopOrder last = page.get(page.size() - 1);
+            dto.setNextLastDate(last.getOrderDate());
+            dto.setNextLastId(last.getId());
+        }
+        return dto;
+    }
+
+    /**
+     * Map danh sách đơn, nạp chi tiết của cả danh sách bằng findByOrderIdIn (theo lô)
+     * thay vì 1 câu cho mỗi đơn. withDetails = false: chỉ thông tin đơn, details = null.
+     */
+    private List<OrderDto> toDtos(List<ShopOrder> orders, boolean withDetails) {
+        if (!withDetails) {
+            return orders.stream().map(o -> toDto(o, null)).toList();
+        }
+        Map<Long, List<ShopOrderDetail>> detailsByOrder = new HashMap<>();
+        List<Long> ids = orders.stream().map(ShopOrder::getId).toList();
+        for (int i = 0; i < ids.size(); i += DETAIL_BATCH_SIZE) {
+            for (ShopOrderDetail d : detailRepo.findByOrderIdIn(ids.subList(i, Math.min(i + DETAIL_BATCH_SIZE, ids.size())))) {
+                detailsByOrder.computeIfAbsent(d.getOrderId(), k -> new ArrayList<>()).add(d);
+            }
+        }
+        return orders.stream()
+                .map(o -> toDto(o, detailsByOrder.getOrDefault(o.getId(), List.of())))
+                .toList();
+    }
+
     private OrderDto toDto(ShopOrder o, List<ShopOrderDetail> details) {
         OrderDto dto = new OrderDto();
         dto.setId(o.getId());
@@ -205,8 +462,9 @@ public class OrderServiceImpl implements OrderService {
         dto.setTotalAmount(o.getTotalAmount());
         dto.setDiscountAmount(o.getDiscountAmount());
 
-        List<OrderDetailDto> detailDtos = new ArrayList<>();
+        // details = null: danh sách dạng tóm tắt, không trả chi tiết
         if (details != null) {
+            List<OrderDetailDto> detailDtos = new ArrayList<>();
             for (ShopOrderDetail d : details) {
                 OrderDetailDto dd = new OrderDetailDto();
                 dd.setId(d.getId());
@@ -217,21 +475,42 @@ public class OrderServiceImpl implements OrderService {
                 dd.setDiscountAmount(d.getDiscountAmount());
                 detailDtos.add(dd);
             }
+            dto.setDetails(detailDtos);
         }
-        dto.setDetails(detailDtos);
         return dto;
     }
 
     @Override
+    @Transactional
     public OrderDto updateStatus(Long id, OrderStatusUpdateRequest req) {
-        ShopOrder order = orderRepo.findById(id)
-                .orElseThrow(() -> new NotFoundException("Order not found: " + id));
-
         String status = req.getStatus();
         if (status == null || status.isBlank()) {
             throw new IllegalArgumentException("Status is required");
         }
 
+        // Khóa dòng để 2 lần đổi trạng thái đồng thời không cùng trừ thống kê của trạng thái cũ
+        ShopOrder order = orderRepo.findByIdForUpdate(id)
+                .orElseThrow(() -> new NotFoundException("Order not found: " + id));
+
+        String oldStatus = order.getOrderStatus();
+        // Lượt voucher đã trả khi hủy, có thể đã bị người khác dùng: không mở lại đơn còn giữ giảm giá
+        if ("CANCELLED".equalsIgnoreCase(oldStatus) && !"CANCELLED".equalsIgnoreCase(status)
+                && order.getVoucherRedemptionKey() != null) {
+            throw new IllegalStateException("Order " + id + " used voucher " + order.getVoucherCode()
+                    + " whose redemption was released on cancel; create a new order instead");
+        }
+        if (!status.equals(oldStatus) && order.getOrderDate() != null) {
+            Timestamp orderDate = new Timestamp(order.getOrderDate().getTime());
+            dailyStatsRepo.add(orderDate, oldStatus, -1, order.getTotalAmount(), order.getDiscountAmount());
+            dailyStatsRepo.add(orderDate, status, 1, order.getTotalAmount(), order.getDiscountAmount());
+        }
+
+        // Hủy đơn: trả lượt voucher đã giữ (cùng transaction với đổi trạng thái)
+        if ("CANCELLED".equalsIgnoreCase(status) && !"CANCELLED".equalsIgnoreCase(oldStatus)
+                && order.getVoucherRedemptionKey() != null) {
+            enqueueVoucherRelease(order.getId(), order.getVoucherRedemptionKey());
+        }
+
         order.setOrderStatus(status);
         order.setUpdatedAt(new Date());
 
@@ -251,34 +530,48 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public List<OrderDto> search(Date from, Date to, String status) {
-        return orderRepo.findByOrderDateBetweenAndOrderStatus(from, to, status)
-                .stream()
-                .map(o -> {
-                    List<ShopOrderDetail> details = detailRepo.findByOrderId(o.getId());
-                    return toDto(o, details);
-                })
-                .toList();
+        return toDtos(orderRepo.findByOrderDateBetweenAndOrderStatusOrderByOrderDateDescIdDesc(from, to, status), true);
     }
 
     @Override
-    public OrderSummaryDto summary(Date from, Date to, String status) {
-        List<ShopOrder> orders = orderRepo.findByOrderDateBetweenAndOrderStatus(from, to, status);
-
-        OrderSummaryDto dto = new OrderSummaryDto();
-        dto.setTotalOrders(orders.size());
+    public OrderPageDto searchKeyset(Date from, Date to, String status,
+            Date lastDate, Long lastId, int size, boolean summaryOnly) {
+        int limit = pageSize(size);
+        List<ShopOrder> orders = orderRepo.searchKeyset(
+                status != null && !status.isBlank() ? status : null,
+                from, to, lastDate, lastId, PageRequest.of(0, limit + 1));
+        return toPage(orders, limit, summaryOnly);
+    }
 
-        double totalAmount = orders.stream()
-                .mapToDouble(o -> o.getTotalAmount() != null ? o.getTotalAmount() : 0.0)
-                .sum();
+    @Override
+    public OrderSummaryDto summary(LocalDate from, LocalDate to, String status) {
+        // Đọc từ bảng tổng hợp theo ngày: mỗi ngày 1 dòng / trạng thái, không quét shop_orders
+        return dailyStatsRepo.sum(from, to, blankToNull(status));
+    }
 
-        double totalDiscount = orders.stream()
-                .mapToDouble(o -> o.getDiscountAmount() != null ? o.getDiscountAmount() : 0.0)
-                .sum();
+    @Override
+    public List<OrderDailyStatDto> dailyStats(LocalDate from, LocalDate to, String status) {
+        return dailyStatsRepo.findDaily(from, to, blankToNull(status));
+    }
 
-        dto.setTotalAmount(java.math.BigDecimal.valueOf(totalAmount));
-        dto.setTotalDiscount(java.math.BigDecimal.valueOf(totalDiscount));
+    /**
+     * Đối soát bảng tổng hợp với shop_orders cho vài ngày gần nhất
+     * (bắt cả đơn bị sửa trực tiếp trong DB)
+     */
+    @Scheduled(cron = "${order.stats.rebuild-cron:0 10 3 * * *}")
+    public void rebuildRecentStats() {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(Math.max(0, statsRebuildDays - 1));
+        try {
+            Integer rows = tx.execute(status -> dailyStatsRepo.rebuild(from, to));
+            log.info("[STATS] Rebuilt order daily stats {}..{} ({} rows)", from, to, rows);
+        } catch (Exception e) {
+            log.error("[STATS] Failed to rebuild order daily stats", e);
+        }
+    }
 
-        return dto;
+    private static String blankToNull(String value) {
+        return value != null && !value.isBlank() ? value : null;
     }
 
 }
@@ -0,0 +1,19 @@
+-- Outbox: sự kiện cần gửi sang service khác, ghi cùng transaction với đơn hàng.
+-- Relay đọc các dòng PENDING đã tới hạn (next_attempt_at) và gửi đi, có retry/backoff.
+CREATE TABLE order_outbox (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type       VARCHAR(50)   NOT NULL,
+    aggregate_id     BIGINT        NOT NULL,
+    idempotency_key  VARCHAR(100)  NOT NULL,
+    payload          MEDIUMTEXT    NOT NULL,
+    status           VARCHAR(20)   NOT NULL DEFAULT 'PENDING',
+    attempts         INT           NOT NULL DEFAULT 0,
+    next_attempt_at  DATETIME(3)   NOT NULL,
+    last_error       VARCHAR(1000) NULL,
+    created_at       DATETIME(3)   NOT NULL,
+    sent_at          DATETIME(3)   NULL,
+    CONSTRAINT uk_order_outbox_idempotency_key UNIQUE (idempotency_key)
+);
+
+CREATE INDEX idx_order_outbox_status_next ON order_outbox(status, next_attempt_at);
+CREATE INDEX idx_order_outbox_aggregate ON order_outbox(aggregate_id);
@@ -0,0 +1,10 @@
+-- Index cho danh sách đơn hàng phân trang keyset (order_date DESC, order_id DESC)
+CREATE INDEX idx_orders_customer_date ON shop_orders(customers_id, order_date, order_id);
+CREATE INDEX idx_orders_status_date ON shop_orders(order_status, order_date, order_id);
+CREATE INDEX idx_orders_date ON shop_orders(order_date, order_id);
+
+-- Nạp chi tiết theo danh sách order_id
+CREATE INDEX idx_order_details_order_id ON shop_order_details(order_id);
+
+-- Lưu ý: MySQL không hỗ trợ IF NOT EXISTS cho CREATE INDEX.
+-- Index nào đã tồn tại thì bỏ qua lỗi của câu lệnh đó.
@@ -0,0 +1,18 @@
+-- Tổng hợp đơn hàng theo ngày (DATE(order_date)) và trạng thái.
+-- Cập nhật cộng dồn khi tạo đơn / đổi trạng thái; job hằng đêm đối soát lại vài ngày gần nhất.
+CREATE TABLE order_daily_stats (
+    stat_date       DATE           NOT NULL,
+    order_status    VARCHAR(50)    NOT NULL,
+    order_count     BIGINT         NOT NULL DEFAULT 0,
+    total_amount    DECIMAL(18, 2) NOT NULL DEFAULT 0,
+    total_discount  DECIMAL(18, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (stat_date, order_status)
+);
+
+-- Dữ liệu ban đầu từ các đơn đã có
+INSERT INTO order_daily_stats (stat_date, order_status, order_count, total_amount, total_discount)
+SELECT DATE(order_date), COALESCE(order_status, ''), COUNT(*),
+       COALESCE(SUM(total_amount), 0), COALESCE(SUM(discount_amount), 0)
+FROM shop_orders
+WHERE order_date IS NOT NULL
+GROUP BY DATE(order_date), COALESCE(order_status, '');
@@ -0,0 +1,5 @@
+-- Voucher đã áp cho đơn và khóa giữ lượt ở promotion-service (voucher giới hạn lượt dùng),
+-- dùng để trả lượt khi đơn bị hủy
+ALTER TABLE shop_orders
+    ADD COLUMN voucher_code VARCHAR(100) NULL,
+    ADD COLUMN voucher_redemption_key VARCHAR(100) NULL;
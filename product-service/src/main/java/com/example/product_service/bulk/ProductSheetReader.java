@@ -0,0 +1,142 @@
+package com.example.product_service.bulk;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Đọc file sản phẩm (CSV hoặc XLSX) từng dòng một, không nạp cả file vào bộ nhớ.
+ *
+ * Dòng đầu là tiêu đề; tên cột không phân biệt hoa thường, bỏ khoảng trắng/gạch
+ * ("Category Id", "category_id" đều thành "categoryid").
+ */
+public final class ProductSheetReader {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param rowNumber số dòng trong file (tính cả dòng tiêu đề, bắt đầu từ 1)
+         */
+        void row(long rowNumber, Map<String, String> cells);
+    }
+
+    private ProductSheetReader() {
+    }
+
+    public static String normalizeHeader(String header) {
+        if (header == null) {
+            return "";
+        }
+        return header.replace("\uFEFF", "").replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ROOT);
+    }
+
+    public static void readCsv(InputStream in, RowHandler handler) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setIgnoreEmptyLines(true)
+                .setTrim(true)
+                .build();
+        try (CSVParser parser = CSVParser.parse(reader, format)) {
+            Iterator<CSVRecord> records = parser.iterator();
+            if (!records.hasNext()) {
+                return;
+            }
+            List<String> headers = new ArrayList<>();
+            records.next().forEach(h -> headers.add(normalizeHeader(h)));
+            while (records.hasNext()) {
+                CSVRecord record = records.next();
+                Map<String, String> cells = new HashMap<>();
+                for (int i = 0; i < record.size() && i < headers.size(); i++) {
+                    cells.put(headers.get(i), record.get(i));
+                }
+                handler.row(record.getRecordNumber(), cells);
+            }
+        }
+    }
+
+    /**
+     * Đọc sheet đầu tiên bằng SAX (event API của POI), chỉ giữ bảng shared strings trong bộ nhớ
+     */
+    public static void readXlsx(Path file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                        new SheetHandler(handler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IllegalArgumentException("File XLSX không hợp lệ: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class SheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final Map<Integer, String> headers = new HashMap<>();
+        private Map<String, String> cells;
+        private int rowIndex;
+
+        SheetHandler(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            rowIndex = rowNum;
+            cells = new HashMap<>();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum == 0 || cells.isEmpty()) {
+                return;
+            }
+            handler.row(rowNum + 1L, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = new CellReference(cellReference).getCol();
+            String value = formattedValue != null ? formattedValue.trim() : "";
+            if (rowIndex == 0) {
+                headers.put(col, normalizeHeader(value));
+            } else if (headers.containsKey(col) && !value.isEmpty()) {
+                cells.put(headers.get(col), value);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.product_service.bulk;
+
+import com.example.product_service.dto.ProductDto;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Ghi danh sách sản phẩm ra CSV/XLSX theo cùng bộ cột mà import đọc được
+ */
+public interface ProductSheetWriter {
+
+    List<String> COLUMNS = List.of("code", "name", "shortDescription", "image", "unitPrice",
+            "status", "categoryId", "unitId", "supplierIds", "categoryName", "unitName");
+
+    void write(ProductDto p) throws IOException;
+
+    void finish() throws IOException;
+
+    static ProductSheetWriter csv(OutputStream out) throws IOException {
+        OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        // BOM để Excel mở đúng tiếng Việt
+        writer.write('\uFEFF');
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
+        printer.printRecord(COLUMNS);
+        return new ProductSheetWriter() {
+            @Override
+            public void write(ProductDto p) throws IOException {
+                printer.printRecord(values(p));
+            }
+
+            @Override
+            public void finish() throws IOException {
+                printer.flush();
+            }
+        };
+    }
+
+    /**
+     * XLSX dạng streaming: chỉ giữ 200 dòng gần nhất trong bộ nhớ, phần còn lại ghi ra file tạm
+     */
+    static ProductSheetWriter xlsx(OutputStream out) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(200);
+        workbook.setCompressTempFiles(true);
+        Sheet sheet = workbook.createSheet("products");
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            header.createCell(i).setCellValue(COLUMNS.get(i));
+        }
+        return new ProductSheetWriter() {
+            private int rowNum = 1;
+
+            @Override
+            public void write(ProductDto p) {
+                Row row = sheet.createRow(rowNum++);
+                List<Object> values = values(p);
+                for (int i = 0; i < values.size(); i++) {
+                    Object v = values.get(i);
+                    if (v instanceof Number n) {
+                        row.createCell(i).setCellValue(n.doubleValue());
+                    } else if (v != null) {
+                        row.createCell(i).setCellValue(v.toString());
+                    }
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                try {
+                    workbook.write(out);
+                } finally {
+                    workbook.close();
+                }
+            }
+        };
+    }
+
+    private static List<Object> values(ProductDto p) {
+        String supplierIds = p.getSupplierIds() == null ? null
+                : p.getSupplierIds().stream().map(String::valueOf).collect(Collectors.joining(";"));
+        return Arrays.asList(p.getCode(), p.getName(), p.getShortDescription(), p.getImage(),
+                p.getUnitPrice(), p.getStatus(), p.getCategoryId(), p.getUnitId(), supplierIds,
+                p.getCategoryName(), p.getUnitName());
+    }
+}
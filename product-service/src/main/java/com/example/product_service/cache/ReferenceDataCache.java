@@ -0,0 +1,141 @@
+package com.example.product_service.cache;
+
+import com.example.product_service.common.TransactionHooks;
+import com.example.product_service.entity.ShopCategory;
+import com.example.product_service.entity.ShopProductUnit;
+import com.example.product_service.entity.ShopSupplier;
+import com.example.product_service.repository.ShopCategoryRepository;
+import com.example.product_service.repository.ShopProductUnitRepository;
+import com.example.product_service.repository.ShopSupplierRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cache toàn bộ bảng danh mục, đơn vị tính và nhà cung cấp trong bộ nhớ.
+ *
+ * Các bảng này rất nhỏ và ít thay đổi nên giữ nguyên bản copy, đọc không khóa
+ * (chỉ đọc 1 tham chiếu volatile). Mỗi lần ghi qua service gọi {@link #invalidate()}
+ * để tăng version; lần đọc kế tiếp sẽ nạp lại snapshot mới và thay thế nguyên khối.
+ */
+@Component
+@Slf4j
+public class ReferenceDataCache {
+
+    private final ShopCategoryRepository categoryRepo;
+    private final ShopProductUnitRepository unitRepo;
+    private final ShopSupplierRepository supplierRepo;
+    private final TransactionTemplate readTx;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    // Version mong muốn: tăng mỗi lần có ghi, snapshot cũ hơn sẽ bị nạp lại
+    private final AtomicLong writeVersion = new AtomicLong(1);
+    private final Object reloadLock = new Object();
+
+    public ReferenceDataCache(ShopCategoryRepository categoryRepo,
+            ShopProductUnitRepository unitRepo,
+            ShopSupplierRepository supplierRepo,
+            PlatformTransactionManager transactionManager) {
+        this.categoryRepo = categoryRepo;
+        this.unitRepo = unitRepo;
+        this.supplierRepo = supplierRepo;
+        // Nạp trong transaction riêng để entity trả về luôn ở trạng thái detached
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTx.setReadOnly(true);
+    }
+
+    /**
+     * Snapshot hiện tại. Chỉ khóa khi snapshot đã cũ và cần nạp lại.
+     */
+    public Snapshot snapshot() {
+        Snapshot snap = current.get();
+        if (snap != null && snap.version() >= writeVersion.get()) {
+            return snap;
+        }
+        synchronized (reloadLock) {
+            snap = current.get();
+            long target = writeVersion.get();
+            if (snap != null && snap.version() >= target) {
+                return snap;
+            }
+            Snapshot loaded = load(target);
+            return current.updateAndGet(old -> old == null || old.version() < loaded.version() ? loaded : old);
+        }
+    }
+
+    public ShopCategory category(Long id) {
+        return id == null ? null : snapshot().categories().get(id);
+    }
+
+    public ShopProductUnit unit(Long id) {
+        return id == null ? null : snapshot().units().get(id);
+    }
+
+    public ShopSupplier supplier(Long id) {
+        return id == null ? null : snapshot().suppliers().get(id);
+    }
+
+    /**
+     * Đánh dấu cache cũ. Nếu đang trong transaction thì chỉ tăng version sau khi commit,
+     * tránh nạp dữ liệu chưa commit (hoặc sẽ bị rollback) vào cache.
+     */
+    public void invalidate() {
+        TransactionHooks.afterCommit(writeVersion::incrementAndGet);
+    }
+
+    private Snapshot load(long version) {
+        Snapshot snap = readTx.execute(status -> {
+            Map<Long, ShopCategory> categories = new LinkedHashMap<>();
+            categoryRepo.findAll().forEach(c -> categories.put(c.getId(), c));
+
+            Map<Long, ShopProductUnit> units = new LinkedHashMap<>();
+            unitRepo.findAll(Sort.by(Sort.Direction.ASC, "name")).forEach(u -> units.put(u.getId(), u));
+
+            Map<Long, ShopSupplier> suppliers = new LinkedHashMap<>();
+            supplierRepo.findAll().forEach(s -> suppliers.put(s.getId(), s));
+
+            return new Snapshot(version,
+                    Collections.unmodifiableMap(categories),
+                    Collections.unmodifiableMap(units),
+                    Collections.unmodifiableMap(suppliers),
+                    etagOf(categories, units, suppliers));
+        });
+        log.info("[REF-DATA] Loaded version {}: {} categories, {} units, {} suppliers",
+                version, snap.categories().size(), snap.units().size(), snap.suppliers().size());
+        return snap;
+    }
+
+    // ETag theo nội dung (không theo version) để các instance khác nhau cho cùng giá trị
+    private static String etagOf(Map<Long, ShopCategory> categories,
+            Map<Long, ShopProductUnit> units,
+            Map<Long, ShopSupplier> suppliers) {
+        List<Object> parts = List.of(
+                List.copyOf(categories.values()),
+                List.copyOf(units.values()),
+                List.copyOf(suppliers.values()));
+        return "\"ref-" + Integer.toHexString(parts.hashCode()) + "\"";
+    }
+
+    /**
+     * Bản copy bất biến của 3 bảng tham chiếu, giữ thứ tự như các API list hiện có.
+     * Không được sửa các entity bên trong.
+     */
+    public record Snapshot(
+            long version,
+            Map<Long, ShopCategory> categories,
+            Map<Long, ShopProductUnit> units,
+            Map<Long, ShopSupplier> suppliers,
+            String etag) {
+    }
+}
@@ -2,25 +2,18 @@ package com.example.product_service.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Map URL /uploads/** to uploads/ folder
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/")
-                .setCachePeriod(3600); // Cache 1 hour
-    }
+    // Ảnh /uploads/products/** do ProductImageController phục vụ từ {file.upload-dir}
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/uploads/**")
                 .allowedOriginPatterns("*")
-                .allowedMethods("GET", "OPTIONS")
+                .allowedMethods("GET", "HEAD", "OPTIONS")
                 .allowedHeaders("*")
                 .allowCredentials(false); // Public files không cần credentials
     }
@@ -0,0 +1,197 @@
+package com.example.product_service.controller;
+
+import com.example.product_service.storage.ImageDerivativeService;
+import com.example.product_service.storage.ProductImageStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Phục vụ ảnh sản phẩm đã upload (/uploads/products/{file}).
+ *
+ * Tên file là UUID/hash không bao giờ bị ghi đè, nên:
+ * - ETag mạnh = tên file, Cache-Control immutable 1 năm (trình duyệt không hỏi lại)
+ * - Hỗ trợ HEAD, If-None-Match (304) và Range 1 đoạn (206)
+ * - Body gửi bằng sendfile của Tomcat (zero-copy), nếu không có thì FileChannel.transferTo
+ * - Ảnh thu nhỏ (_thumb/_medium) chưa sinh xong thì trả tạm ảnh gốc, không cache
+ */
+@RestController
+@RequestMapping("/uploads/products")
+public class ProductImageController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Request attribute của Tomcat để gửi file bằng sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ProductImageStorage storage;
+    private final ImageDerivativeService derivatives;
+
+    public ProductImageController(ProductImageStorage storage, ImageDerivativeService derivatives) {
+        this.storage = storage;
+        this.derivatives = derivatives;
+    }
+
+    @RequestMapping(value = "/{fileName:.+}", method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void serve(@PathVariable String fileName,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<Path> resolved = storage.resolve(fileName);
+        if (resolved.isPresent()) {
+            send(resolved.get(), "\"" + fileName + "\"", request, response);
+            return;
+        }
+
+        // Biến thể chưa có (ảnh cũ hoặc đang xử lý): xếp hàng sinh và trả ảnh gốc không cache
+        Optional<Path> original = storage.findOriginalOfVariant(fileName);
+        if (original.isPresent()) {
+            derivatives.submit(original.get());
+            send(original.get(), null, request, response);
+            return;
+        }
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    /**
+     * @param etag null nếu nội dung là tạm thời (không cho cache)
+     */
+    private void send(Path file, String etag,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, Files.getLastModifiedTime(file).toMillis());
+
+        if (etag != null && matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || (etag != null && ifRange.equals(etag)))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat tự gửi file qua sendfile sau khi servlet trả về
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || c.equals(etag) || c.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chỉ hỗ trợ 1 đoạn "bytes=a-b", "bytes=a-", "bytes=-n".
+     *
+     * @return {start, end}; mảng rỗng nếu bỏ qua Range (trả cả file); null nếu đoạn không hợp lệ (416)
+     */
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.contains(",")) {
+            return new long[0];
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (from.isEmpty()) {
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(from);
+                end = to.isEmpty() ? length - 1 : Math.min(Long.parseLong(to), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
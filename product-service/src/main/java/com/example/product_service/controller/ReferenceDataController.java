@@ -0,0 +1,48 @@
+package com.example.product_service.controller;
+
+import com.example.product_service.cache.ReferenceDataCache;
+import com.example.product_service.common.ApiResponse;
+import com.example.product_service.dto.ReferenceDataDto;
+import com.example.product_service.service.ShopCategoryService;
+import com.example.product_service.service.ShopProductUnitService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reference-data")
+@RequiredArgsConstructor
+public class ReferenceDataController {
+
+    private final ReferenceDataCache referenceData;
+    private final ShopCategoryService categoryService;
+    private final ShopProductUnitService unitService;
+
+    /**
+     * Lấy danh mục + đơn vị tính + NCC trong 1 request.
+     * Client gửi lại If-None-Match, nếu dữ liệu không đổi trả 304 không body.
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<ReferenceDataDto>> getAll(WebRequest request) {
+        ReferenceDataCache.Snapshot snap = referenceData.snapshot();
+        if (request.checkNotModified(snap.etag())) {
+            return null;
+        }
+
+        ReferenceDataDto dto = new ReferenceDataDto();
+        dto.setVersion(snap.version());
+        // Body dựng từ cùng snapshot với ETag: cache nạp lại giữa chừng cũng không lệch phiên bản
+        dto.setCategories(categoryService.getAll(snap));
+        dto.setUnits(unitService.getAll(snap));
+        dto.setSuppliers(List.copyOf(snap.suppliers().values()));
+
+        return ResponseEntity.ok()
+                .eTag(snap.etag())
+                .body(ApiResponse.ok(dto));
+    }
+}
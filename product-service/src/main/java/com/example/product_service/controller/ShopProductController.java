@@ -1,28 +1,43 @@
 package com.example.product_service.controller;
 
 import com.example.product_service.common.ApiResponse;
+import com.example.product_service.dto.DiscountRequest;
+import com.example.product_service.dto.EffectivePriceDto;
+import com.example.product_service.dto.ProductChangesDto;
 import com.example.product_service.dto.ProductDto;
+import com.example.product_service.dto.ProductImportResultDto;
 import com.example.product_service.dto.ProductRequest;
 import com.example.product_service.entity.ShopProductDiscount;
 import com.example.product_service.entity.ShopProductImage;
+import com.example.product_service.service.EffectivePriceService;
+import com.example.product_service.service.ProductBulkService;
 import com.example.product_service.service.ShopProductDiscountService;
+import com.example.product_service.service.ProductImageFileService;
 import com.example.product_service.service.ShopProductImageService;
 import com.example.product_service.service.ShopProductService;
+import com.example.product_service.storage.ImageDerivativeService;
+import com.example.product_service.storage.ProductImageStorage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/products")
@@ -31,17 +46,36 @@ public class ShopProductController {
     private final ShopProductService productService;
     private final ShopProductImageService imageService;
     private final ShopProductDiscountService discountService;
-
-    // Thư mục lưu ảnh trên server / container
-    private final Path uploadDir = Paths.get("uploads/products");
+    private final ProductImageStorage imageStorage;
+    private final ImageDerivativeService imageDerivatives;
+    private final ProductImageFileService imageFileService;
+    private final ProductBulkService bulkService;
+    private final EffectivePriceService effectivePrices;
+    private final ObjectMapper objectMapper;
+    // Không flush sau mỗi sản phẩm, để buffer của generator gom lại
+    private final ObjectWriter productWriter;
 
     public ShopProductController(
             ShopProductService productService,
             ShopProductImageService imageService,
-            ShopProductDiscountService discountService) {
+            ShopProductDiscountService discountService,
+            ProductImageStorage imageStorage,
+            ImageDerivativeService imageDerivatives,
+            ProductImageFileService imageFileService,
+            ProductBulkService bulkService,
+            EffectivePriceService effectivePrices,
+            ObjectMapper objectMapper) {
         this.productService = productService;
         this.imageService = imageService;
         this.discountService = discountService;
+        this.imageStorage = imageStorage;
+        this.imageDerivatives = imageDerivatives;
+        this.imageFileService = imageFileService;
+        this.bulkService = bulkService;
+        this.effectivePrices = effectivePrices;
+        this.objectMapper = objectMapper;
+        this.productWriter = objectMapper.writerFor(ProductDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     // =======================
@@ -61,9 +95,90 @@ public class ShopProductController {
     // CRUD PRODUCT
     // =======================
 
+    /**
+     * Toàn bộ catalog, stream từng dòng ra JSON (cùng format ApiResponse như trước).
+     * Có ETag: client gửi If-None-Match, catalog không đổi thì trả 304 không body.
+     */
     @GetMapping
-    public ApiResponse<List<ProductDto>> getAll() {
-        return ApiResponse.ok(productService.getAll());
+    public ResponseEntity<StreamingResponseBody> getAll(WebRequest request) {
+        String etag = productService.catalogEtag();
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeBooleanField("success", true);
+                gen.writeNullField("message");
+                gen.writeArrayFieldStart("data");
+                productService.forEachProduct(dto -> {
+                    try {
+                        productWriter.writeValue(gen, dto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag);
+        } else {
+            // Bảng giá đang nạp: body còn thiếu giảm giá, không cho cache
+            response.cacheControl(CacheControl.noStore());
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Change feed cho consumer giữ bản copy catalog: lần đầu bỏ since (đọc từ đầu),
+     * các lần sau truyền nextCursor của lần trước. hasMore = true thì gọi tiếp ngay.
+     */
+    @GetMapping("/changes")
+    public ApiResponse<ProductChangesDto> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > 5000) {
+            throw new IllegalArgumentException("limit phải trong khoảng 1..5000");
+        }
+        return ApiResponse.ok(productService.getChanges(since, limit));
+    }
+
+    /**
+     * Thêm sản phẩm hàng loạt từ file CSV/XLSX (dòng đầu là tiêu đề cột, cùng bộ cột với /export)
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ApiResponse<ProductImportResultDto> importProducts(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File rỗng");
+        }
+        ProductImportResultDto result = bulkService.importProducts(file);
+        return ApiResponse.ok("Imported " + result.getImported() + "/" + result.getTotalRows(), result);
+    }
+
+    /**
+     * Xuất toàn bộ catalog ra file (stream, không build cả file trong bộ nhớ)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        if (!xlsx && !"csv".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("format phải là csv hoặc xlsx");
+        }
+        MediaType type = xlsx
+                ? MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                : new MediaType("text", "csv", StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + (xlsx ? "xlsx" : "csv") + "\"")
+                .contentType(type)
+                .body(out -> bulkService.exportProducts(format, out));
     }
 
     @GetMapping("/{id:\\d+}")
@@ -103,6 +218,37 @@ public class ShopProductController {
         return ApiResponse.ok(discountService.findByProduct(productId));
     }
 
+    @PostMapping("/{productId}/discounts")
+    public ApiResponse<ShopProductDiscount> createDiscount(@PathVariable Long productId,
+            @RequestBody DiscountRequest request) {
+        return ApiResponse.ok("Created", discountService.create(productId, request));
+    }
+
+    @PutMapping("/{productId}/discounts/{discountId}")
+    public ApiResponse<ShopProductDiscount> updateDiscount(@PathVariable Long productId,
+            @PathVariable Long discountId,
+            @RequestBody DiscountRequest request) {
+        return ApiResponse.ok("Updated", discountService.update(productId, discountId, request));
+    }
+
+    @DeleteMapping("/{productId}/discounts/{discountId}")
+    public ApiResponse<Void> deleteDiscount(@PathVariable Long productId, @PathVariable Long discountId) {
+        discountService.delete(productId, discountId);
+        return ApiResponse.ok("Deleted", null);
+    }
+
+    /**
+     * Giá bán hiện hành của nhiều sản phẩm trong 1 lần gọi (tính giá giỏ hàng):
+     * GET /api/products/prices?ids=1,2,3
+     */
+    @GetMapping("/prices")
+    public ApiResponse<List<EffectivePriceDto>> getPrices(@RequestParam List<Long> ids) {
+        if (ids.size() > 1000) {
+            throw new IllegalArgumentException("Tối đa 1000 sản phẩm mỗi lần");
+        }
+        return ApiResponse.ok(effectivePrices.getAll(ids));
+    }
+
     // =======================
     // UPLOAD IMAGE
     // =======================
@@ -113,32 +259,12 @@ public class ShopProductController {
             throw new IllegalArgumentException("File rỗng");
         }
 
-        try {
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
-            String originalName = file.getOriginalFilename();
-            String ext = "";
-            if (originalName != null) {
-                int dot = originalName.lastIndexOf('.');
-                if (dot >= 0) {
-                    ext = originalName.substring(dot);
-                }
-            }
-
-            String newName = UUID.randomUUID() + ext;
-            Path target = uploadDir.resolve(newName);
+        // Lưu theo hash nội dung: ảnh đã upload trước đó thì trả lại file cũ ngay
+        String fileName = imageFileService.store(file);
+        // Resize chạy nền, không giữ request chờ
+        imageDerivatives.submit(imageStorage.root().resolve(fileName));
 
-            Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-
-            // FE sẽ tự build domain dựa vào API Gateway
-            String storedUrl = "/uploads/products/" + newName;
-
-            return ApiResponse.ok("Uploaded", storedUrl);
-
-        } catch (IOException e) {
-            throw new RuntimeException("Không lưu được file ảnh", e);
-        }
+        // FE sẽ tự build domain dựa vào API Gateway
+        return ApiResponse.ok("Uploaded", imageStorage.urlOf(fileName));
     }
 }
@@ -0,0 +1,15 @@
+package com.example.product_service.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class DiscountRequest {
+    private String discountName;
+    private BigDecimal discountAmount; // giảm số tiền
+    private BigDecimal discountPercent; // giảm % (0..100)
+    private LocalDateTime startDate; // null = hiệu lực ngay
+    private LocalDateTime endDate; // null = không hết hạn
+}
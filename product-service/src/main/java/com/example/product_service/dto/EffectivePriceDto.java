@@ -0,0 +1,23 @@
+package com.example.product_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Giá bán hiện hành của 1 sản phẩm (đã áp giảm giá tốt nhất đang hiệu lực)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EffectivePriceDto {
+    private Long productId;
+    private BigDecimal basePrice; // đơn giá gốc
+    private BigDecimal effectivePrice; // giá sau giảm
+    private Long discountId; // giảm giá đang áp dụng, null nếu không có
+    private String discountName;
+    private LocalDateTime validUntil; // giá có thể đổi từ thời điểm này (null = không có mốc)
+}
@@ -0,0 +1,17 @@
+package com.example.product_service.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 1 trang của change feed sản phẩm
+ */
+@Data
+public class ProductChangesDto {
+    private List<ProductDto> upserts; // thêm mới / cập nhật, theo (updatedAt, id)
+    private List<Long> deletions; // id sản phẩm đã xóa, theo thứ tự xóa
+    private String nextCursor; // truyền lại vào ?since= cho lần gọi sau
+    private boolean hasMore; // còn thay đổi, gọi tiếp ngay với nextCursor
+    private boolean resyncRequired; // cursor quá cũ, phải đồng bộ lại từ đầu (bỏ since)
+}
@@ -13,7 +13,11 @@ public class ProductDto {
     private String name;
     private String shortDescription;
     private String image;
+    private String imageThumb; // ảnh nhỏ cho danh sách (200px)
+    private String imageMedium; // ảnh vừa cho trang chi tiết (800px)
     private BigDecimal unitPrice;
+    private BigDecimal effectivePrice; // giá bán sau giảm giá đang hiệu lực
+    private String discountName; // giảm giá đang áp dụng (null nếu không có)
     private String status;
     private Long categoryId;
     private Long supplierId; // NCC chính (tương thích ngược)
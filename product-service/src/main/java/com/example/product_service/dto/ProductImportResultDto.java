@@ -0,0 +1,24 @@
+package com.example.product_service.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết quả import sản phẩm hàng loạt
+ */
+@Data
+public class ProductImportResultDto {
+    private long totalRows; // số dòng dữ liệu đã đọc (không tính tiêu đề)
+    private long imported;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>(); // tối đa 500 lỗi đầu tiên
+    private long durationMs;
+
+    @Data
+    public static class RowError {
+        private final long row; // số dòng trong file (dòng tiêu đề = 1)
+        private final String message;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.product_service.dto;
+
+import com.example.product_service.entity.ShopSupplier;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Toàn bộ dữ liệu tham chiếu (danh mục, đơn vị tính, NCC) trả về trong 1 lần gọi
+ */
+@Data
+public class ReferenceDataDto {
+    private long version;
+    private List<CategoryDto> categories;
+    private List<UnitDto> units;
+    private List<ShopSupplier> suppliers;
+}
@@ -0,0 +1,40 @@
+package com.example.product_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * File ảnh sản phẩm đã upload, định danh theo SHA-256 của nội dung
+ */
+@Entity
+@Table(name = "product_image_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImageFile {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    // Số chỗ đang trỏ tới file này (ảnh chính của sản phẩm + ảnh gallery)
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    // Lần cuối ref_count về 0 (hoặc lần cuối được upload lại), tính thời gian chờ trước khi dọn
+    @Column(name = "released_at")
+    private Date releasedAt;
+}
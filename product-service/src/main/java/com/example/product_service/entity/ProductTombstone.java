@@ -0,0 +1,30 @@
+package com.example.product_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Dấu vết sản phẩm đã xóa, dùng cho change feed (consumer cần biết để xóa bản copy)
+ */
+@Entity
+@Table(name = "product_tombstones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "tombstone_id")
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Date deletedAt;
+}
@@ -0,0 +1,148 @@
+package com.example.product_service.repository;
+
+import com.example.product_service.dto.EffectivePriceDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Bảng product_effective_prices: đọc/ghi theo batch bằng JDBC
+ */
+@Repository
+public class EffectivePriceJdbcRepository {
+
+    private static final String SELECT_SQL = "SELECT product_id, base_price, effective_price, discount_id, "
+            + "discount_name, valid_until, computed_at FROM product_effective_prices ";
+
+    private static final String UPSERT_SQL = "INSERT INTO product_effective_prices "
+            + "(product_id, base_price, effective_price, discount_id, discount_name, valid_until, computed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE base_price = VALUES(base_price), effective_price = VALUES(effective_price), "
+            + "discount_id = VALUES(discount_id), discount_name = VALUES(discount_name), "
+            + "valid_until = VALUES(valid_until), computed_at = VALUES(computed_at)";
+
+    private static final RowMapper<EffectivePriceDto> MAPPER = (rs, i) -> {
+        long discountId = rs.getLong("discount_id");
+        boolean noDiscount = rs.wasNull();
+        Timestamp validUntil = rs.getTimestamp("valid_until");
+        return new EffectivePriceDto(
+                rs.getLong("product_id"),
+                rs.getBigDecimal("base_price"),
+                rs.getBigDecimal("effective_price"),
+                noDiscount ? null : discountId,
+                rs.getString("discount_name"),
+                validUntil != null ? validUntil.toLocalDateTime() : null);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public EffectivePriceJdbcRepository(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public Map<Long, EffectivePriceDto> findByProductIds(Collection<Long> productIds) {
+        Map<Long, EffectivePriceDto> result = new LinkedHashMap<>();
+        if (productIds.isEmpty()) {
+            return result;
+        }
+        namedJdbc.query(SELECT_SQL + "WHERE product_id IN (:ids)",
+                new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    EffectivePriceDto dto = MAPPER.mapRow(rs, 0);
+                    result.put(dto.getProductId(), dto);
+                });
+        return result;
+    }
+
+    /**
+     * Các dòng được tính lại từ thời điểm since (kể cả do instance khác ghi)
+     */
+    public void forEachComputedSince(Timestamp since, Consumer<EffectivePriceDto> consumer) {
+        streamingJdbcTemplate.query(SELECT_SQL + "WHERE computed_at >= ?",
+                rs -> {
+                    consumer.accept(MAPPER.mapRow(rs, 0));
+                }, since);
+    }
+
+    /**
+     * Sản phẩm đã tới mốc valid_until (giảm giá vừa bắt đầu hoặc kết thúc)
+     */
+    public List<Long> findDueProductIds(LocalDateTime now, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT product_id FROM product_effective_prices WHERE valid_until <= ? LIMIT ?",
+                Long.class, Timestamp.valueOf(now), limit);
+    }
+
+    public Map<Long, BigDecimal> findBasePrices(Collection<Long> productIds) {
+        Map<Long, BigDecimal> result = new LinkedHashMap<>();
+        if (productIds.isEmpty()) {
+            return result;
+        }
+        namedJdbc.query("SELECT products_id, unit_price FROM shop_products WHERE products_id IN (:ids)",
+                new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    result.put(rs.getLong(1), rs.getBigDecimal(2));
+                });
+        return result;
+    }
+
+    public void streamBasePrices(BiConsumer<Long, BigDecimal> consumer) {
+        streamingJdbcTemplate.query("SELECT products_id, unit_price FROM shop_products ORDER BY products_id",
+                rs -> {
+                    consumer.accept(rs.getLong(1), rs.getBigDecimal(2));
+                });
+    }
+
+    public void upsert(Collection<EffectivePriceDto> prices, Timestamp computedAt) {
+        if (prices.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, prices, 1000, (ps, p) -> {
+            ps.setLong(1, p.getProductId());
+            ps.setBigDecimal(2, p.getBasePrice());
+            ps.setBigDecimal(3, p.getEffectivePrice());
+            if (p.getDiscountId() != null) {
+                ps.setLong(4, p.getDiscountId());
+            } else {
+                ps.setNull(4, Types.BIGINT);
+            }
+            ps.setString(5, p.getDiscountName());
+            ps.setTimestamp(6, p.getValidUntil() != null ? Timestamp.valueOf(p.getValidUntil()) : null);
+            ps.setTimestamp(7, computedAt);
+        });
+    }
+
+    public void deleteByProductId(Long productId) {
+        jdbcTemplate.update("DELETE FROM product_effective_prices WHERE product_id = ?", productId);
+    }
+
+    /**
+     * Giá bán đổi thì sản phẩm coi như đã sửa: change feed và ETag catalog nhận ra thay đổi
+     */
+    public void touchProducts(Collection<Long> productIds, Timestamp now) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        namedJdbc.update("UPDATE shop_products SET updated_at = :now WHERE products_id IN (:ids)",
+                new MapSqlParameterSource("ids", productIds).addValue("now", now));
+    }
+}
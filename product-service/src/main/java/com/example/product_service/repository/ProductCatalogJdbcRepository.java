@@ -0,0 +1,227 @@
+package com.example.product_service.repository;
+
+import com.example.product_service.entity.ProductSupplier;
+import com.example.product_service.entity.ShopProduct;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Đọc toàn bộ catalog sản phẩm bằng JDBC cursor (MySQL streaming result set),
+ * từng dòng được đẩy ra ngay, không giữ cả danh sách trong bộ nhớ.
+ * Kèm các thao tác ghi theo batch dùng cho import hàng loạt.
+ */
+@Repository
+public class ProductCatalogJdbcRepository {
+
+    private static final String SELECT_SQL = "SELECT p.products_id, p.product_code, p.product_name, p.short_description, "
+            + "p.image, p.unit_price, p.status, p.category_id, p.supplier_id, p.supplier_ids, p.unit_id, "
+            + "p.created_at, p.updated_at, "
+            + "(SELECT GROUP_CONCAT(CONCAT(ps.supplier_id, ':', IFNULL(ps.is_primary, 0)) ORDER BY ps.id SEPARATOR ',') "
+            + " FROM product_suppliers ps WHERE ps.product_id = p.products_id) AS suppliers "
+            + "FROM shop_products p ";
+
+    private static final String STREAM_SQL = SELECT_SQL + "ORDER BY p.products_id";
+
+    // Keyset theo (updated_at, products_id), dùng index idx_products_updated_at_id
+    private static final String CHANGED_SQL = SELECT_SQL
+            + "WHERE (p.updated_at > ? OR (p.updated_at = ? AND p.products_id > ?)) AND p.updated_at <= ? "
+            + "ORDER BY p.updated_at, p.products_id LIMIT ?";
+
+    private static final String INSERT_SQL = "INSERT INTO shop_products (product_code, product_name, short_description, "
+            + "image, unit_price, status, category_id, supplier_id, supplier_ids, unit_id, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SUPPLIER_SQL = "INSERT INTO product_suppliers "
+            + "(product_id, supplier_id, is_primary, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public ProductCatalogJdbcRepository(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        // fetchSize = Integer.MIN_VALUE: MySQL Connector/J trả từng dòng thay vì đọc hết result set
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Số sản phẩm và updated_at lớn nhất, dùng để tạo ETag cho catalog
+     */
+    public CatalogStats stats() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*), MAX(updated_at) FROM shop_products",
+                (rs, i) -> {
+                    Timestamp maxUpdated = rs.getTimestamp(2);
+                    return new CatalogStats(rs.getLong(1), maxUpdated != null ? maxUpdated.getTime() : 0L);
+                });
+    }
+
+    /**
+     * Duyệt toàn bộ sản phẩm theo id tăng dần, kèm danh sách NCC từ bảng product_suppliers
+     */
+    public void streamAll(BiConsumer<ShopProduct, List<ProductSupplier>> consumer) {
+        streamingJdbcTemplate.query(STREAM_SQL, rs -> {
+            ShopProduct p = mapProduct(rs);
+            consumer.accept(p, parseSuppliers(p.getId(), rs.getString("suppliers")));
+        });
+    }
+
+    /**
+     * Sản phẩm có (updated_at, id) sau vị trí cursor và updated_at <= until, tối đa limit dòng
+     */
+    public void findChangedSince(Date updatedAt, long lastId, Date until, int limit,
+            BiConsumer<ShopProduct, List<ProductSupplier>> consumer) {
+        Timestamp from = new Timestamp(updatedAt.getTime());
+        jdbcTemplate.query(CHANGED_SQL, rs -> {
+            ShopProduct p = mapProduct(rs);
+            consumer.accept(p, parseSuppliers(p.getId(), rs.getString("suppliers")));
+        }, from, from, lastId, new Timestamp(until.getTime()), limit);
+    }
+
+    /**
+     * Phần số lớn nhất của các mã dạng {prefix}00001 (0 nếu chưa có)
+     */
+    public long maxCodeNumber(String prefix) {
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT MAX(CAST(SUBSTRING(product_code, ?) AS UNSIGNED)) FROM shop_products "
+                        + "WHERE product_code REGEXP ?",
+                Long.class, prefix.length() + 1, "^" + prefix + "[0-9]+$");
+        return max != null ? max : 0L;
+    }
+
+    public Set<String> findAllCodes() {
+        Set<String> codes = new HashSet<>();
+        streamingJdbcTemplate.query("SELECT product_code FROM shop_products WHERE product_code IS NOT NULL",
+                rs -> {
+                    codes.add(rs.getString(1));
+                });
+        return codes;
+    }
+
+    /**
+     * Insert nhiều sản phẩm trong 1 batch JDBC, gán id sinh ra vào từng entity theo thứ tự.
+     * Phải gọi trong transaction của caller.
+     */
+    public void insertProducts(List<ShopProduct> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (ShopProduct p : products) {
+                    ps.setString(1, p.getCode());
+                    ps.setString(2, p.getName());
+                    ps.setString(3, p.getShortDescription());
+                    ps.setString(4, p.getImage());
+                    ps.setBigDecimal(5, p.getUnitPrice());
+                    ps.setString(6, p.getStatus());
+                    setLong(ps, 7, p.getCategoryId());
+                    setLong(ps, 8, p.getSupplierId());
+                    ps.setString(9, p.getSupplierIds());
+                    setLong(ps, 10, p.getUnitId());
+                    ps.setTimestamp(11, new Timestamp(p.getCreatedAt().getTime()));
+                    ps.setTimestamp(12, new Timestamp(p.getUpdatedAt().getTime()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < products.size()) {
+                        products.get(i++).setId(keys.getLong(1));
+                    }
+                    if (i != products.size()) {
+                        throw new IllegalStateException("Không lấy được id của sản phẩm vừa thêm");
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    public void insertProductSuppliers(List<ProductSupplier> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_SUPPLIER_SQL, rows, 1000, (ps, row) -> {
+            ps.setLong(1, row.getProductId());
+            ps.setLong(2, row.getSupplierId());
+            ps.setBoolean(3, Boolean.TRUE.equals(row.getIsPrimary()));
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private static ShopProduct mapProduct(ResultSet rs) throws SQLException {
+        ShopProduct p = new ShopProduct();
+        p.setId(rs.getLong("products_id"));
+        p.setCode(rs.getString("product_code"));
+        p.setName(rs.getString("product_name"));
+        p.setShortDescription(rs.getString("short_description"));
+        p.setImage(rs.getString("image"));
+        p.setUnitPrice(rs.getBigDecimal("unit_price"));
+        p.setStatus(rs.getString("status"));
+        p.setCategoryId(getLong(rs, "category_id"));
+        p.setSupplierId(getLong(rs, "supplier_id"));
+        p.setSupplierIds(rs.getString("supplier_ids"));
+        p.setUnitId(getLong(rs, "unit_id"));
+        p.setCreatedAt(toDate(rs.getTimestamp("created_at")));
+        p.setUpdatedAt(toDate(rs.getTimestamp("updated_at")));
+        return p;
+    }
+
+    // "5:1,7:0" -> [ProductSupplier(5, primary), ProductSupplier(7)]
+    private static List<ProductSupplier> parseSuppliers(Long productId, String packed) {
+        List<ProductSupplier> result = new ArrayList<>();
+        if (packed == null || packed.isEmpty()) {
+            return result;
+        }
+        for (String part : packed.split(",")) {
+            int sep = part.indexOf(':');
+            if (sep <= 0) {
+                continue;
+            }
+            ProductSupplier ps = new ProductSupplier();
+            ps.setProductId(productId);
+            ps.setSupplierId(Long.valueOf(part.substring(0, sep)));
+            ps.setIsPrimary(!"0".equals(part.substring(sep + 1)));
+            result.add(ps);
+        }
+        return result;
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Date toDate(Timestamp ts) {
+        return ts != null ? new Date(ts.getTime()) : null;
+    }
+
+    public record CatalogStats(long count, long maxUpdatedAt) {
+    }
+}
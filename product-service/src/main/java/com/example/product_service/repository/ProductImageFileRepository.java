@@ -0,0 +1,49 @@
+package com.example.product_service.repository;
+
+import com.example.product_service.entity.ProductImageFile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ProductImageFileRepository extends JpaRepository<ProductImageFile, String> {
+
+    @Modifying
+    @Query("UPDATE ProductImageFile f SET f.refCount = f.refCount + :count, f.releasedAt = null "
+            + "WHERE f.fileName = :fileName")
+    int retain(@Param("fileName") String fileName, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE ProductImageFile f SET f.refCount = f.refCount - 1, "
+            + "f.releasedAt = CASE WHEN f.refCount = 1 THEN :now ELSE f.releasedAt END "
+            + "WHERE f.fileName = :fileName AND f.refCount > 0")
+    int release(@Param("fileName") String fileName, @Param("now") Date now);
+
+    // Upload lại file chưa ai dùng: tính lại thời gian chờ để không bị dọn ngay
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductImageFile f SET f.releasedAt = :now WHERE f.contentHash = :hash AND f.refCount = 0")
+    int touchUnused(@Param("hash") String hash, @Param("now") Date now);
+
+    // File còn được dùng (ảnh gallery, ref_count sửa tay lệch) mà ref_count = 0: đặt lại đúng số tham chiếu
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductImageFile f SET f.refCount = :count, f.releasedAt = null "
+            + "WHERE f.contentHash = :hash AND f.refCount = 0")
+    int recount(@Param("hash") String hash, @Param("count") int count);
+
+    @Query("SELECT f FROM ProductImageFile f WHERE f.refCount = 0 "
+            + "AND COALESCE(f.releasedAt, f.createdAt) < :before ORDER BY f.createdAt")
+    List<ProductImageFile> findUnusedBefore(@Param("before") Date before, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProductImageFile f WHERE f.contentHash = :hash AND f.refCount = 0 "
+            + "AND COALESCE(f.releasedAt, f.createdAt) < :before")
+    int deleteIfUnused(@Param("hash") String hash, @Param("before") Date before);
+}
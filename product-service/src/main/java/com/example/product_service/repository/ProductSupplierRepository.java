@@ -2,6 +2,9 @@ package com.example.product_service.repository;
 
 import com.example.product_service.entity.ProductSupplier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,5 +24,10 @@ public interface ProductSupplierRepository extends JpaRepository<ProductSupplier
     void deleteByProductIdAndSupplierId(Long productId, Long supplierId);
     
     List<ProductSupplier> findByProductIdAndIsPrimaryTrue(Long productId);
+
+    // Xóa bằng 1 câu DELETE (deleteByProductId của Spring Data nạp và xóa từng entity)
+    @Modifying
+    @Query("DELETE FROM ProductSupplier ps WHERE ps.productId = :productId")
+    int deleteByProductIdInBatch(@Param("productId") Long productId);
 }
 
@@ -0,0 +1,21 @@
+package com.example.product_service.repository;
+
+import com.example.product_service.entity.ProductTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    List<ProductTombstone> findByIdGreaterThanAndDeletedAtLessThanEqualOrderByIdAsc(
+            Long lastId, Date until, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ProductTombstone t WHERE t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") Date before);
+}
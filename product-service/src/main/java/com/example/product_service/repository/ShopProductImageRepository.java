@@ -7,4 +7,6 @@ import java.util.List;
 
 public interface ShopProductImageRepository extends JpaRepository<ShopProductImage, Long> {
     List<ShopProductImage> findByProductId(Long productId);
+
+    long countByImage(String image);
 }
@@ -3,6 +3,7 @@ package com.example.product_service.repository;
 import com.example.product_service.entity.ShopProduct;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -10,5 +11,12 @@ public interface ShopProductRepository
         extends JpaRepository<ShopProduct, Long>, JpaSpecificationExecutor<ShopProduct> {
 
     boolean existsByUnitId(Long unitId);
-    List<ShopProduct> findByCodeStartingWith(String prefix);
+
+    long countByImage(String image);
+
+    // Đọc theo lô (keyset theo id) để build index, tránh OFFSET lớn
+    List<ShopProduct> findTop1000ByIdGreaterThanOrderByIdAsc(Long lastId);
+
+    @Query("SELECT p.id FROM ShopProduct p")
+    List<Long> findAllIds();
 }
\ No newline at end of file
@@ -0,0 +1,556 @@
+package com.example.product_service.search;
+
+import com.example.product_service.common.TransactionHooks;
+import com.example.product_service.entity.ShopProduct;
+import com.example.product_service.repository.ProductCatalogJdbcRepository;
+import com.example.product_service.repository.ShopProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Inverted index (Lucene, nằm trong RAM) trên mã, tên và mô tả ngắn của sản phẩm.
+ *
+ * - Bỏ dấu tiếng Việt cả khi index lẫn khi tìm ("sua tuoi" khớp "Sữa tươi")
+ * - Khớp chính xác, tiền tố và gần đúng (sai 1-2 ký tự)
+ * - Build lại toàn bộ khi khởi động, cập nhật theo từng sản phẩm sau khi commit: id được đưa cho
+ *   1 thread index riêng, thread này đọc lại bản ghi đã commit (EntityManager mới) rồi mới index
+ * - Scheduler so COUNT + MAX(updated_at) của shop_products để index lại sản phẩm sửa ở instance khác
+ *   (hoặc bị lỡ) và bỏ sản phẩm đã xóa
+ *
+ * Khi index chưa build xong thì {@link #isReady()} = false, service dùng lại truy vấn DB.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final String F_ID = "id";
+    private static final String F_CODE = "code";
+    private static final String F_CODE_NUM = "code_num";
+    private static final String F_NAME = "name";
+    private static final String F_DESC = "desc";
+    private static final String F_CREATED = "created";
+    private static final String F_ID_SORT = "id_sort";
+    private static final String F_CREATED_SORT = "created_sort";
+    private static final String F_UPDATED_SORT = "updated_sort";
+    private static final String F_CODE_SORT = "code_sort";
+    private static final String F_NAME_SORT = "name_sort";
+
+    private static final int SORT_KEY_MAX_LENGTH = 64;
+    private static final int REFRESH_BATCH_SIZE = 1000;
+    // Nạp lùi lại 1 khoảng so với mốc trước: ghi commit muộn hơn updated_at vẫn được thấy
+    private static final long REFRESH_OVERLAP_MS = 5000;
+
+    private final ShopProductRepository repo;
+    private final ProductCatalogJdbcRepository catalogRepo;
+    private final Analyzer analyzer = new FoldingAnalyzer();
+    private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    private volatile boolean ready = false;
+    // Các id bị ghi trong lúc đang build lại, cần index lại sau khi build xong
+    private final Set<Long> dirtyDuringBuild = ConcurrentHashMap.newKeySet();
+    // Id chờ index lại; 1 thread xử lý tuần tự nên lần đọc sau luôn thấy bản commit mới hơn
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "product-search-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+    // Phiên bản (COUNT-MAX(updated_at)) và updated_at lớn nhất ở lần build / reconcile trước
+    private volatile String loadedVersion;
+    private volatile long loadedUpTo;
+
+    public ProductSearchIndex(ShopProductRepository repo, ProductCatalogJdbcRepository catalogRepo)
+            throws IOException {
+        this.repo = repo;
+        this.catalogRepo = catalogRepo;
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Build index ở thread riêng để không chặn khởi động service.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread t = new Thread(this::rebuild, "product-search-index-build");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public synchronized void rebuild() {
+        ready = false;
+        long start = System.currentTimeMillis();
+        try {
+            // Lấy phiên bản trước khi đọc: có ghi xen giữa thì lần reconcile sau sẽ nạp lại
+            ProductCatalogJdbcRepository.CatalogStats stats = catalogRepo.stats();
+            writer.deleteAll();
+            long lastId = 0L;
+            int total = 0;
+            List<ShopProduct> batch;
+            while (!(batch = repo.findTop1000ByIdGreaterThanOrderByIdAsc(lastId)).isEmpty()) {
+                for (ShopProduct p : batch) {
+                    writer.updateDocument(new Term(F_ID, p.getId().toString()), toDocument(p));
+                }
+                total += batch.size();
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            reindexDirty();
+            searcherManager.maybeRefreshBlocking();
+            loadedVersion = version(stats);
+            loadedUpTo = stats.maxUpdatedAt();
+            ready = true;
+            log.info("[SEARCH] Indexed {} products in {} ms", total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("[SEARCH] Failed to build product index, falling back to DB search", e);
+        }
+    }
+
+    /**
+     * Cập nhật index sau khi transaction hiện tại commit (rollback thì không đụng tới index).
+     */
+    public void indexAfterCommit(ShopProduct product) {
+        indexAfterCommit(List.of(product.getId()));
+    }
+
+    public void indexAfterCommit(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        TransactionHooks.afterCommit(() -> {
+            pending.addAll(ids);
+            indexer.execute(this::drainPending);
+        });
+    }
+
+    public void removeAfterCommit(Long productId) {
+        indexAfterCommit(List.of(productId));
+    }
+
+    // Chạy trên thread index: không có transaction / EntityManager của request nên đọc đúng bản đã commit
+    private void drainPending() {
+        List<Long> ids = new ArrayList<>(pending);
+        if (ids.isEmpty()) {
+            return;
+        }
+        pending.removeAll(ids);
+        try {
+            if (!ready) {
+                dirtyDuringBuild.addAll(ids);
+            }
+            for (int i = 0; i < ids.size(); i += REFRESH_BATCH_SIZE) {
+                List<Long> batch = ids.subList(i, Math.min(i + REFRESH_BATCH_SIZE, ids.size()));
+                Set<Long> found = new HashSet<>();
+                for (ShopProduct p : repo.findAllById(batch)) {
+                    writer.updateDocument(new Term(F_ID, p.getId().toString()), toDocument(p));
+                    found.add(p.getId());
+                }
+                for (Long id : batch) {
+                    if (!found.contains(id)) {
+                        writer.deleteDocuments(new Term(F_ID, id.toString()));
+                    }
+                }
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | RuntimeException e) {
+            log.error("[SEARCH] Failed to index products {}", ids, e);
+        }
+    }
+
+    /**
+     * Phiên bản dữ liệu đổi (ghi ở instance khác, hook bị lỡ...) thì index lại sản phẩm có updated_at
+     * từ mốc trước và bỏ sản phẩm không còn trong DB. Chạy trên thread index, tuần tự với các lần cập nhật.
+     */
+    @Scheduled(fixedDelayString = "${product.search.refresh-ms:5000}", initialDelayString = "${product.search.refresh-ms:5000}")
+    public void scheduleReconcile() {
+        if (ready) {
+            indexer.execute(this::reconcile);
+        }
+    }
+
+    private void reconcile() {
+        try {
+            ProductCatalogJdbcRepository.CatalogStats stats = catalogRepo.stats();
+            String version = version(stats);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            // +1ms: updated_at trong DB có thể lẻ hơn mili giây
+            Date until = new Date(stats.maxUpdatedAt() + 1);
+            Date[] cursorAt = { new Date(Math.max(0, loadedUpTo - REFRESH_OVERLAP_MS)) };
+            long[] cursorId = { 0L };
+            int changed = 0;
+            int batch;
+            do {
+                int[] count = { 0 };
+                catalogRepo.findChangedSince(cursorAt[0], cursorId[0], until, REFRESH_BATCH_SIZE, (p, suppliers) -> {
+                    try {
+                        writer.updateDocument(new Term(F_ID, p.getId().toString()), toDocument(p));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    cursorAt[0] = p.getUpdatedAt();
+                    cursorId[0] = p.getId();
+                    count[0]++;
+                });
+                batch = count[0];
+                changed += batch;
+            } while (batch >= REFRESH_BATCH_SIZE);
+
+            int removed = 0;
+            searcherManager.maybeRefreshBlocking();
+            if (indexedCount() != stats.count()) {
+                Set<Long> existing = new HashSet<>(repo.findAllIds());
+                for (Long id : indexedIds()) {
+                    if (!existing.contains(id)) {
+                        writer.deleteDocuments(new Term(F_ID, id.toString()));
+                        removed++;
+                    }
+                }
+                searcherManager.maybeRefreshBlocking();
+            }
+            loadedVersion = version;
+            loadedUpTo = stats.maxUpdatedAt();
+            log.debug("[SEARCH] Reconciled {} changed, {} removed products", changed, removed);
+        } catch (IOException | RuntimeException e) {
+            log.warn("[SEARCH] Failed to reconcile product index: {}", e.getMessage());
+        }
+    }
+
+    private int indexedCount() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private List<Long> indexedIds() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            List<Long> ids = new ArrayList<>();
+            StoredFields fields = searcher.storedFields();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                Bits live = leaf.reader().getLiveDocs();
+                for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+                    if (live == null || live.get(i)) {
+                        ids.add(Long.valueOf(fields.document(leaf.docBase + i, Set.of(F_ID)).get(F_ID)));
+                    }
+                }
+            }
+            return ids;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private static String version(ProductCatalogJdbcRepository.CatalogStats stats) {
+        return stats.count() + "-" + stats.maxUpdatedAt();
+    }
+
+    /**
+     * Tìm id sản phẩm theo mã / tên (+ khoảng ngày tạo), đã phân trang.
+     *
+     * @return id của trang hiện tại (đúng thứ tự) và tổng số kết quả
+     */
+    public SearchResult search(String code, String name, Date createdFrom, Date createdTo, Pageable pageable) {
+        BooleanQuery.Builder qb = new BooleanQuery.Builder();
+        boolean hasClause = false;
+
+        if (code != null && !code.isBlank()) {
+            qb.add(codeQuery(fold(code.trim())), BooleanClause.Occur.MUST);
+            hasClause = true;
+        }
+        if (name != null && !name.isBlank()) {
+            List<String> tokens = analyze(name);
+            // Tên chỉ gồm ký tự bị bỏ khi tách từ (dấu câu...): không khớp gì, không phải "mọi sản phẩm"
+            if (tokens.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+            for (String token : tokens) {
+                qb.add(nameTokenQuery(token), BooleanClause.Occur.MUST);
+                hasClause = true;
+            }
+        }
+        if (createdFrom != null || createdTo != null) {
+            long from = createdFrom != null ? createdFrom.getTime() : Long.MIN_VALUE;
+            long to = createdTo != null ? createdTo.getTime() - 1 : Long.MAX_VALUE;
+            qb.add(LongPoint.newRangeQuery(F_CREATED, from, to), BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+        Query query = hasClause ? qb.build() : new MatchAllDocsQuery();
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int total = searcher.count(query);
+            int offset = pageable.isPaged() ? (int) pageable.getOffset() : 0;
+            int limit = pageable.isPaged() ? pageable.getPageSize() : total;
+            if (offset >= total || limit <= 0) {
+                return new SearchResult(List.of(), total);
+            }
+
+            int n = offset + limit;
+            Sort sort = toLuceneSort(pageable.getSort());
+            TopDocs top = sort != null ? searcher.search(query, n, sort) : searcher.search(query, n);
+
+            List<Long> ids = new ArrayList<>(limit);
+            ScoreDoc[] hits = top.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                Document doc = searcher.storedFields().document(hits[i].doc, Set.of(F_ID));
+                ids.add(Long.valueOf(doc.get(F_ID)));
+            }
+            return new SearchResult(ids, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("[SEARCH] Failed to release searcher", e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        indexer.shutdownNow();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    // ---------- query helpers ----------
+
+    /**
+     * Mã sản phẩm (SP00012): khớp bất kỳ đoạn nào của mã như LIKE %code% trước đây
+     * ("sp000", "p0001", "00012" đều tìm ra); khớp chính xác / tiền tố được xếp trước.
+     */
+    private Query codeQuery(String foldedCode) {
+        BooleanQuery.Builder b = new BooleanQuery.Builder();
+        b.add(new BoostQuery(new TermQuery(new Term(F_CODE, foldedCode)), 4f), BooleanClause.Occur.SHOULD);
+        b.add(new BoostQuery(new PrefixQuery(new Term(F_CODE, foldedCode)), 2f), BooleanClause.Occur.SHOULD);
+        b.add(new BoostQuery(new PrefixQuery(new Term(F_CODE_NUM, foldedCode)), 2f), BooleanClause.Occur.SHOULD);
+        b.add(new WildcardQuery(new Term(F_CODE, "*" + escapeWildcard(foldedCode) + "*")), BooleanClause.Occur.SHOULD);
+        return b.build();
+    }
+
+    private static String escapeWildcard(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '*' || c == '?' || c == WildcardQuery.WILDCARD_ESCAPE) {
+                sb.append(WildcardQuery.WILDCARD_ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Mỗi từ trong tên phải khớp (chính xác > tiền tố > gần đúng) ở tên hoặc mô tả.
+     */
+    private Query nameTokenQuery(String token) {
+        BooleanQuery.Builder b = new BooleanQuery.Builder();
+        for (String field : new String[] { F_NAME, F_DESC }) {
+            float weight = F_NAME.equals(field) ? 1f : 0.3f;
+            b.add(new BoostQuery(new TermQuery(new Term(field, token)), 3f * weight), BooleanClause.Occur.SHOULD);
+            b.add(new BoostQuery(new PrefixQuery(new Term(field, token)), 2f * weight), BooleanClause.Occur.SHOULD);
+            int edits = token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+            if (edits > 0) {
+                b.add(new BoostQuery(new FuzzyQuery(new Term(field, token), edits, 1), weight),
+                        BooleanClause.Occur.SHOULD);
+            }
+        }
+        return b.build();
+    }
+
+    private Sort toLuceneSort(org.springframework.data.domain.Sort springSort) {
+        if (springSort == null || springSort.isUnsorted()) {
+            return null; // theo độ liên quan
+        }
+        List<SortField> fields = new ArrayList<>();
+        for (org.springframework.data.domain.Sort.Order order : springSort) {
+            boolean desc = order.isDescending();
+            SortField f = switch (order.getProperty()) {
+                case "id" -> new SortField(F_ID_SORT, SortField.Type.LONG, desc);
+                case "createdAt" -> new SortField(F_CREATED_SORT, SortField.Type.LONG, desc);
+                case "updatedAt" -> new SortField(F_UPDATED_SORT, SortField.Type.LONG, desc);
+                case "code" -> new SortField(F_CODE_SORT, SortField.Type.STRING, desc);
+                case "name" -> new SortField(F_NAME_SORT, SortField.Type.STRING, desc);
+                default -> null;
+            };
+            if (f != null) {
+                fields.add(f);
+            }
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        fields.add(new SortField(F_ID_SORT, SortField.Type.LONG));
+        return new Sort(fields.toArray(new SortField[0]));
+    }
+
+    private List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream ts = analyzer.tokenStream(F_NAME, text)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            ts.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    // ---------- document mapping ----------
+
+    private Document toDocument(ShopProduct p) {
+        Document doc = new Document();
+        doc.add(new StringField(F_ID, p.getId().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(F_ID_SORT, p.getId()));
+
+        String code = p.getCode() != null ? fold(p.getCode()) : "";
+        doc.add(new StringField(F_CODE, code, Field.Store.NO));
+        String digits = code.replaceFirst("^[^0-9]*", "");
+        if (!digits.isEmpty()) {
+            doc.add(new StringField(F_CODE_NUM, digits, Field.Store.NO));
+            String noLeadingZeros = digits.replaceFirst("^0+", "");
+            if (!noLeadingZeros.isEmpty() && !noLeadingZeros.equals(digits)) {
+                doc.add(new StringField(F_CODE_NUM, noLeadingZeros, Field.Store.NO));
+            }
+        }
+        doc.add(new SortedDocValuesField(F_CODE_SORT, sortKey(code)));
+
+        String name = p.getName() != null ? p.getName() : "";
+        doc.add(new TextField(F_NAME, name, Field.Store.NO));
+        doc.add(new SortedDocValuesField(F_NAME_SORT, sortKey(fold(name))));
+
+        if (p.getShortDescription() != null) {
+            doc.add(new TextField(F_DESC, p.getShortDescription(), Field.Store.NO));
+        }
+
+        if (p.getCreatedAt() != null) {
+            long created = p.getCreatedAt().getTime();
+            doc.add(new LongPoint(F_CREATED, created));
+            doc.add(new NumericDocValuesField(F_CREATED_SORT, created));
+        }
+        if (p.getUpdatedAt() != null) {
+            doc.add(new NumericDocValuesField(F_UPDATED_SORT, p.getUpdatedAt().getTime()));
+        }
+        return doc;
+    }
+
+    private void reindexDirty() throws IOException {
+        if (dirtyDuringBuild.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(dirtyDuringBuild);
+        dirtyDuringBuild.removeAll(ids);
+        Set<Long> found = ConcurrentHashMap.newKeySet();
+        for (ShopProduct p : repo.findAllById(ids)) {
+            writer.updateDocument(new Term(F_ID, p.getId().toString()), toDocument(p));
+            found.add(p.getId());
+        }
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                writer.deleteDocuments(new Term(F_ID, id.toString()));
+            }
+        }
+    }
+
+    private static BytesRef sortKey(String value) {
+        return new BytesRef(value.length() > SORT_KEY_MAX_LENGTH ? value.substring(0, SORT_KEY_MAX_LENGTH) : value);
+    }
+
+    /**
+     * Bỏ dấu + chữ thường: "Đường Biên Hòa" -> "duong bien hoa"
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return decomposed.toLowerCase();
+    }
+
+    /**
+     * Tách từ chuẩn -> chữ thường -> bỏ dấu (ASCII folding, gồm cả đ -> d)
+     */
+    private static final class FoldingAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new LowerCaseFilter(tokenizer);
+            stream = new ASCIIFoldingFilter(stream);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    }
+
+    public record SearchResult(List<Long> ids, long total) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.product_service.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -22,6 +23,9 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // ✅ Async dispatch của response dạng stream (request gốc đã được xác thực)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // ✅ Cho phép public access vào static files (uploads)
                         .requestMatchers("/uploads/**").permitAll()
 
@@ -0,0 +1,44 @@
+package com.example.product_service.service;
+
+import com.example.product_service.dto.EffectivePriceDto;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng giá bán hiện hành (đơn giá sau giảm giá), tính sẵn khi giá/giảm giá thay đổi
+ * và khi tới mốc bắt đầu/kết thúc của giảm giá.
+ */
+public interface EffectivePriceService {
+
+    /**
+     * Giá hiện hành từ bộ nhớ, null nếu chưa tính
+     */
+    EffectivePriceDto get(Long productId);
+
+    /**
+     * Tra cứu nhiều sản phẩm 1 lần (bỏ qua id không tồn tại), theo thứ tự ids
+     */
+    List<EffectivePriceDto> getAll(Collection<Long> productIds);
+
+    /**
+     * Tính lại sau khi sản phẩm thêm/sửa; đơn giá truyền vào vì entity có thể chưa flush xuống DB.
+     * Chạy trong transaction của caller.
+     */
+    void refreshProducts(Map<Long, BigDecimal> basePrices);
+
+    /**
+     * Tính lại sau khi giảm giá của các sản phẩm thay đổi (đọc đơn giá từ DB)
+     */
+    void recompute(Collection<Long> productIds);
+
+    void remove(Long productId);
+
+    /**
+     * Phiên bản bảng giá trong bộ nhớ (băm nội dung, giống nhau giữa các instance cùng dữ liệu);
+     * null khi chưa nạp xong lần đầu
+     */
+    String version();
+}
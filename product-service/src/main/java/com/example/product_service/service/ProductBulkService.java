@@ -0,0 +1,23 @@
+package com.example.product_service.service;
+
+import com.example.product_service.dto.ProductImportResultDto;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Import/export sản phẩm hàng loạt (CSV, XLSX)
+ */
+public interface ProductBulkService {
+
+    /**
+     * Thêm mới sản phẩm từ file; dòng lỗi được bỏ qua và báo lại trong kết quả
+     */
+    ProductImportResultDto importProducts(MultipartFile file);
+
+    /**
+     * Ghi toàn bộ catalog ra out theo định dạng "csv" hoặc "xlsx"
+     */
+    void exportProducts(String format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,31 @@
+package com.example.product_service.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Collection;
+
+/**
+ * Lưu file ảnh sản phẩm theo hash nội dung và đếm số sản phẩm đang dùng mỗi file
+ */
+public interface ProductImageFileService {
+
+    /**
+     * Lưu file upload, trả về tên file. Nội dung đã có thì dùng lại file cũ.
+     */
+    String store(MultipartFile file);
+
+    /**
+     * Tăng số tham chiếu của ảnh (URL link ngoài thì bỏ qua)
+     */
+    void retain(String imageUrl);
+
+    /**
+     * Tăng số tham chiếu cho nhiều ảnh cùng lúc (import hàng loạt), 1 câu UPDATE mỗi file
+     */
+    void retainAll(Collection<String> imageUrls);
+
+    /**
+     * Giảm số tham chiếu của ảnh (URL link ngoài thì bỏ qua)
+     */
+    void release(String imageUrl);
+}
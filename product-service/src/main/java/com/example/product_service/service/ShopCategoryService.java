@@ -1,5 +1,6 @@
 package com.example.product_service.service;
 
+import com.example.product_service.cache.ReferenceDataCache;
 import com.example.product_service.dto.CategoryDto;
 import com.example.product_service.dto.CategoryRequest;
 import com.example.product_service.entity.ShopCategory;
@@ -13,6 +14,9 @@ public interface ShopCategoryService {
 
     List<CategoryDto> getAll();
 
+    // Danh mục của đúng bản snapshot đã dùng để tính ETag
+    List<CategoryDto> getAll(ReferenceDataCache.Snapshot snapshot);
+
     CategoryDto getById(Long id);
 
     CategoryDto create(CategoryRequest request);
@@ -1,5 +1,6 @@
 package com.example.product_service.service;
 
+import com.example.product_service.dto.DiscountRequest;
 import com.example.product_service.entity.ShopProductDiscount;
 
 import java.util.List;
@@ -7,4 +8,10 @@ import java.util.List;
 public interface ShopProductDiscountService {
 
     List<ShopProductDiscount> findByProduct(Long productId);
+
+    ShopProductDiscount create(Long productId, DiscountRequest request);
+
+    ShopProductDiscount update(Long productId, Long discountId, DiscountRequest request);
+
+    void delete(Long productId, Long discountId);
 }
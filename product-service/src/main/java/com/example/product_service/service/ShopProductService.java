@@ -1,10 +1,12 @@
 package com.example.product_service.service;
 
+import com.example.product_service.dto.ProductChangesDto;
 import com.example.product_service.dto.ProductDto;
 import com.example.product_service.dto.ProductRequest;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,6 +15,22 @@ public interface ShopProductService {
 
     List<ProductDto> getAll();
 
+    /**
+     * Duyệt toàn bộ catalog theo id, từng sản phẩm được đẩy ra ngay (không build list)
+     */
+    void forEachProduct(Consumer<ProductDto> consumer);
+
+    /**
+     * ETag của toàn bộ catalog: đổi khi thêm/xóa/sửa sản phẩm, dữ liệu tham chiếu hoặc bảng giá;
+     * null khi bảng giá chưa nạp xong (không được cache)
+     */
+    String catalogEtag();
+
+    /**
+     * Change feed: sản phẩm thêm/sửa/xóa sau vị trí cursor (null = từ đầu)
+     */
+    ProductChangesDto getChanges(String since, int limit);
+
     ProductDto getById(Long id);
 
     ProductDto create(ProductRequest request);
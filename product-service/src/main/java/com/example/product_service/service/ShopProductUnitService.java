@@ -1,5 +1,6 @@
 package com.example.product_service.service;
 
+import com.example.product_service.cache.ReferenceDataCache;
 import com.example.product_service.dto.UnitDto;
 import com.example.product_service.dto.UnitRequest;
 import org.springframework.data.domain.Page;
@@ -11,6 +12,9 @@ public interface ShopProductUnitService {
 
     List<UnitDto> getAll();
 
+    // Đơn vị tính của đúng bản snapshot đã dùng để tính ETag
+    List<UnitDto> getAll(ReferenceDataCache.Snapshot snapshot);
+
     UnitDto getById(Long id);
 
     UnitDto create(UnitRequest request);
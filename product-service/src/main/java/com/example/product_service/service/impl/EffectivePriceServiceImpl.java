@@ -0,0 +1,345 @@
+package com.example.product_service.service.impl;
+
+import com.example.product_service.common.TransactionHooks;
+import com.example.product_service.dto.EffectivePriceDto;
+import com.example.product_service.entity.ShopProductDiscount;
+import com.example.product_service.repository.EffectivePriceJdbcRepository;
+import com.example.product_service.repository.ShopProductDiscountRepository;
+import com.example.product_service.service.EffectivePriceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Giá bán hiện hành = đơn giá sau giảm giá tốt nhất đang hiệu lực (start_date <= now < end_date).
+ *
+ * Lưu ở bảng product_effective_prices và giữ 1 bản trong bộ nhớ để toDto/tra cứu hàng loạt
+ * không cần truy vấn. Mỗi dòng có valid_until = mốc bắt đầu/kết thúc gần nhất của giảm giá;
+ * scheduler tính lại các dòng đã tới mốc và nạp các dòng instance khác vừa ghi.
+ */
+@Service
+@Slf4j
+public class EffectivePriceServiceImpl implements EffectivePriceService {
+
+    private static final int BATCH_SIZE = 1000;
+    // Đọc lùi 1 đoạn khi nạp theo computed_at, tránh sót dòng do lệch giờ/transaction commit muộn
+    private static final long RELOAD_OVERLAP_MS = 5000;
+
+    private final EffectivePriceJdbcRepository priceRepo;
+    private final ShopProductDiscountRepository discountRepo;
+    private final TransactionTemplate tx;
+
+    private final Map<Long, EffectivePriceDto> prices = new ConcurrentHashMap<>();
+    // XOR băm của từng giá trong prices, cập nhật cùng lúc với map (ETag catalog dùng)
+    private final AtomicLong contentHash = new AtomicLong();
+    private volatile boolean ready;
+    private volatile long reloadedUpTo = 0L;
+
+    public EffectivePriceServiceImpl(EffectivePriceJdbcRepository priceRepo,
+            ShopProductDiscountRepository discountRepo,
+            PlatformTransactionManager transactionManager) {
+        this.priceRepo = priceRepo;
+        this.discountRepo = discountRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public EffectivePriceDto get(Long productId) {
+        return productId == null ? null : prices.get(productId);
+    }
+
+    @Override
+    public List<EffectivePriceDto> getAll(Collection<Long> productIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : productIds) {
+            if (!prices.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        // Chưa có trong bộ nhớ (đang khởi động): đọc thẳng từ bảng
+        Map<Long, EffectivePriceDto> loaded = priceRepo.findByProductIds(missing);
+        List<EffectivePriceDto> result = new ArrayList<>(productIds.size());
+        for (Long id : productIds) {
+            EffectivePriceDto p = prices.getOrDefault(id, loaded.get(id));
+            if (p != null) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void refreshProducts(Map<Long, BigDecimal> basePrices) {
+        apply(basePrices, false);
+    }
+
+    @Override
+    public void recompute(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            Map<Long, BigDecimal> basePrices = priceRepo.findBasePrices(batch);
+            // Sản phẩm đã bị xóa: bỏ dòng giá để scheduler không gặp lại mãi
+            for (Long id : batch) {
+                if (!basePrices.containsKey(id)) {
+                    remove(id);
+                }
+            }
+            apply(basePrices, true);
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        priceRepo.deleteByProductId(productId);
+        TransactionHooks.afterCommit(() -> drop(productId));
+    }
+
+    /**
+     * Tính và ghi giá cho 1 lô sản phẩm trong transaction hiện tại; bộ nhớ cập nhật sau commit.
+     *
+     * @param touchProducts true nếu phải tăng updated_at của sản phẩm có giá bán đổi
+     *                      (giảm giá đổi, tới mốc); sửa sản phẩm thì đã tự set updated_at
+     */
+    private void apply(Map<Long, BigDecimal> basePrices, boolean touchProducts) {
+        if (basePrices.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<ShopProductDiscount>> discounts = discountRepo.findByProductIdIn(basePrices.keySet())
+                .stream()
+                .collect(Collectors.groupingBy(ShopProductDiscount::getProductId));
+        Map<Long, EffectivePriceDto> previous = touchProducts
+                ? priceRepo.findByProductIds(basePrices.keySet())
+                : Map.of();
+
+        List<EffectivePriceDto> computed = new ArrayList<>(basePrices.size());
+        List<Long> changed = new ArrayList<>();
+        basePrices.forEach((productId, base) -> {
+            EffectivePriceDto p = compute(productId, base, discounts.getOrDefault(productId, List.of()), now);
+            computed.add(p);
+            if (touchProducts && priceChanged(previous.get(productId), p)) {
+                changed.add(productId);
+            }
+        });
+
+        Timestamp computedAt = Timestamp.valueOf(now);
+        priceRepo.upsert(computed, computedAt);
+        priceRepo.touchProducts(changed, computedAt);
+        TransactionHooks.afterCommit(() -> computed.forEach(this::store));
+    }
+
+    /**
+     * Áp giảm giá tốt nhất (giá thấp nhất) trong số giảm giá đang hiệu lực.
+     * Giảm giá có cả % và số tiền thì trừ % trước rồi trừ tiền; giá không âm.
+     */
+    static EffectivePriceDto compute(Long productId, BigDecimal base,
+            List<ShopProductDiscount> discounts, LocalDateTime now) {
+        BigDecimal best = base;
+        ShopProductDiscount bestDiscount = null;
+        LocalDateTime validUntil = null;
+
+        for (ShopProductDiscount d : discounts) {
+            if (d.getStartDate() != null && d.getStartDate().isAfter(now)) {
+                validUntil = earliest(validUntil, d.getStartDate());
+                continue;
+            }
+            if (d.getEndDate() != null) {
+                if (!d.getEndDate().isAfter(now)) {
+                    continue;
+                }
+                validUntil = earliest(validUntil, d.getEndDate());
+            }
+            if (base == null) {
+                continue;
+            }
+            BigDecimal price = base;
+            if (d.getDiscountPercent() != null) {
+                price = price.multiply(BigDecimal.valueOf(100).subtract(d.getDiscountPercent()))
+                        .divide(BigDecimal.valueOf(100), base.scale(), RoundingMode.HALF_UP);
+            }
+            if (d.getDiscountAmount() != null) {
+                price = price.subtract(d.getDiscountAmount());
+            }
+            price = price.max(BigDecimal.ZERO);
+            if (price.compareTo(best) < 0) {
+                best = price;
+                bestDiscount = d;
+            }
+        }
+
+        return new EffectivePriceDto(productId, base, best,
+                bestDiscount != null ? bestDiscount.getId() : null,
+                bestDiscount != null ? bestDiscount.getDiscountName() : null,
+                validUntil);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private static boolean priceChanged(EffectivePriceDto before, EffectivePriceDto after) {
+        if (before == null) {
+            // Lần đầu tính: chỉ coi là đổi nếu đang có giảm giá
+            return after.getDiscountId() != null;
+        }
+        boolean samePrice = before.getEffectivePrice() == null
+                ? after.getEffectivePrice() == null
+                : after.getEffectivePrice() != null
+                        && before.getEffectivePrice().compareTo(after.getEffectivePrice()) == 0;
+        return !samePrice || !Objects.equals(before.getDiscountId(), after.getDiscountId());
+    }
+
+    // ---------- nạp khi khởi động + scheduler ----------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread t = new Thread(this::recomputeAll, "effective-price-build");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Tính lại toàn bộ (khởi động và hằng đêm), bắt cả giảm giá bị sửa trực tiếp trong DB
+     */
+    @Scheduled(cron = "${product.prices.full-recompute-cron:0 15 3 * * *}")
+    public synchronized void recomputeAll() {
+        long start = System.currentTimeMillis();
+        try {
+            reloadChanged();
+            Map<Long, List<ShopProductDiscount>> discounts = discountRepo.findAll().stream()
+                    .filter(d -> d.getProductId() != null)
+                    .collect(Collectors.groupingBy(ShopProductDiscount::getProductId));
+
+            Map<Long, BigDecimal> batch = new LinkedHashMap<>();
+            int[] total = { 0 };
+            priceRepo.streamBasePrices((productId, base) -> {
+                batch.put(productId, base);
+                if (batch.size() >= BATCH_SIZE) {
+                    total[0] += writeFullBatch(batch, discounts);
+                    batch.clear();
+                }
+            });
+            total[0] += writeFullBatch(batch, discounts);
+            log.info("[PRICE] Recomputed {} effective prices in {} ms", total[0], System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("[PRICE] Failed to recompute effective prices", e);
+        }
+    }
+
+    private int writeFullBatch(Map<Long, BigDecimal> batch, Map<Long, List<ShopProductDiscount>> discounts) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<EffectivePriceDto> computed = new ArrayList<>(batch.size());
+        List<Long> changed = new ArrayList<>();
+        batch.forEach((productId, base) -> {
+            EffectivePriceDto p = compute(productId, base, discounts.getOrDefault(productId, List.of()), now);
+            computed.add(p);
+            if (priceChanged(prices.get(productId), p)) {
+                changed.add(productId);
+            }
+        });
+        tx.executeWithoutResult(status -> {
+            Timestamp computedAt = Timestamp.valueOf(now);
+            priceRepo.upsert(computed, computedAt);
+            priceRepo.touchProducts(changed, computedAt);
+        });
+        computed.forEach(this::store);
+        return computed.size();
+    }
+
+    /**
+     * Tính lại sản phẩm đã tới mốc valid_until, rồi nạp các dòng instance khác vừa tính
+     */
+    @Scheduled(fixedDelayString = "${product.prices.refresh-ms:30000}", initialDelayString = "${product.prices.refresh-ms:30000}")
+    public void refreshDue() {
+        try {
+            List<Long> due;
+            while (!(due = priceRepo.findDueProductIds(LocalDateTime.now(), BATCH_SIZE)).isEmpty()) {
+                List<Long> ids = due;
+                tx.executeWithoutResult(status -> recompute(ids));
+                if (ids.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            reloadChanged();
+        } catch (Exception e) {
+            log.warn("[PRICE] Failed to refresh effective prices: {}", e.getMessage());
+        }
+    }
+
+    private void reloadChanged() {
+        long now = System.currentTimeMillis();
+        Map<Long, EffectivePriceDto> loaded = new HashMap<>();
+        priceRepo.forEachComputedSince(new Timestamp(Math.max(0, reloadedUpTo - RELOAD_OVERLAP_MS)),
+                p -> loaded.put(p.getProductId(), p));
+        loaded.values().forEach(this::store);
+        reloadedUpTo = now;
+        // Lần nạp đầu đọc cả bảng: bộ nhớ đã có đủ giá đã lưu
+        ready = true;
+    }
+
+    @Override
+    public String version() {
+        return ready ? Long.toHexString(contentHash.get()) : null;
+    }
+
+    private void store(EffectivePriceDto p) {
+        prices.compute(p.getProductId(), (id, old) -> {
+            contentHash.getAndUpdate(h -> h ^ hash(old) ^ hash(p));
+            return p;
+        });
+    }
+
+    private void drop(Long productId) {
+        prices.computeIfPresent(productId, (id, old) -> {
+            contentHash.getAndUpdate(h -> h ^ hash(old));
+            return null;
+        });
+    }
+
+    // Băm các trường hiện ra ở ProductDto (giá gốc, giá sau giảm, giảm giá đang áp)
+    private static long hash(EffectivePriceDto p) {
+        if (p == null) {
+            return 0L;
+        }
+        long h = p.getProductId();
+        h = 31 * h + hashOf(p.getBasePrice());
+        h = 31 * h + hashOf(p.getEffectivePrice());
+        h = 31 * h + Objects.hashCode(p.getDiscountId());
+        h = 31 * h + Objects.hashCode(p.getDiscountName());
+        // trộn bit (murmur3 fmix64) để XOR nhiều mục không triệt tiêu nhau
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // 10.00 và 10.0 (DB / tính trong bộ nhớ) cùng 1 giá
+    private static int hashOf(BigDecimal value) {
+        return value == null ? 0 : value.stripTrailingZeros().hashCode();
+    }
+}
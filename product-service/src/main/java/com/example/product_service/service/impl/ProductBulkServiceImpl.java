@@ -0,0 +1,360 @@
+package com.example.product_service.service.impl;
+
+import com.example.product_service.bulk.ProductSheetReader;
+import com.example.product_service.bulk.ProductSheetWriter;
+import com.example.product_service.cache.ReferenceDataCache;
+import com.example.product_service.dto.ProductImportResultDto;
+import com.example.product_service.entity.ProductSupplier;
+import com.example.product_service.entity.ShopProduct;
+import com.example.product_service.repository.ProductCatalogJdbcRepository;
+import com.example.product_service.search.ProductSearchIndex;
+import com.example.product_service.service.EffectivePriceService;
+import com.example.product_service.service.ProductBulkService;
+import com.example.product_service.service.ProductImageFileService;
+import com.example.product_service.service.ShopProductService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Import sản phẩm hàng loạt: đọc file từng dòng, kiểm tra id danh mục/đơn vị/NCC với
+ * dữ liệu tham chiếu trong bộ nhớ, cấp mã theo khối và ghi mỗi {@code chunkSize} dòng
+ * bằng JDBC batch trong 1 transaction (không gọi create() từng sản phẩm).
+ * Chunk lỗi thì ghi lại từng dòng: chỉ dòng lỗi bị bỏ, kèm số dòng và lỗi của chính nó.
+ */
+@Service
+@Slf4j
+public class ProductBulkServiceImpl implements ProductBulkService {
+
+    private static final String CODE_PREFIX = "SP";
+    private static final int MAX_REPORTED_ERRORS = 500;
+
+    private final ProductCatalogJdbcRepository catalogRepo;
+    private final ReferenceDataCache referenceData;
+    private final ProductSearchIndex searchIndex;
+    private final ProductImageFileService imageFiles;
+    private final EffectivePriceService effectivePrices;
+    private final ShopProductService productService;
+    private final TransactionTemplate chunkTx;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${product.import.chunk-size:1000}")
+    private int chunkSize;
+
+    public ProductBulkServiceImpl(ProductCatalogJdbcRepository catalogRepo,
+            ReferenceDataCache referenceData,
+            ProductSearchIndex searchIndex,
+            ProductImageFileService imageFiles,
+            EffectivePriceService effectivePrices,
+            ShopProductService productService,
+            PlatformTransactionManager transactionManager) {
+        this.catalogRepo = catalogRepo;
+        this.referenceData = referenceData;
+        this.searchIndex = searchIndex;
+        this.imageFiles = imageFiles;
+        this.effectivePrices = effectivePrices;
+        this.productService = productService;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public ProductImportResultDto importProducts(MultipartFile file) {
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+        if (!name.endsWith(".csv") && !name.endsWith(".xlsx")) {
+            throw new IllegalArgumentException("Chỉ hỗ trợ file .csv hoặc .xlsx");
+        }
+
+        long started = System.currentTimeMillis();
+        ImportJob job = new ImportJob();
+        try {
+            if (name.endsWith(".csv")) {
+                try (InputStream in = file.getInputStream()) {
+                    ProductSheetReader.readCsv(in, job::accept);
+                }
+            } else {
+                // Event API của POI cần truy cập ngẫu nhiên vào file zip
+                Path tmp = Files.createTempFile("product-import-", ".xlsx");
+                try {
+                    file.transferTo(tmp);
+                    ProductSheetReader.readXlsx(tmp, job::accept);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không đọc được file import", e);
+        }
+        job.flush();
+
+        ProductImportResultDto result = job.result;
+        result.setDurationMs(System.currentTimeMillis() - started);
+        log.info("[IMPORT] {} rows, {} imported, {} failed in {} ms",
+                result.getTotalRows(), result.getImported(), result.getFailed(), result.getDurationMs());
+        return result;
+    }
+
+    @Override
+    public void exportProducts(String format, OutputStream out) throws IOException {
+        ProductSheetWriter writer = "xlsx".equalsIgnoreCase(format)
+                ? ProductSheetWriter.xlsx(out)
+                : ProductSheetWriter.csv(out);
+        productService.forEachProduct(p -> {
+            try {
+                writer.write(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.finish();
+    }
+
+    /**
+     * Trạng thái 1 lần import: tập id hợp lệ, tập mã đã dùng và chunk đang gom
+     */
+    private final class ImportJob {
+
+        private final ReferenceDataCache.Snapshot refs = referenceData.snapshot();
+        private final Set<String> usedCodes = catalogRepo.findAllCodes();
+        private final ProductImportResultDto result = new ProductImportResultDto();
+        private final List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        // Mã tự sinh: lấy số lớn nhất 1 lần rồi cấp tuần tự trong bộ nhớ
+        private long nextCodeNumber = catalogRepo.maxCodeNumber(CODE_PREFIX) + 1;
+
+        void accept(long rowNumber, Map<String, String> cells) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            try {
+                chunk.add(parse(rowNumber, cells));
+            } catch (IllegalArgumentException e) {
+                fail(rowNumber, e.getMessage());
+                return;
+            }
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<ImportRow> rows = new ArrayList<>(chunk);
+            chunk.clear();
+            try {
+                chunkTx.executeWithoutResult(status -> writeChunk(rows));
+                result.setImported(result.getImported() + rows.size());
+            } catch (RuntimeException e) {
+                log.warn("[IMPORT] Chunk rows {}-{} failed, retrying row by row: {}",
+                        rows.get(0).rowNumber, rows.get(rows.size() - 1).rowNumber, e.getMessage());
+                writeRowByRow(rows);
+            }
+        }
+
+        // Chunk đã rollback: ghi lại từng dòng để chỉ dòng lỗi bị bỏ và báo đúng lỗi của dòng đó
+        private void writeRowByRow(List<ImportRow> rows) {
+            for (ImportRow row : rows) {
+                row.product.setId(null);
+                try {
+                    chunkTx.executeWithoutResult(status -> writeChunk(List.of(row)));
+                    result.setImported(result.getImported() + 1);
+                } catch (RuntimeException e) {
+                    fail(row.rowNumber, "Lỗi ghi dữ liệu: " + rootMessage(e));
+                }
+            }
+        }
+
+        private void writeChunk(List<ImportRow> rows) {
+            Date now = new Date();
+            List<ShopProduct> products = new ArrayList<>(rows.size());
+            List<String> images = new ArrayList<>();
+            for (ImportRow row : rows) {
+                row.product.setCreatedAt(now);
+                row.product.setUpdatedAt(now);
+                products.add(row.product);
+                if (row.product.getImage() != null) {
+                    images.add(row.product.getImage());
+                }
+            }
+            catalogRepo.insertProducts(products);
+
+            List<ProductSupplier> links = new ArrayList<>();
+            for (ImportRow row : rows) {
+                for (int i = 0; i < row.supplierIds.size(); i++) {
+                    ProductSupplier ps = new ProductSupplier();
+                    ps.setProductId(row.product.getId());
+                    ps.setSupplierId(row.supplierIds.get(i));
+                    ps.setIsPrimary(i == 0);
+                    links.add(ps);
+                }
+            }
+            catalogRepo.insertProductSuppliers(links);
+            imageFiles.retainAll(images);
+
+            Map<Long, BigDecimal> basePrices = new HashMap<>();
+            for (ShopProduct p : products) {
+                basePrices.put(p.getId(), p.getUnitPrice());
+            }
+            effectivePrices.refreshProducts(basePrices);
+
+            searchIndex.indexAfterCommit(basePrices.keySet());
+        }
+
+        private ImportRow parse(long rowNumber, Map<String, String> cells) {
+            ShopProduct p = new ShopProduct();
+
+            String name = text(cells, "name");
+            if (name == null) {
+                throw new IllegalArgumentException("Thiếu tên sản phẩm (name)");
+            }
+            p.setName(name);
+
+            Long categoryId = id(cells, "categoryid");
+            if (categoryId == null) {
+                throw new IllegalArgumentException("categoryId không được để trống");
+            }
+            if (!refs.categories().containsKey(categoryId)) {
+                throw new IllegalArgumentException("Danh mục không tồn tại: " + categoryId);
+            }
+            p.setCategoryId(categoryId);
+
+            Long unitId = id(cells, "unitid");
+            if (unitId != null && !refs.units().containsKey(unitId)) {
+                throw new IllegalArgumentException("Đơn vị tính không tồn tại: " + unitId);
+            }
+            p.setUnitId(unitId);
+
+            List<Long> supplierIds = supplierIds(cells);
+            for (Long supplierId : supplierIds) {
+                if (!refs.suppliers().containsKey(supplierId)) {
+                    throw new IllegalArgumentException("Nhà cung cấp không tồn tại: " + supplierId);
+                }
+            }
+            if (!supplierIds.isEmpty()) {
+                p.setSupplierId(supplierIds.get(0));
+                try {
+                    p.setSupplierIds(objectMapper.writeValueAsString(supplierIds));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            String price = text(cells, "unitprice");
+            if (price != null) {
+                try {
+                    BigDecimal unitPrice = new BigDecimal(price);
+                    if (unitPrice.signum() < 0) {
+                        throw new IllegalArgumentException("Đơn giá không được âm");
+                    }
+                    p.setUnitPrice(unitPrice);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Đơn giá không hợp lệ: " + price);
+                }
+            }
+
+            String description = text(cells, "shortdescription");
+            if (description != null && description.length() > 5000) {
+                description = description.substring(0, 5000);
+            }
+            p.setShortDescription(description);
+            p.setImage(text(cells, "image"));
+            p.setStatus(text(cells, "status"));
+
+            // Kiểm tra mã cuối cùng để dòng lỗi không chiếm mã
+            String code = text(cells, "code");
+            if (code != null) {
+                if (!usedCodes.add(code)) {
+                    throw new IllegalArgumentException("Mã sản phẩm đã tồn tại: " + code);
+                }
+            } else {
+                code = allocateCode();
+            }
+            p.setCode(code);
+
+            return new ImportRow(rowNumber, p, supplierIds);
+        }
+
+        private String allocateCode() {
+            String code;
+            do {
+                code = CODE_PREFIX + String.format("%05d", nextCodeNumber++);
+            } while (!usedCodes.add(code));
+            return code;
+        }
+
+        private void fail(long rowNumber, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new ProductImportResultDto.RowError(rowNumber, message));
+            }
+        }
+    }
+
+    private record ImportRow(long rowNumber, ShopProduct product, List<Long> supplierIds) {
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private static String text(Map<String, String> cells, String column) {
+        String value = cells.get(column);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Long id(Map<String, String> cells, String column) {
+        String value = text(cells, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            // XLSX có thể trả số dạng "12.0"
+            return new BigDecimal(value).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException(column + " không hợp lệ: " + value);
+        }
+    }
+
+    // "3;5;7" (hoặc phân tách bằng , |), cột supplierId đơn lẻ để tương thích ngược
+    private static List<Long> supplierIds(Map<String, String> cells) {
+        Set<Long> ids = new LinkedHashSet<>();
+        String packed = text(cells, "supplierids");
+        if (packed != null) {
+            for (String part : packed.split("[;,|\\s]+")) {
+                if (!part.isEmpty()) {
+                    ids.add(id(Map.of("supplierids", part), "supplierids"));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            Long single = id(cells, "supplierid");
+            if (single != null) {
+                ids.add(single);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.product_service.service.impl;
+
+import com.example.product_service.entity.ProductImageFile;
+import com.example.product_service.repository.ProductImageFileRepository;
+import com.example.product_service.repository.ShopProductImageRepository;
+import com.example.product_service.repository.ShopProductRepository;
+import com.example.product_service.service.ProductImageFileService;
+import com.example.product_service.storage.ImageVariant;
+import com.example.product_service.storage.ProductImageStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class ProductImageFileServiceImpl implements ProductImageFileService {
+
+    private final ProductImageStorage storage;
+    private final ProductImageFileRepository fileRepo;
+    private final ShopProductRepository productRepo;
+    private final ShopProductImageRepository galleryRepo;
+
+    // File chưa được sản phẩm nào dùng phải chờ bao lâu mới dọn (upload xong FE mới lưu sản phẩm)
+    @Value("${file.cleanup-grace-hours:24}")
+    private long cleanupGraceHours;
+
+    public ProductImageFileServiceImpl(ProductImageStorage storage,
+            ProductImageFileRepository fileRepo,
+            ShopProductRepository productRepo,
+            ShopProductImageRepository galleryRepo) {
+        this.storage = storage;
+        this.fileRepo = fileRepo;
+        this.productRepo = productRepo;
+        this.galleryRepo = galleryRepo;
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        Path root = storage.root();
+        Path tmp = null;
+        try {
+            Files.createDirectories(root);
+            // Ghi ra file tạm và tính hash cùng lúc, không giữ cả file trong bộ nhớ
+            tmp = Files.createTempFile(root, ".upload-", ".tmp");
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+
+            Optional<ProductImageFile> existing = fileRepo.findById(hash);
+            if (existing.isPresent() && storage.resolve(existing.get().getFileName()).isPresent()) {
+                fileRepo.touchUnused(hash, new Date());
+                // Job dọn có thể vừa xóa bản ghi trước khi touch: khi đó lưu lại như file mới
+                if (fileRepo.existsById(hash)) {
+                    return existing.get().getFileName();
+                }
+            }
+
+            String fileName = existing.map(ProductImageFile::getFileName)
+                    .orElse(hash + extensionOf(file.getOriginalFilename()));
+            Files.move(tmp, root.resolve(fileName), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            return register(hash, fileName, size);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Không lưu được file ảnh", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // file tạm bắt đầu bằng "." nên không bao giờ được phục vụ ra ngoài
+                }
+            }
+        }
+    }
+
+    private String register(String hash, String fileName, long size) throws IOException {
+        if (fileRepo.existsById(hash)) {
+            return fileName;
+        }
+        Date now = new Date();
+        try {
+            fileRepo.saveAndFlush(new ProductImageFile(hash, fileName, size, 0, now, now));
+            return fileName;
+        } catch (DataIntegrityViolationException e) {
+            // Upload cùng nội dung song song (có thể khác đuôi file): dùng bản đã đăng ký trước
+            String winner = fileRepo.findById(hash).map(ProductImageFile::getFileName).orElse(fileName);
+            if (!winner.equals(fileName)) {
+                Files.deleteIfExists(storage.root().resolve(fileName));
+            }
+            return winner;
+        }
+    }
+
+    @Override
+    public void retain(String imageUrl) {
+        String fileName = storage.fileNameOf(imageUrl);
+        if (fileName != null) {
+            fileRepo.retain(fileName, 1);
+        }
+    }
+
+    @Override
+    public void retainAll(Collection<String> imageUrls) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String url : imageUrls) {
+            String fileName = storage.fileNameOf(url);
+            if (fileName != null) {
+                counts.merge(fileName, 1, Integer::sum);
+            }
+        }
+        counts.forEach(fileRepo::retain);
+    }
+
+    @Override
+    public void release(String imageUrl) {
+        String fileName = storage.fileNameOf(imageUrl);
+        if (fileName != null) {
+            fileRepo.release(fileName, new Date());
+        }
+    }
+
+    /**
+     * Xóa file không còn sản phẩm nào dùng quá thời gian chờ (kèm ảnh thu nhỏ).
+     * Ảnh cũ đặt tên UUID không có trong bảng nên không bao giờ bị xóa.
+     *
+     * Ảnh gallery (shop_product_images) được đếm vào ref_count khi gặp ở đây nên không bị dọn.
+     * Upload song song thấy bản ghi vừa bị xóa sẽ ghi lại file: xem {@link #purge}.
+     */
+    @Scheduled(cron = "${file.cleanup-cron:0 30 3 * * *}")
+    public void purgeUnused() {
+        Date before = new Date(System.currentTimeMillis() - cleanupGraceHours * 3600 * 1000);
+        List<ProductImageFile> candidates = fileRepo.findUnusedBefore(before, PageRequest.of(0, 500));
+        int deleted = 0;
+        for (ProductImageFile f : candidates) {
+            String url = storage.urlOf(f.getFileName());
+            long refs = productRepo.countByImage(url) + galleryRepo.countByImage(url);
+            if (refs > 0) {
+                fileRepo.recount(f.getContentHash(), (int) Math.min(refs, Integer.MAX_VALUE));
+                log.info("[IMAGE] {} is still referenced {} times, ref_count updated", f.getFileName(), refs);
+                continue;
+            }
+            Path path = storage.root().resolve(f.getFileName());
+            if (writtenAfter(path, before) || fileRepo.deleteIfUnused(f.getContentHash(), before) == 0) {
+                continue;
+            }
+            try {
+                if (purge(f, path, before)) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                log.warn("[IMAGE] Failed to delete {}: {}", f.getFileName(), e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            log.info("[IMAGE] Purged {} unused image files", deleted);
+        }
+    }
+
+    /**
+     * Xóa file sau khi bản ghi đã bị xóa. Upload cùng nội dung có thể ghi lại file bất cứ lúc nào
+     * (Files.move trong store), nên không kiểm tra rồi xóa trực tiếp: đổi tên nguyên tử sang
+     * ".purge-*" (không bao giờ được phục vụ), kiểm tra lại rồi mới xóa hoặc trả tên cũ.
+     * Upload ghi file sau khi đổi tên thì file mới nằm ở tên gốc, không bị đụng tới.
+     *
+     * @return true nếu đã xóa file
+     */
+    private boolean purge(ProductImageFile f, Path path, Date before) throws IOException {
+        Path parked = path.resolveSibling(".purge-" + f.getFileName());
+        try {
+            Files.move(path, parked, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // Upload chen giữa đã ghi file mới (mtime mới) hoặc đã đăng ký lại bản ghi: trả file về
+        if (writtenAfter(parked, before) || fileRepo.existsById(f.getContentHash())) {
+            Files.move(parked, path, StandardCopyOption.ATOMIC_MOVE);
+            return false;
+        }
+        Files.delete(parked);
+        for (ImageVariant variant : ImageVariant.values()) {
+            Files.deleteIfExists(storage.root().resolve(
+                    ProductImageStorage.variantName(f.getFileName(), variant)));
+        }
+        return true;
+    }
+
+    private static boolean writtenAfter(Path path, Date before) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis() >= before.getTime();
+        } catch (IOException e) { // file không còn trên đĩa
+            return false;
+        }
+    }
+
+    // Chỉ giữ đuôi file dạng .jpg/.png/... (chữ thường) để tên file luôn hợp lệ khi phục vụ lại
+    private static String extensionOf(String originalName) {
+        if (originalName == null) {
+            return "";
+        }
+        int dot = originalName.lastIndexOf('.');
+        String ext = dot >= 0 ? originalName.substring(dot).toLowerCase() : "";
+        return ext.matches("\\.[a-z0-9]+") ? ext : "";
+    }
+}
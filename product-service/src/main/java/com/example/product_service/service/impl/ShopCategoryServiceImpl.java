@@ -1,5 +1,6 @@
 package com.example.product_service.service.impl;
 
+import com.example.product_service.cache.ReferenceDataCache;
 import com.example.product_service.dto.CategoryDto;
 import com.example.product_service.dto.CategoryRequest;
 import com.example.product_service.entity.ShopCategory;
@@ -20,18 +21,26 @@ import java.util.List;
 public class ShopCategoryServiceImpl implements ShopCategoryService {
 
     private final ShopCategoryRepository repo;
+    private final ReferenceDataCache referenceData;
 
     @Override
     public List<CategoryDto> getAll() {
-        return repo.findAll().stream()
+        return getAll(referenceData.snapshot());
+    }
+
+    @Override
+    public List<CategoryDto> getAll(ReferenceDataCache.Snapshot snapshot) {
+        return snapshot.categories().values().stream()
                 .map(this::toDto)
                 .toList();
     }
 
     @Override
     public CategoryDto getById(Long id) {
-        ShopCategory cat = repo.findById(id)
-                .orElseThrow(() -> new NotFoundException("Category not found: " + id));
+        ShopCategory cat = referenceData.category(id);
+        if (cat == null) {
+            throw new NotFoundException("Category not found: " + id);
+        }
         return toDto(cat);
     }
 
@@ -46,7 +55,9 @@ public class ShopCategoryServiceImpl implements ShopCategoryService {
         apply(req, c);
         c.setCreatedAt(LocalDateTime.now());
         c.setUpdatedAt(LocalDateTime.now());
-        return toDto(repo.save(c));
+        ShopCategory saved = repo.save(c);
+        referenceData.invalidate();
+        return toDto(saved);
     }
 
     /**
@@ -82,7 +93,9 @@ public class ShopCategoryServiceImpl implements ShopCategoryService {
 
         apply(req, c);
         c.setUpdatedAt(LocalDateTime.now());
-        return toDto(repo.save(c));
+        ShopCategory saved = repo.save(c);
+        referenceData.invalidate();
+        return toDto(saved);
     }
 
     @Override
@@ -91,6 +104,7 @@ public class ShopCategoryServiceImpl implements ShopCategoryService {
             throw new NotFoundException("Category not found: " + id);
         }
         repo.deleteById(id);
+        referenceData.invalidate();
     }
 
     @Override
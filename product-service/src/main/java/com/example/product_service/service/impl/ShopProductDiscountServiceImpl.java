@@ -1,23 +1,97 @@
 package com.example.product_service.service.impl;
 
+import com.example.product_service.dto.DiscountRequest;
 import com.example.product_service.entity.ShopProductDiscount;
+import com.example.product_service.exception.NotFoundException;
 import com.example.product_service.repository.ShopProductDiscountRepository;
+import com.example.product_service.repository.ShopProductRepository;
+import com.example.product_service.service.EffectivePriceService;
 import com.example.product_service.service.ShopProductDiscountService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Service
 public class ShopProductDiscountServiceImpl implements ShopProductDiscountService {
 
     private final ShopProductDiscountRepository repo;
+    private final ShopProductRepository productRepo;
+    private final EffectivePriceService effectivePrices;
 
-    public ShopProductDiscountServiceImpl(ShopProductDiscountRepository repo) {
+    public ShopProductDiscountServiceImpl(ShopProductDiscountRepository repo,
+            ShopProductRepository productRepo,
+            EffectivePriceService effectivePrices) {
         this.repo = repo;
+        this.productRepo = productRepo;
+        this.effectivePrices = effectivePrices;
     }
 
     @Override
     public List<ShopProductDiscount> findByProduct(Long productId) {
         return repo.findByProductId(productId);
     }
+
+    @Override
+    @Transactional
+    public ShopProductDiscount create(Long productId, DiscountRequest request) {
+        if (!productRepo.existsById(productId)) {
+            throw new NotFoundException("Product not found: " + productId);
+        }
+        ShopProductDiscount d = new ShopProductDiscount();
+        d.setProductId(productId);
+        applyRequest(request, d);
+        ShopProductDiscount saved = repo.saveAndFlush(d);
+        // Tính lại giá bán hiện hành ngay trong transaction này
+        effectivePrices.recompute(List.of(productId));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public ShopProductDiscount update(Long productId, Long discountId, DiscountRequest request) {
+        ShopProductDiscount d = findOwned(productId, discountId);
+        applyRequest(request, d);
+        ShopProductDiscount saved = repo.saveAndFlush(d);
+        effectivePrices.recompute(List.of(productId));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void delete(Long productId, Long discountId) {
+        ShopProductDiscount d = findOwned(productId, discountId);
+        repo.delete(d);
+        repo.flush();
+        effectivePrices.recompute(List.of(productId));
+    }
+
+    private ShopProductDiscount findOwned(Long productId, Long discountId) {
+        return repo.findById(discountId)
+                .filter(d -> productId.equals(d.getProductId()))
+                .orElseThrow(() -> new NotFoundException("Discount not found: " + discountId));
+    }
+
+    private void applyRequest(DiscountRequest req, ShopProductDiscount d) {
+        if (req.getDiscountAmount() == null && req.getDiscountPercent() == null) {
+            throw new IllegalArgumentException("Phải nhập số tiền giảm hoặc % giảm");
+        }
+        if (req.getDiscountAmount() != null && req.getDiscountAmount().signum() < 0) {
+            throw new IllegalArgumentException("Số tiền giảm không được âm");
+        }
+        if (req.getDiscountPercent() != null && (req.getDiscountPercent().signum() < 0
+                || req.getDiscountPercent().compareTo(BigDecimal.valueOf(100)) > 0)) {
+            throw new IllegalArgumentException("% giảm phải trong khoảng 0..100");
+        }
+        if (req.getStartDate() != null && req.getEndDate() != null
+                && !req.getEndDate().isAfter(req.getStartDate())) {
+            throw new IllegalArgumentException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        d.setDiscountName(req.getDiscountName());
+        d.setDiscountAmount(req.getDiscountAmount());
+        d.setDiscountPercent(req.getDiscountPercent());
+        d.setStartDate(req.getStartDate());
+        d.setEndDate(req.getEndDate());
+    }
 }
@@ -1,24 +1,44 @@
 package com.example.product_service.service.impl;
 
+import com.example.product_service.cache.ReferenceDataCache;
+import com.example.product_service.dto.ProductChangesDto;
 import com.example.product_service.dto.ProductDto;
 import com.example.product_service.dto.ProductRequest;
+import com.example.product_service.entity.ProductSupplier;
+import com.example.product_service.entity.ShopCategory;
 import com.example.product_service.entity.ShopProduct;
+import com.example.product_service.entity.ShopProductUnit;
+import com.example.product_service.entity.ProductTombstone;
 import com.example.product_service.exception.NotFoundException;
-import com.example.product_service.repository.ShopCategoryRepository;
+import com.example.product_service.repository.ProductCatalogJdbcRepository;
+import com.example.product_service.repository.ProductTombstoneRepository;
 import com.example.product_service.repository.ShopProductRepository;
+import com.example.product_service.search.ProductSearchIndex;
+import com.example.product_service.dto.EffectivePriceDto;
+import com.example.product_service.service.EffectivePriceService;
+import com.example.product_service.service.ProductImageFileService;
 import com.example.product_service.service.ShopProductService;
+import com.example.product_service.storage.ImageVariant;
+import com.example.product_service.storage.ProductImageStorage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.ArrayList;
@@ -27,24 +47,71 @@ import java.util.ArrayList;
 public class ShopProductServiceImpl implements ShopProductService {
 
     private final ShopProductRepository repo;
-    private final ShopCategoryRepository categoryRepo;
+    private final ProductCatalogJdbcRepository catalogRepo;
+    private final ProductTombstoneRepository tombstoneRepo;
+    private final ReferenceDataCache referenceData;
+    private final ProductSearchIndex searchIndex;
+    private final ProductImageStorage imageStorage;
+    private final ProductImageFileService imageFiles;
+    private final EffectivePriceService effectivePrices;
     private final com.example.product_service.repository.ProductSupplierRepository productSupplierRepo;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // ✅ Constructor duy nhất, tiêm cả 2 repo
+    // Change feed chỉ trả các thay đổi cũ hơn khoảng này, để transaction đang chạy kịp commit
+    @Value("${product.changes.settle-ms:5000}")
+    private long changesSettleMs;
+
+    // Tombstone giữ bao lâu; cursor cũ hơn phải đồng bộ lại từ đầu
+    @Value("${product.changes.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
+
+    // ✅ Constructor duy nhất
     public ShopProductServiceImpl(ShopProductRepository repo,
-            ShopCategoryRepository categoryRepo,
+            ProductCatalogJdbcRepository catalogRepo,
+            ProductTombstoneRepository tombstoneRepo,
+            ReferenceDataCache referenceData,
+            ProductSearchIndex searchIndex,
+            ProductImageStorage imageStorage,
+            ProductImageFileService imageFiles,
+            EffectivePriceService effectivePrices,
             com.example.product_service.repository.ProductSupplierRepository productSupplierRepo) {
         this.repo = repo;
-        this.categoryRepo = categoryRepo;
+        this.catalogRepo = catalogRepo;
+        this.tombstoneRepo = tombstoneRepo;
+        this.referenceData = referenceData;
+        this.searchIndex = searchIndex;
+        this.imageStorage = imageStorage;
+        this.imageFiles = imageFiles;
+        this.effectivePrices = effectivePrices;
         this.productSupplierRepo = productSupplierRepo;
     }
 
     @Override
     public List<ProductDto> getAll() {
-        return repo.findAll().stream()
-                .map(this::toDto)
-                .toList();
+        // 1 query (kèm NCC) thay vì 1 query NCC cho mỗi sản phẩm
+        List<ProductDto> result = new ArrayList<>();
+        forEachProduct(result::add);
+        return result;
+    }
+
+    @Override
+    public void forEachProduct(Consumer<ProductDto> consumer) {
+        catalogRepo.streamAll((p, suppliers) -> consumer.accept(toDto(p, suppliers)));
+    }
+
+    @Override
+    public String catalogEtag() {
+        // Bảng giá chưa nạp xong: body chưa có giảm giá, không gắn ETag để client không giữ lại
+        String priceVersion = effectivePrices.version();
+        if (priceVersion == null) {
+            return null;
+        }
+        ProductCatalogJdbcRepository.CatalogStats stats = catalogRepo.stats();
+        // categoryName / unitName lấy từ dữ liệu tham chiếu, effectivePrice từ bảng giá trong bộ nhớ
+        // nên ETag phải đổi theo cả 2
+        String refTag = referenceData.snapshot().etag().replace("\"", "");
+        return "\"catalog-" + stats.count() + "-" + Long.toHexString(stats.maxUpdatedAt()) + "-" + refTag
+                + "-" + priceVersion + "\"";
     }
 
     @Override
@@ -62,11 +129,14 @@ public class ShopProductServiceImpl implements ShopProductService {
         p.setCreatedAt(new Date());
         p.setUpdatedAt(new Date());
         ShopProduct saved = repo.save(p);
+        imageFiles.retain(saved.getImage());
 
         // Lưu nhiều NCC vào junction table
-        saveProductSuppliers(saved.getId(), request);
+        List<ProductSupplier> suppliers = saveProductSuppliers(saved.getId(), request);
+        searchIndex.indexAfterCommit(saved);
+        effectivePrices.refreshProducts(Collections.singletonMap(saved.getId(), saved.getUnitPrice()));
 
-        return toDto(saved);
+        return toDto(saved, suppliers);
     }
 
     @Override
@@ -75,29 +145,36 @@ public class ShopProductServiceImpl implements ShopProductService {
         ShopProduct p = repo.findById(id)
                 .orElseThrow(() -> new NotFoundException("Product not found: " + id));
 
+        String oldImage = p.getImage();
         applyRequestToEntity(request, p);
         p.setUpdatedAt(new Date());
         ShopProduct saved = repo.save(p);
+        if (!Objects.equals(oldImage, saved.getImage())) {
+            imageFiles.release(oldImage);
+            imageFiles.retain(saved.getImage());
+        }
 
-        // Cập nhật nhiều NCC vào junction table
-        saveProductSuppliers(saved.getId(), request);
-
-        // Reload product để đảm bảo có dữ liệu mới nhất
-        ShopProduct reloaded = repo.findById(saved.getId())
-                .orElseThrow(() -> new NotFoundException("Product not found after update: " + id));
+        // Cập nhật nhiều NCC vào junction table (chỉ ghi phần thay đổi)
+        List<ProductSupplier> suppliers = saveProductSuppliers(saved.getId(), request);
+        searchIndex.indexAfterCommit(saved);
+        effectivePrices.refreshProducts(Collections.singletonMap(saved.getId(), saved.getUnitPrice()));
 
-        return toDto(reloaded);
+        // Entity và danh sách NCC đã là trạng thái mới nhất, không cần đọc lại
+        return toDto(saved, suppliers);
     }
 
     @Override
     @Transactional
     public void delete(Long id) {
-        if (!repo.existsById(id)) {
-            throw new NotFoundException("Product not found: " + id);
-        }
+        ShopProduct p = repo.findById(id)
+                .orElseThrow(() -> new NotFoundException("Product not found: " + id));
 
         try {
             repo.deleteById(id);
+            imageFiles.release(p.getImage());
+            effectivePrices.remove(id);
+            tombstoneRepo.save(new ProductTombstone(null, id, new Date()));
+            searchIndex.removeAfterCommit(id);
         } catch (org.springframework.dao.DataIntegrityViolationException e) {
             throw new IllegalStateException(
                     "Không thể xóa sản phẩm này vì đang được sử dụng trong phiếu nhập/xuất kho hoặc tồn kho. " +
@@ -105,6 +182,88 @@ public class ShopProductServiceImpl implements ShopProductService {
         }
     }
 
+    // ---------- change feed ----------
+
+    @Override
+    public ProductChangesDto getChanges(String since, int limit) {
+        long now = System.currentTimeMillis();
+        ChangeCursor cursor = since == null || since.isBlank() ? ChangeCursor.START : ChangeCursor.decode(since);
+
+        ProductChangesDto result = new ProductChangesDto();
+        if (cursor != ChangeCursor.START
+                && cursor.issuedAt() < now - tombstoneRetentionDays * 24L * 3600 * 1000) {
+            // Tombstone có thể đã bị dọn, không đảm bảo đủ thao tác xóa
+            result.setUpserts(List.of());
+            result.setDeletions(List.of());
+            result.setResyncRequired(true);
+            return result;
+        }
+
+        Date until = new Date(now - changesSettleMs);
+
+        // Đọc limit + 1 dòng để biết còn dữ liệu hay không
+        List<ProductDto> upserts = new ArrayList<>();
+        long[] lastUpsert = { cursor.updatedAt(), cursor.productId() };
+        int[] rows = { 0 };
+        catalogRepo.findChangedSince(new Date(cursor.updatedAt()), cursor.productId(), until, limit + 1,
+                (p, suppliers) -> {
+                    if (++rows[0] <= limit) {
+                        upserts.add(toDto(p, suppliers));
+                        lastUpsert[0] = p.getUpdatedAt().getTime();
+                        lastUpsert[1] = p.getId();
+                    }
+                });
+        boolean moreUpserts = rows[0] > limit;
+
+        List<ProductTombstone> tombstones = tombstoneRepo.findByIdGreaterThanAndDeletedAtLessThanEqualOrderByIdAsc(
+                cursor.tombstoneId(), until, PageRequest.of(0, limit + 1));
+        boolean moreDeletions = tombstones.size() > limit;
+        if (moreDeletions) {
+            tombstones = tombstones.subList(0, limit);
+        }
+        long lastTombstone = tombstones.isEmpty() ? cursor.tombstoneId() : tombstones.get(tombstones.size() - 1).getId();
+
+        result.setUpserts(upserts);
+        result.setDeletions(tombstones.stream().map(ProductTombstone::getProductId).toList());
+        result.setHasMore(moreUpserts || moreDeletions);
+        result.setNextCursor(new ChangeCursor(lastUpsert[0], lastUpsert[1], lastTombstone, now).encode());
+        return result;
+    }
+
+    /**
+     * Dọn tombstone quá hạn lưu giữ (mỗi ngày lúc 3h sáng)
+     */
+    @Scheduled(cron = "${product.changes.tombstone-cleanup-cron:0 0 3 * * *}")
+    @Transactional
+    public void purgeTombstones() {
+        Date before = new Date(System.currentTimeMillis() - tombstoneRetentionDays * 24L * 3600 * 1000);
+        tombstoneRepo.deleteOlderThan(before);
+    }
+
+    /**
+     * Vị trí đã đọc tới trong feed: (updatedAt, id) của sản phẩm, id tombstone, và thời điểm cấp cursor
+     */
+    private record ChangeCursor(long updatedAt, long productId, long tombstoneId, long issuedAt) {
+
+        static final ChangeCursor START = new ChangeCursor(0L, 0L, 0L, 0L);
+
+        String encode() {
+            String raw = updatedAt + ":" + productId + ":" + tombstoneId + ":" + issuedAt;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ChangeCursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":");
+                return new ChangeCursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor không hợp lệ: " + value);
+            }
+        }
+    }
+
     // ✅ search + phân trang
     @Override
     public Page<ProductDto> search(String code,
@@ -113,6 +272,11 @@ public class ShopProductServiceImpl implements ShopProductService {
             LocalDate toDate,
             Pageable pageable) {
 
+        boolean hasText = (code != null && !code.isBlank()) || (name != null && !name.isBlank());
+        if (hasText && searchIndex.isReady()) {
+            return searchFromIndex(code, name, fromDate, toDate, pageable);
+        }
+
         Specification<ShopProduct> spec = Specification.where(null);
 
         if (code != null && !code.isBlank()) {
@@ -141,16 +305,67 @@ public class ShopProductServiceImpl implements ShopProductService {
                 .map(this::toDto);
     }
 
+    /**
+     * Tìm id (đã phân trang) từ full-text index, sau đó chỉ load đúng các sản phẩm của trang
+     */
+    private Page<ProductDto> searchFromIndex(String code,
+            String name,
+            LocalDate fromDate,
+            LocalDate toDate,
+            Pageable pageable) {
+        Date from = fromDate != null
+                ? Date.from(fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant())
+                : null;
+        Date to = toDate != null
+                ? Date.from(toDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant())
+                : null;
+
+        ProductSearchIndex.SearchResult result = searchIndex.search(code, name, from, to, pageable);
+
+        Map<Long, ShopProduct> byId = repo.findAllById(result.ids()).stream()
+                .collect(Collectors.toMap(ShopProduct::getId, p -> p));
+        List<ProductDto> content = result.ids().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::toDto)
+                .toList();
+
+        return new PageImpl<>(content, pageable, result.total());
+    }
+
     // ---------- mapping helpers ----------
 
     private ProductDto toDto(ShopProduct p) {
+        List<ProductSupplier> productSuppliers = null;
+        try {
+            productSuppliers = productSupplierRepo.findByProductId(p.getId());
+        } catch (Exception e) {
+            System.err.println(
+                    "Error loading product suppliers for productId: " + p.getId() + ", error: " + e.getMessage());
+            e.printStackTrace();
+            // Nếu lỗi, fallback về supplierId từ entity
+        }
+        return toDto(p, productSuppliers);
+    }
+
+    private ProductDto toDto(ShopProduct p, List<ProductSupplier> productSuppliers) {
         ProductDto dto = new ProductDto();
         dto.setId(p.getId());
         dto.setCode(p.getCode());
         dto.setName(p.getName());
         dto.setShortDescription(p.getShortDescription());
         dto.setImage(p.getImage());
+        dto.setImageThumb(imageStorage.variantUrl(p.getImage(), ImageVariant.THUMB));
+        dto.setImageMedium(imageStorage.variantUrl(p.getImage(), ImageVariant.MEDIUM));
         dto.setUnitPrice(p.getUnitPrice());
+        EffectivePriceDto price = effectivePrices.get(p.getId());
+        if (price != null && samePrice(price.getBasePrice(), p.getUnitPrice())) {
+            dto.setEffectivePrice(price.getEffectivePrice());
+            dto.setDiscountName(price.getDiscountName());
+        } else {
+            // Chưa tính xong (mới khởi động) hoặc đơn giá vừa đổi: coi như không giảm giá
+            dto.setEffectivePrice(p.getUnitPrice());
+        }
         dto.setStatus(p.getStatus());
         dto.setCategoryId(p.getCategoryId());
         dto.setSupplierId(p.getSupplierId());
@@ -158,43 +373,39 @@ public class ShopProductServiceImpl implements ShopProductService {
         dto.setCreatedAt(p.getCreatedAt());
         dto.setUpdatedAt(p.getUpdatedAt());
 
-        // ⭐ LẤY CATEGORY NAME
-        if (p.getCategoryId() != null) {
-            categoryRepo.findById(p.getCategoryId())
-                    .ifPresent(cat -> dto.setCategoryName(cat.getName()));
+        // ⭐ LẤY CATEGORY NAME + UNIT NAME (từ cache, không query DB)
+        ShopCategory cat = referenceData.category(p.getCategoryId());
+        if (cat != null) {
+            dto.setCategoryName(cat.getName());
+        }
+        ShopProductUnit unit = referenceData.unit(p.getUnitId());
+        if (unit != null) {
+            dto.setUnitName(unit.getName());
+            dto.setUnit(unit.getName());
         }
 
         // ⭐ LẤY DANH SÁCH NCC TỪ JUNCTION TABLE
-        try {
-            List<com.example.product_service.entity.ProductSupplier> productSuppliers = productSupplierRepo
-                    .findByProductId(p.getId());
-            if (productSuppliers != null && !productSuppliers.isEmpty()) {
-                List<Long> supplierIds = productSuppliers.stream()
-                        .map(com.example.product_service.entity.ProductSupplier::getSupplierId)
-                        .filter(id -> id != null)
-                        .distinct()
-                        .collect(Collectors.toList());
-
-                if (!supplierIds.isEmpty()) {
-                    dto.setSupplierIds(supplierIds);
-
-                    // Set NCC chính (isPrimary = true) hoặc NCC đầu tiên
-                    Optional<com.example.product_service.entity.ProductSupplier> primary = productSuppliers.stream()
-                            .filter(ps -> Boolean.TRUE.equals(ps.getIsPrimary()))
-                            .findFirst();
-
-                    if (primary.isPresent()) {
-                        dto.setSupplierId(primary.get().getSupplierId());
-                    } else if (!supplierIds.isEmpty()) {
-                        dto.setSupplierId(supplierIds.get(0));
-                    }
+        if (productSuppliers != null && !productSuppliers.isEmpty()) {
+            List<Long> supplierIds = productSuppliers.stream()
+                    .map(ProductSupplier::getSupplierId)
+                    .filter(id -> id != null)
+                    .distinct()
+                    .collect(Collectors.toList());
+
+            if (!supplierIds.isEmpty()) {
+                dto.setSupplierIds(supplierIds);
+
+                // Set NCC chính (isPrimary = true) hoặc NCC đầu tiên
+                Optional<ProductSupplier> primary = productSuppliers.stream()
+                        .filter(ps -> Boolean.TRUE.equals(ps.getIsPrimary()))
+                        .findFirst();
+
+                if (primary.isPresent()) {
+                    dto.setSupplierId(primary.get().getSupplierId());
+                } else {
+                    dto.setSupplierId(supplierIds.get(0));
                 }
             }
-        } catch (Exception e) {
-            System.err.println(
-                    "Error loading product suppliers for productId: " + p.getId() + ", error: " + e.getMessage());
-            e.printStackTrace();
-            // Nếu lỗi, fallback về supplierId từ entity
         }
 
         // Nếu không có trong junction table, dùng supplierId từ entity (tương thích
@@ -227,6 +438,10 @@ public class ShopProductServiceImpl implements ShopProductService {
         return dto;
     }
 
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
     private void applyRequestToEntity(ProductRequest req, ShopProduct p) {
         // Tự động tạo mã nếu không có trong request
         if (req.getCode() != null && !req.getCode().isBlank()) {
@@ -281,8 +496,13 @@ public class ShopProductServiceImpl implements ShopProductService {
         }
     }
 
-    // Lưu nhiều NCC vào junction table
-    private void saveProductSuppliers(Long productId, ProductRequest request) {
+    /**
+     * Đồng bộ junction table với danh sách NCC trong request bằng cách so sánh với dữ liệu hiện có:
+     * 1 câu DELETE cho NCC bị bỏ, 1 batch INSERT cho NCC mới, 1 câu UPDATE khi đổi NCC chính.
+     *
+     * @return danh sách NCC sau khi lưu (NCC chính đứng đầu)
+     */
+    private List<ProductSupplier> saveProductSuppliers(Long productId, ProductRequest request) {
         try {
             List<Long> supplierIdsList = request.getSupplierIds();
 
@@ -293,7 +513,7 @@ public class ShopProductServiceImpl implements ShopProductService {
                     supplierIdsList = Arrays.asList(request.getSupplierId());
                 } else {
                     // Nếu cả supplierIds và supplierId đều null, giữ nguyên NCC cũ
-                    return;
+                    return productSupplierRepo.findByProductId(productId);
                 }
             }
 
@@ -303,52 +523,54 @@ public class ShopProductServiceImpl implements ShopProductService {
                     .distinct()
                     .collect(Collectors.toList());
 
+            List<ProductSupplier> existingSuppliers = productSupplierRepo.findByProductId(productId);
+
             if (supplierIdsList.isEmpty()) {
                 // Nếu không có NCC hợp lệ, xóa hết NCC cũ
-                productSupplierRepo.deleteByProductId(productId);
-                return;
+                if (!existingSuppliers.isEmpty()) {
+                    productSupplierRepo.deleteByProductIdInBatch(productId);
+                }
+                return new ArrayList<>();
             }
 
-            // Lấy danh sách NCC hiện tại
-            List<com.example.product_service.entity.ProductSupplier> existingSuppliers = productSupplierRepo
-                    .findByProductId(productId);
-
-            // Tạo map để kiểm tra nhanh
-            Map<Long, com.example.product_service.entity.ProductSupplier> existingMap = existingSuppliers.stream()
-                    .collect(Collectors.toMap(
-                            com.example.product_service.entity.ProductSupplier::getSupplierId,
-                            ps -> ps,
+            Map<Long, ProductSupplier> existingMap = existingSuppliers.stream()
+                    .collect(Collectors.toMap(ProductSupplier::getSupplierId, ps -> ps,
                             (existing, replacement) -> existing));
-
-            // Xóa các NCC không còn trong danh sách mới
-            List<Long> supplierIdsToKeep = new ArrayList<>(supplierIdsList);
-            for (com.example.product_service.entity.ProductSupplier existing : existingSuppliers) {
-                if (!supplierIdsToKeep.contains(existing.getSupplierId())) {
-                    productSupplierRepo.delete(existing);
+            Long primaryId = supplierIdsList.get(0);
+            Set<Long> wanted = new HashSet<>(supplierIdsList);
+
+            // Xóa các NCC không còn trong danh sách mới (kể cả dòng trùng cũ)
+            List<Long> toDelete = new ArrayList<>();
+            for (ProductSupplier existing : existingSuppliers) {
+                if (!wanted.contains(existing.getSupplierId()) || existingMap.get(existing.getSupplierId()) != existing) {
+                    toDelete.add(existing.getId());
                 }
             }
+            if (!toDelete.isEmpty()) {
+                productSupplierRepo.deleteAllByIdInBatch(toDelete);
+            }
 
-            // Lưu hoặc cập nhật từng NCC
-            for (int i = 0; i < supplierIdsList.size(); i++) {
-                Long supplierId = supplierIdsList.get(i);
-                if (supplierId == null) {
-                    continue; // Bỏ qua nếu null
-                }
-
-                com.example.product_service.entity.ProductSupplier ps = existingMap.get(supplierId);
-                boolean isNew = ps == null;
-
-                if (isNew) {
-                    ps = new com.example.product_service.entity.ProductSupplier();
+            // Thêm NCC mới, đã set sẵn cờ NCC chính (NCC đầu tiên)
+            List<ProductSupplier> result = new ArrayList<>(supplierIdsList.size());
+            List<ProductSupplier> toInsert = new ArrayList<>();
+            for (Long supplierId : supplierIdsList) {
+                boolean isPrimary = supplierId.equals(primaryId);
+                ProductSupplier ps = existingMap.get(supplierId);
+                if (ps == null) {
+                    ps = new ProductSupplier();
                     ps.setProductId(productId);
                     ps.setSupplierId(supplierId);
+                    ps.setIsPrimary(isPrimary);
+                    toInsert.add(ps);
+                } else if (Boolean.TRUE.equals(ps.getIsPrimary()) != isPrimary) {
+                    // Đổi NCC chính trong số NCC đã có: chỉ các dòng đổi cờ (thường 2 dòng) được
+                    // dirty checking UPDATE lúc flush, updated_at do @PreUpdate set
+                    ps.setIsPrimary(isPrimary);
                 }
-
-                // Cập nhật isPrimary (NCC đầu tiên là NCC chính)
-                ps.setIsPrimary(i == 0);
-
-                productSupplierRepo.save(ps);
+                result.add(ps);
             }
+            catalogRepo.insertProductSuppliers(toInsert);
+            return result;
         } catch (Exception e) {
             System.err.println(
                     "Error in saveProductSuppliers for productId: " + productId + ", error: " + e.getMessage());
@@ -362,22 +584,8 @@ public class ShopProductServiceImpl implements ShopProductService {
      */
     private String generateProductCode() {
         String prefix = "SP";
-        List<ShopProduct> existing = repo.findByCodeStartingWith(prefix);
-        long maxNumber = 0;
-
-        for (ShopProduct p : existing) {
-            if (p.getCode() != null && p.getCode().length() >= 3) {
-                try {
-                    String numberPart = p.getCode().substring(2);
-                    long num = Long.parseLong(numberPart);
-                    if (num > maxNumber) {
-                        maxNumber = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Bỏ qua nếu không parse được số
-                }
-            }
-        }
+        // MAX trên DB thay vì nạp mọi sản phẩm có mã SP...
+        long maxNumber = catalogRepo.maxCodeNumber(prefix);
 
         long nextNumber = maxNumber + 1;
         return prefix + String.format("%05d", nextNumber);
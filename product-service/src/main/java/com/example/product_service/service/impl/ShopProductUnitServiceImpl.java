@@ -1,5 +1,6 @@
 package com.example.product_service.service.impl;
 
+import com.example.product_service.cache.ReferenceDataCache;
 import com.example.product_service.dto.UnitDto;
 import com.example.product_service.dto.UnitRequest;
 import com.example.product_service.entity.ShopProductUnit;
@@ -9,7 +10,6 @@ import com.example.product_service.repository.ShopProductUnitRepository;
 import com.example.product_service.service.ShopProductUnitService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,16 +22,25 @@ public class ShopProductUnitServiceImpl implements ShopProductUnitService {
 
     private final ShopProductUnitRepository unitRepository;
     private final ShopProductRepository productRepository;
+    private final ReferenceDataCache referenceData;
 
     public ShopProductUnitServiceImpl(ShopProductUnitRepository unitRepository,
-            ShopProductRepository productRepository) {
+            ShopProductRepository productRepository,
+            ReferenceDataCache referenceData) {
         this.unitRepository = unitRepository;
         this.productRepository = productRepository;
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<UnitDto> getAll() {
-        return unitRepository.findAll(Sort.by(Sort.Direction.ASC, "name"))
+        return getAll(referenceData.snapshot());
+    }
+
+    @Override
+    public List<UnitDto> getAll(ReferenceDataCache.Snapshot snapshot) {
+        // Snapshot đã sắp xếp theo name
+        return snapshot.units().values()
                 .stream()
                 .map(this::toDto)
                 .toList();
@@ -39,8 +48,10 @@ public class ShopProductUnitServiceImpl implements ShopProductUnitService {
 
     @Override
     public UnitDto getById(Long id) {
-        ShopProductUnit unit = unitRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Unit not found: " + id));
+        ShopProductUnit unit = referenceData.unit(id);
+        if (unit == null) {
+            throw new NotFoundException("Unit not found: " + id);
+        }
         return toDto(unit);
     }
 
@@ -57,7 +68,9 @@ public class ShopProductUnitServiceImpl implements ShopProductUnitService {
         unit.setCreatedAt(new Date());
         unit.setUpdatedAt(new Date());
 
-        return toDto(unitRepository.save(unit));
+        ShopProductUnit saved = unitRepository.save(unit);
+        referenceData.invalidate();
+        return toDto(saved);
     }
 
     @Override
@@ -78,7 +91,9 @@ public class ShopProductUnitServiceImpl implements ShopProductUnitService {
 
         unit.setUpdatedAt(new Date());
 
-        return toDto(unitRepository.save(unit));
+        ShopProductUnit saved = unitRepository.save(unit);
+        referenceData.invalidate();
+        return toDto(saved);
     }
 
     @Override
@@ -92,6 +107,7 @@ public class ShopProductUnitServiceImpl implements ShopProductUnitService {
         }
 
         unitRepository.delete(unit);
+        referenceData.invalidate();
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.example.product_service.service.impl;
 
+import com.example.product_service.cache.ReferenceDataCache;
 import com.example.product_service.entity.ShopSupplier;
 import com.example.product_service.exception.NotFoundException;
 import com.example.product_service.repository.ShopSupplierRepository;
@@ -16,23 +17,37 @@ import java.util.List;
 public class ShopSupplierServiceImpl implements ShopSupplierService {
 
     private final ShopSupplierRepository repo;
+    private final ReferenceDataCache referenceData;
 
-    public ShopSupplierServiceImpl(ShopSupplierRepository repo) {
+    public ShopSupplierServiceImpl(ShopSupplierRepository repo, ReferenceDataCache referenceData) {
         this.repo = repo;
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<ShopSupplier> findAll() {
-        return repo.findAll();
+        return List.copyOf(referenceData.snapshot().suppliers().values());
     }
 
     @Override
     public List<ShopSupplier> findByType(String type) {
-        return repo.findByType(type);
+        // So sánh không phân biệt hoa thường giống collation mặc định của MySQL
+        return referenceData.snapshot().suppliers().values().stream()
+                .filter(s -> s.getType() != null && s.getType().equalsIgnoreCase(type))
+                .toList();
     }
 
     @Override
     public ShopSupplier getById(Long id) {
+        ShopSupplier supplier = referenceData.supplier(id);
+        if (supplier == null) {
+            throw new NotFoundException("Supplier not found with id = " + id);
+        }
+        return supplier;
+    }
+
+    // Entity trong cache dùng chung, muốn sửa thì phải lấy bản từ DB
+    private ShopSupplier findForWrite(Long id) {
         return repo.findById(id)
                 .orElseThrow(() -> new NotFoundException("Supplier not found with id = " + id));
     }
@@ -50,7 +65,9 @@ public class ShopSupplierServiceImpl implements ShopSupplierService {
         if (supplier.getUpdatedAt() == null) {
             supplier.setUpdatedAt(LocalDateTime.now());
         }
-        return repo.save(supplier);
+        ShopSupplier saved = repo.save(supplier);
+        referenceData.invalidate();
+        return saved;
     }
 
     /**
@@ -81,7 +98,7 @@ public class ShopSupplierServiceImpl implements ShopSupplierService {
 
     @Override
     public ShopSupplier update(Long id, ShopSupplier supplier) {
-        ShopSupplier db = getById(id);
+        ShopSupplier db = findForWrite(id);
         db.setCode(supplier.getCode());
         db.setName(supplier.getName());
         db.setType(supplier.getType());
@@ -92,13 +109,16 @@ public class ShopSupplierServiceImpl implements ShopSupplierService {
         db.setImage(supplier.getImage());
         db.setCreatedAt(supplier.getCreatedAt());
         db.setUpdatedAt(supplier.getUpdatedAt());
-        return repo.save(db);
+        ShopSupplier saved = repo.save(db);
+        referenceData.invalidate();
+        return saved;
     }
 
     @Override
     public void delete(Long id) {
-        ShopSupplier db = getById(id);
+        ShopSupplier db = findForWrite(id);
         repo.delete(db);
+        referenceData.invalidate();
     }
 
     @Override
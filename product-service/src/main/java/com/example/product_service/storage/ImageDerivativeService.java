@@ -0,0 +1,195 @@
+package com.example.product_service.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sinh ảnh thu nhỏ (thumb/medium) cho ảnh sản phẩm ở background.
+ *
+ * Upload chỉ lưu file gốc rồi đưa việc resize vào pool có giới hạn, request trả về ngay.
+ * Ảnh biến thể ghi ra file tạm rồi move atomic, nên không bao giờ phục vụ file ghi dở
+ * (biến thể được cache immutable phía client).
+ */
+@Component
+@Slf4j
+public class ImageDerivativeService {
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    private final ProductImageStorage storage;
+    private final ThreadPoolExecutor executor;
+    // File gốc đang chờ/đang xử lý, tránh xếp hàng trùng khi nhiều request cùng hỏi 1 ảnh
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(ProductImageStorage storage,
+            @Value("${file.derivatives.threads:2}") int threads,
+            @Value("${file.derivatives.queue-capacity:500}") int queueCapacity) {
+        this.storage = storage;
+        // Nạp plugin ImageIO trên classpath (đọc WebP)
+        ImageIO.scanForPlugins();
+        ImageIO.setUseCache(false);
+
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-derivative-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Đưa ảnh gốc vào hàng đợi sinh biến thể. Hàng đợi đầy thì bỏ qua:
+     * biến thể sẽ được sinh lại lần sau có request tới nó.
+     */
+    public void submit(Path original) {
+        Path key = original.toAbsolutePath().normalize();
+        if (!inFlight.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(key);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            log.warn("[IMAGE] Derivative queue full, skip {}", key.getFileName());
+        }
+    }
+
+    private void generate(Path original) {
+        String name = original.getFileName().toString();
+        try {
+            for (ImageVariant variant : ImageVariant.values()) {
+                Path target = storage.root().resolve(ProductImageStorage.variantName(name, variant));
+                if (Files.exists(target)) {
+                    continue;
+                }
+                BufferedImage source = decode(original, variant.maxSize());
+                if (source == null) {
+                    log.warn("[IMAGE] Unsupported image format: {}", name);
+                    return;
+                }
+                writeAtomically(resize(source, variant.maxSize()), target);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("[IMAGE] Failed to generate derivatives for {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Decode có subsampling: ảnh gốc lớn gấp nhiều lần kích thước đích thì chỉ đọc
+     * 1/N điểm ảnh, tránh giải nén cả ảnh chục megapixel vào heap.
+     */
+    private static BufferedImage decode(Path file, int maxSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // Giữ lại tối thiểu 2x kích thước đích để resize sau vẫn mịn
+                int step = Math.max(1, longest / (maxSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Thu nhỏ dần mỗi lần 1/2 cho tới kích thước đích (chất lượng tốt hơn scale 1 lần
+     * bằng bilinear), đồng thời chuyển về RGB nền trắng để ghi JPEG.
+     */
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(w, h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+
+        BufferedImage current = source;
+        do {
+            w = Math.max(targetW, w / 2);
+            h = Math.max(targetH, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetW || h != targetH);
+        return current;
+    }
+
+    private static void writeAtomically(BufferedImage image, Path target) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), ".derivative-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.product_service.storage;
+
+/**
+ * Các kích thước ảnh thu nhỏ sinh ra sau khi upload (cạnh dài tối đa, px)
+ */
+public enum ImageVariant {
+    THUMB("thumb", 200),
+    MEDIUM("medium", 800);
+
+    private final String suffix;
+    private final int maxSize;
+
+    ImageVariant(String suffix, int maxSize) {
+        this.suffix = suffix;
+        this.maxSize = maxSize;
+    }
+
+    public String suffix() {
+        return suffix;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.product_service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Thư mục lưu ảnh sản phẩm ({file.upload-dir}/products) và URL public tương ứng
+ */
+@Component
+public class ProductImageStorage {
+
+    public static final String URL_PREFIX = "/uploads/products/";
+
+    // Ảnh thu nhỏ sinh ra từ ảnh gốc: {tên gốc}_{variant}.jpg
+    private static final Pattern VARIANT_NAME = Pattern.compile("([A-Za-z0-9-]+)_(thumb|medium)\\.jpg");
+
+    // Chỉ cho phép tên file phẳng (uuid.jpg, ...), không cho "../" hay thư mục con
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_-]+(\\.[A-Za-z0-9]+)?");
+
+    private final Path root;
+
+    public ProductImageStorage(@Value("${file.upload-dir:uploads}") String uploadDir) {
+        this.root = Paths.get(uploadDir, "products").toAbsolutePath().normalize();
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public String urlOf(String fileName) {
+        return URL_PREFIX + fileName;
+    }
+
+    /**
+     * Tên file của URL ảnh local (/uploads/products/abc.jpg -> abc.jpg), null nếu là link ngoài
+     */
+    public String fileNameOf(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        return imageUrl.substring(URL_PREFIX.length());
+    }
+
+    /**
+     * Tên file biến thể của ảnh gốc: abc.png -> abc_thumb.jpg
+     */
+    public static String variantName(String originalName, ImageVariant variant) {
+        int dot = originalName.lastIndexOf('.');
+        String base = dot >= 0 ? originalName.substring(0, dot) : originalName;
+        return base + "_" + variant.suffix() + ".jpg";
+    }
+
+    /**
+     * URL biến thể của 1 URL ảnh. Ảnh không nằm trong /uploads/products/ (link ngoài) thì giữ nguyên.
+     */
+    public String variantUrl(String imageUrl, ImageVariant variant) {
+        if (imageUrl == null || !imageUrl.startsWith(URL_PREFIX)) {
+            return imageUrl;
+        }
+        return URL_PREFIX + variantName(imageUrl.substring(URL_PREFIX.length()), variant);
+    }
+
+    /**
+     * Nếu tên là biến thể (abc_thumb.jpg) thì tìm file ảnh gốc (abc.*) tương ứng
+     */
+    public Optional<Path> findOriginalOfVariant(String variantFileName) {
+        Matcher m = VARIANT_NAME.matcher(variantFileName);
+        if (!m.matches()) {
+            return Optional.empty();
+        }
+        String base = m.group(1);
+        try (DirectoryStream<Path> candidates = Files.newDirectoryStream(root, base + ".*")) {
+            for (Path candidate : candidates) {
+                if (Files.isRegularFile(candidate)) {
+                    return Optional.of(candidate);
+                }
+            }
+        } catch (IOException e) {
+            // coi như không có ảnh gốc
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * File ảnh theo tên, rỗng nếu tên không hợp lệ hoặc file không tồn tại
+     */
+    public Optional<Path> resolve(String fileName) {
+        if (fileName == null || !SAFE_NAME.matcher(fileName).matches()) {
+            return Optional.empty();
+        }
+        Path file = root.resolve(fileName).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+}
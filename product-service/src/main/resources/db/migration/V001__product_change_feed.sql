@@ -0,0 +1,16 @@
+-- Change feed cho catalog sản phẩm (GET /api/products/changes)
+
+-- Tombstone: ghi lại sản phẩm đã xóa để consumer đồng bộ được thao tác xóa
+CREATE TABLE product_tombstones (
+    tombstone_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id   BIGINT   NOT NULL,
+    deleted_at   DATETIME(3) NOT NULL
+);
+CREATE INDEX idx_product_tombstones_deleted_at ON product_tombstones(deleted_at);
+
+-- Feed đọc theo (updated_at, products_id): backfill dòng cũ chưa có updated_at
+UPDATE shop_products
+SET updated_at = COALESCE(created_at, NOW())
+WHERE updated_at IS NULL;
+
+CREATE INDEX idx_products_updated_at_id ON shop_products(updated_at, products_id);
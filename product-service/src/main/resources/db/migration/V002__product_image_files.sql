@@ -0,0 +1,12 @@
+-- Ảnh sản phẩm lưu theo hash nội dung (SHA-256): upload trùng dùng lại file cũ.
+-- ref_count = số sản phẩm đang dùng file; = 0 quá thời gian chờ thì được dọn.
+CREATE TABLE product_image_files (
+    content_hash CHAR(64)     NOT NULL PRIMARY KEY,
+    file_name    VARCHAR(100) NOT NULL,
+    size_bytes   BIGINT       NOT NULL,
+    ref_count    INT          NOT NULL DEFAULT 0,
+    created_at   DATETIME(3)  NOT NULL,
+    released_at  DATETIME(3)  NULL
+);
+CREATE UNIQUE INDEX uk_product_image_files_file_name ON product_image_files(file_name);
+CREATE INDEX idx_product_image_files_unused ON product_image_files(ref_count, released_at);
@@ -0,0 +1,15 @@
+-- Giá bán hiện hành của từng sản phẩm (đơn giá sau khi áp giảm giá đang hiệu lực).
+-- valid_until: thời điểm gần nhất 1 giảm giá bắt đầu/kết thúc, tới lúc đó phải tính lại.
+CREATE TABLE product_effective_prices (
+    product_id      BIGINT        NOT NULL PRIMARY KEY,
+    base_price      DECIMAL(18,2) NULL,
+    effective_price DECIMAL(18,2) NULL,
+    discount_id     BIGINT        NULL,
+    discount_name   VARCHAR(255)  NULL,
+    valid_until     DATETIME      NULL,
+    computed_at     DATETIME(3)   NOT NULL
+);
+CREATE INDEX idx_effective_prices_valid_until ON product_effective_prices(valid_until);
+CREATE INDEX idx_effective_prices_computed_at ON product_effective_prices(computed_at);
+
+CREATE INDEX idx_product_discounts_products_id ON shop_product_discounts(products_id);
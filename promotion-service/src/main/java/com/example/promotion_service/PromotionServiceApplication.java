@@ -2,8 +2,10 @@ package com.example.promotion_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PromotionServiceApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(PromotionServiceApplication.class, args);
@@ -0,0 +1,69 @@
+package com.example.promotion_service.cache;
+
+import com.example.promotion_service.dto.VoucherDto;
+import com.example.promotion_service.entity.ShopVoucher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bản bất biến của 1 voucher trong {@link VoucherIndex}.
+ *
+ * @param productIds sản phẩm được gắn voucher; rỗng = áp dụng cho mọi sản phẩm (voucher đã gắn
+ *                   sản phẩm thì không gỡ được hết, xem VoucherService#detachFromProducts)
+ */
+public record VoucherEntry(Long id, String code, String description, String type,
+        BigDecimal discountAmount, Integer maxUser, Integer maxPerCustomer,
+        LocalDateTime startDate, LocalDateTime endDate, Set<Long> productIds) {
+
+    public static VoucherEntry of(ShopVoucher v, Set<Long> productIds) {
+        return new VoucherEntry(v.getId(), v.getVoucherCode(), v.getDescription(), v.getType(),
+                v.getDiscountAmount(), v.getMaxUser(), v.getMaxPerCustomer(), v.getStartDate(), v.getEndDate(), Set.copyOf(productIds));
+    }
+
+    public boolean isActiveAt(LocalDateTime now) {
+        return (startDate == null || !startDate.isAfter(now))
+                && (endDate == null || endDate.isAfter(now));
+    }
+
+    /**
+     * Mốc kế tiếp trạng thái hiệu lực sẽ đổi (bắt đầu hoặc hết hạn); null nếu không còn mốc nào
+     */
+    public LocalDateTime nextTransitionAfter(LocalDateTime now) {
+        if (startDate != null && startDate.isAfter(now)) {
+            return startDate;
+        }
+        if (endDate != null && endDate.isAfter(now)) {
+            return endDate;
+        }
+        return null;
+    }
+
+    /**
+     * Có giới hạn lượt dùng (tổng hoặc theo khách): dùng phải giữ chỗ qua API redemption
+     */
+    public boolean isLimited() {
+        return maxUser != null || maxPerCustomer != null;
+    }
+
+    public boolean isPercent() {
+        return "PERCENT".equalsIgnoreCase(type);
+    }
+
+    public VoucherDto toDto() {
+        VoucherDto dto = new VoucherDto();
+        dto.setId(id);
+        dto.setCode(code);
+        dto.setDescription(description);
+        dto.setType(type);
+        dto.setDiscountAmount(discountAmount);
+        dto.setMaxUser(maxUser);
+        dto.setMaxPerCustomer(maxPerCustomer);
+        dto.setStartDate(startDate);
+        dto.setEndDate(endDate);
+        dto.setProductIds(List.copyOf(productIds));
+        return dto;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.promotion_service.cache;
+
+import com.example.promotion_service.entity.ShopProductVoucher;
+import com.example.promotion_service.entity.ShopVoucher;
+import com.example.promotion_service.repository.ShopProductVoucherRepository;
+import com.example.promotion_service.repository.ShopVoucherRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Toàn bộ voucher trong bộ nhớ, tra theo mã (không phân biệt hoa thường như collation của DB).
+ *
+ * Tập voucher đang hiệu lực được giữ sẵn; các mốc startDate/endDate sắp tới nằm trong 1 TreeMap
+ * theo thời gian, tới mốc thì voucher tự vào/ra tập hiệu lực mà không cần truy vấn.
+ * Chỉ mục ngược sản phẩm -> voucher trả lời "voucher nào áp cho sản phẩm X" không cần truy vấn.
+ * Ghi qua service gọi {@link #put}; scheduler so phiên bản DB, khác thì chỉ nạp lại các voucher
+ * có updated_at mới (ghi của instance khác / ghi local vừa put) chứ không nạp lại toàn bộ.
+ */
+@Component
+@Slf4j
+public class VoucherIndex {
+
+    // Nạp lùi lại 1 khoảng so với mốc trước: ghi commit muộn hơn updated_at vẫn được thấy
+    private static final long REFRESH_OVERLAP_SECONDS = 5;
+
+    private final ShopVoucherRepository voucherRepository;
+    private final ShopProductVoucherRepository productVoucherRepository;
+
+    private final Map<String, VoucherEntry> byCode = new ConcurrentHashMap<>();
+    private final Map<Long, String> codeById = new ConcurrentHashMap<>();
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+    // sản phẩm -> id voucher gắn riêng cho sản phẩm đó; voucher không gắn sản phẩm nào áp cho mọi sản phẩm
+    private final Map<Long, Set<Long>> vouchersByProduct = new ConcurrentHashMap<>();
+    private final Set<Long> allProductVouchers = ConcurrentHashMap.newKeySet();
+    // mốc thời gian -> mã voucher cần đánh giá lại tại mốc đó (chỉ truy cập khi giữ lock)
+    private final NavigableMap<LocalDateTime, Set<String>> transitions = new TreeMap<>();
+    private volatile LocalDateTime nextTransition;
+    private volatile String loadedVersion;
+    // updated_at lớn nhất ở lần nạp trước; null thì lần sau nạp toàn bộ
+    private volatile LocalDateTime loadedUpTo;
+    private volatile boolean loaded;
+
+    public VoucherIndex(ShopVoucherRepository voucherRepository,
+            ShopProductVoucherRepository productVoucherRepository) {
+        this.voucherRepository = voucherRepository;
+        this.productVoucherRepository = productVoucherRepository;
+    }
+
+    public Optional<VoucherEntry> get(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        ensureLoaded();
+        return Optional.ofNullable(byCode.get(key(code)));
+    }
+
+    public Optional<VoucherEntry> getById(Long id) {
+        String code = codeById.get(id);
+        return code == null ? Optional.empty() : get(code);
+    }
+
+    public boolean isActive(VoucherEntry entry) {
+        advance(LocalDateTime.now());
+        return active.contains(key(entry.code()));
+    }
+
+    public List<VoucherEntry> activeVouchers() {
+        ensureLoaded();
+        advance(LocalDateTime.now());
+        return active.stream().map(byCode::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Voucher đang hiệu lực áp được cho từng sản phẩm (gắn riêng + áp cho mọi sản phẩm)
+     */
+    public Map<Long, List<VoucherEntry>> applicableTo(Collection<Long> productIds) {
+        ensureLoaded();
+        advance(LocalDateTime.now());
+        List<VoucherEntry> forAll = activeByIds(allProductVouchers);
+        Map<Long, List<VoucherEntry>> result = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            if (productId == null || result.containsKey(productId)) {
+                continue;
+            }
+            List<VoucherEntry> vouchers = new ArrayList<>(forAll);
+            vouchers.addAll(activeByIds(vouchersByProduct.getOrDefault(productId, Set.of())));
+            result.put(productId, vouchers);
+        }
+        return result;
+    }
+
+    private List<VoucherEntry> activeByIds(Collection<Long> voucherIds) {
+        List<VoucherEntry> result = new ArrayList<>(voucherIds.size());
+        for (Long id : voucherIds) {
+            String code = codeById.get(id);
+            if (code != null && active.contains(code)) {
+                VoucherEntry entry = byCode.get(code);
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Thêm / thay voucher (kể cả khi đổi mã)
+     */
+    public synchronized void put(VoucherEntry entry) {
+        String oldCode = codeById.get(entry.id());
+        if (oldCode != null) {
+            unlinkProducts(byCode.get(oldCode));
+            if (!oldCode.equals(key(entry.code()))) {
+                byCode.remove(oldCode);
+                active.remove(oldCode);
+            }
+        }
+        index(entry, LocalDateTime.now());
+    }
+
+    public synchronized void remove(Long voucherId) {
+        String code = codeById.remove(voucherId);
+        if (code != null) {
+            unlinkProducts(byCode.remove(code));
+            active.remove(code);
+        }
+    }
+
+    /**
+     * Tới mốc nào thì đánh giá lại voucher của mốc đó. Đường đọc chỉ so 1 biến volatile.
+     */
+    void advance(LocalDateTime now) {
+        LocalDateTime next = nextTransition;
+        if (next == null || next.isAfter(now)) {
+            return;
+        }
+        synchronized (this) {
+            Map.Entry<LocalDateTime, Set<String>> due;
+            while ((due = transitions.firstEntry()) != null && !due.getKey().isAfter(now)) {
+                transitions.pollFirstEntry();
+                for (String code : due.getValue()) {
+                    VoucherEntry entry = byCode.get(code);
+                    if (entry != null) {
+                        evaluate(code, entry, now);
+                    }
+                }
+            }
+            updateNextTransition();
+        }
+    }
+
+    // Phải giữ lock
+    private void index(VoucherEntry entry, LocalDateTime now) {
+        String code = key(entry.code());
+        byCode.put(code, entry);
+        codeById.put(entry.id(), code);
+        linkProducts(entry);
+        evaluate(code, entry, now);
+        updateNextTransition();
+    }
+
+    // Phải giữ lock
+    private void linkProducts(VoucherEntry entry) {
+        if (entry.productIds().isEmpty()) {
+            allProductVouchers.add(entry.id());
+            return;
+        }
+        for (Long productId : entry.productIds()) {
+            vouchersByProduct.computeIfAbsent(productId, k -> ConcurrentHashMap.newKeySet()).add(entry.id());
+        }
+    }
+
+    // Phải giữ lock
+    private void unlinkProducts(VoucherEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        allProductVouchers.remove(entry.id());
+        for (Long productId : entry.productIds()) {
+            vouchersByProduct.computeIfPresent(productId, (k, ids) -> {
+                ids.remove(entry.id());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // Phải giữ lock. Mốc cũ của voucher (nếu có) vẫn nằm trong TreeMap: tới mốc chỉ đánh giá lại, vô hại.
+    private void evaluate(String code, VoucherEntry entry, LocalDateTime now) {
+        if (entry.isActiveAt(now)) {
+            active.add(code);
+        } else {
+            active.remove(code);
+        }
+        LocalDateTime next = entry.nextTransitionAfter(now);
+        if (next != null) {
+            transitions.computeIfAbsent(next, k -> new HashSet<>()).add(code);
+        }
+    }
+
+    private void updateNextTransition() {
+        nextTransition = transitions.isEmpty() ? null : transitions.firstKey();
+    }
+
+    // ---------- nạp toàn bộ ----------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("[VOUCHER] Failed to load voucher index", e);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    /**
+     * Nạp lại nếu phiên bản dữ liệu trong DB khác lần nạp trước (ghi từ instance khác / sửa tay)
+     */
+    @Scheduled(fixedDelayString = "${promotion.vouchers.refresh-ms:5000}", initialDelayString = "${promotion.vouchers.refresh-ms:5000}")
+    public void refreshIfChanged() {
+        try {
+            if (!dbVersion().equals(loadedVersion)) {
+                reloadChanged();
+            }
+        } catch (Exception e) {
+            log.warn("[VOUCHER] Failed to refresh voucher index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Chỉ nạp lại voucher có updated_at từ mốc lần nạp trước (trừ khoảng chồng lấn) cùng sản phẩm gắn với chúng;
+     * voucher bị xóa được nhận ra qua danh sách id. Chưa nạp lần nào thì nạp toàn bộ.
+     */
+    synchronized void reloadChanged() {
+        LocalDateTime since = loadedUpTo;
+        if (!loaded || since == null) {
+            reload();
+            return;
+        }
+        Object[] row = versionRow();
+        String version = version(row);
+        List<ShopVoucher> changed = voucherRepository.findByUpdatedAtGreaterThanEqual(
+                since.minusSeconds(REFRESH_OVERLAP_SECONDS));
+        Map<Long, Set<Long>> productsByVoucher = changed.isEmpty()
+                ? Map.of()
+                : groupProducts(productVoucherRepository.findByVoucherIdIn(
+                        changed.stream().map(ShopVoucher::getId).toList()));
+        for (ShopVoucher v : changed) {
+            if (v.getVoucherCode() != null) {
+                put(VoucherEntry.of(v, productsByVoucher.getOrDefault(v.getId(), Set.of())));
+            }
+        }
+        Set<Long> existing = new HashSet<>(voucherRepository.findAllIds());
+        List<Long> removed = codeById.keySet().stream().filter(id -> !existing.contains(id)).toList();
+        removed.forEach(this::remove);
+
+        loadedVersion = version;
+        LocalDateTime maxUpdated = (LocalDateTime) row[1];
+        if (maxUpdated != null) {
+            loadedUpTo = maxUpdated;
+        }
+        log.debug("[VOUCHER] Refreshed {} changed, {} removed vouchers", changed.size(), removed.size());
+    }
+
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        // Lấy phiên bản trước khi đọc: có ghi xen giữa thì lần refresh sau sẽ nạp lại
+        Object[] row = versionRow();
+        String version = version(row);
+        Map<Long, Set<Long>> productsByVoucher = groupProducts(productVoucherRepository.findAll());
+        List<VoucherEntry> entries = voucherRepository.findAll().stream()
+                .filter(v -> v.getVoucherCode() != null)
+                .map(v -> VoucherEntry.of(v, productsByVoucher.getOrDefault(v.getId(), Set.of())))
+                .toList();
+        replaceAll(entries);
+        loadedVersion = version;
+        loadedUpTo = (LocalDateTime) row[1];
+        loaded = true;
+        log.info("[VOUCHER] Indexed {} vouchers ({} active) in {} ms",
+                entries.size(), active.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Phiên bản dữ liệu voucher trong DB: số voucher + updated_at lớn nhất
+     * (gắn sản phẩm cũng cập nhật updated_at của voucher)
+     */
+    public String dbVersion() {
+        return version(versionRow());
+    }
+
+    private Object[] versionRow() {
+        return voucherRepository.findVersionInfo().get(0);
+    }
+
+    private static String version(Object[] row) {
+        long count = ((Number) row[0]).longValue();
+        LocalDateTime maxUpdated = (LocalDateTime) row[1];
+        return count + "-" + (maxUpdated != null ? maxUpdated.toString() : "0");
+    }
+
+    private static Map<Long, Set<Long>> groupProducts(Collection<ShopProductVoucher> links) {
+        return links.stream()
+                .filter(pv -> pv.getVoucherId() != null && pv.getProductId() != null)
+                .collect(Collectors.groupingBy(ShopProductVoucher::getVoucherId,
+                        Collectors.mapping(ShopProductVoucher::getProductId, Collectors.toSet())));
+    }
+
+    private synchronized void replaceAll(Collection<VoucherEntry> entries) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, VoucherEntry> fresh = new HashMap<>();
+        for (VoucherEntry e : entries) {
+            fresh.put(key(e.code()), e);
+        }
+        byCode.keySet().retainAll(fresh.keySet());
+        active.retainAll(fresh.keySet());
+        codeById.clear();
+        transitions.clear();
+        vouchersByProduct.clear();
+        allProductVouchers.clear();
+        for (VoucherEntry e : fresh.values()) {
+            String code = key(e.code());
+            byCode.put(code, e);
+            codeById.put(e.id(), code);
+            linkProducts(e);
+            evaluate(code, e, now);
+        }
+        updateNextTransition();
+    }
+
+    private static String key(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.promotion_service.client;
+
+import com.example.promotion_service.common.ApiResponse;
+import com.example.promotion_service.dto.CustomerSegmentRequest;
+import com.example.promotion_service.security.IdentityHeaders;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Client gọi order-service
+ */
+@Component
+public class OrderServiceClient {
+
+    private static final ParameterizedTypeReference<ApiResponse<List<Long>>> IDS_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestTemplate restTemplate;
+    private final IdentityHeaders identityHeaders;
+
+    public OrderServiceClient(RestTemplate restTemplate, IdentityHeaders identityHeaders) {
+        this.restTemplate = restTemplate;
+        this.identityHeaders = identityHeaders;
+    }
+
+    /**
+     * 1 trang id khách thuộc phân khúc, tăng dần sau afterId.
+     * Chạy ngoài request (job nền, có thể lâu hơn hạn token người tạo) nên mỗi trang ký danh tính service mới.
+     */
+    public List<Long> segmentCustomerIds(CustomerSegmentRequest segment, long afterId, int size) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromUriString("http://order-service/api/customers/segment")
+                .queryParam("afterId", afterId)
+                .queryParam("size", size);
+        if (segment.getFrom() != null) {
+            uri.queryParam("from", segment.getFrom());
+        }
+        if (segment.getTo() != null) {
+            uri.queryParam("to", segment.getTo());
+        }
+        if (segment.getStatus() != null && !segment.getStatus().isBlank()) {
+            uri.queryParam("status", segment.getStatus());
+        }
+        if (segment.getMinOrders() != null) {
+            uri.queryParam("minOrders", segment.getMinOrders());
+        }
+        if (segment.getMinSpent() != null) {
+            uri.queryParam("minSpent", segment.getMinSpent());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        identityHeaders.service(null).accept(headers);
+        ApiResponse<List<Long>> res = restTemplate.exchange(uri.build().toUriString(), HttpMethod.GET,
+                new HttpEntity<>(headers), IDS_RESPONSE).getBody();
+        if (res == null || !res.isSuccess()) {
+            throw new IllegalStateException("order-service: " + (res != null ? res.getMessage() : "empty response"));
+        }
+        return res.getData() != null ? res.getData() : List.of();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.promotion_service.controller;
+
+import com.example.promotion_service.common.ApiResponse;
+import com.example.promotion_service.dto.CustomerSegmentRequest;
+import com.example.promotion_service.dto.VoucherCampaignDto;
+import com.example.promotion_service.service.VoucherCampaignService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/vouchers")
+@RequiredArgsConstructor
+public class VoucherCampaignController {
+
+    private final VoucherCampaignService campaignService;
+
+    // POST /api/vouchers/{voucherId}/campaigns/upload (multipart "file": mỗi dòng 1 id khách)
+    // Chạy nền, trả chiến dịch ngay; theo dõi tiến độ qua GET /api/vouchers/campaigns/{id}
+    @PostMapping("/{voucherId}/campaigns/upload")
+    public ApiResponse<VoucherCampaignDto> startFromFile(@PathVariable Long voucherId,
+            @RequestParam("file") MultipartFile file) {
+        return ApiResponse.ok("Started", campaignService.startFromFile(voucherId, file));
+    }
+
+    // POST /api/vouchers/{voucherId}/campaigns/segment {from, to, status, minOrders, minSpent}
+    @PostMapping("/{voucherId}/campaigns/segment")
+    public ApiResponse<VoucherCampaignDto> startFromSegment(@PathVariable Long voucherId,
+            @RequestBody CustomerSegmentRequest segment) {
+        return ApiResponse.ok("Started", campaignService.startFromSegment(voucherId, segment));
+    }
+
+    @GetMapping("/{voucherId}/campaigns")
+    public ApiResponse<List<VoucherCampaignDto>> getByVoucher(@PathVariable Long voucherId) {
+        return ApiResponse.ok(campaignService.getByVoucher(voucherId));
+    }
+
+    @GetMapping("/campaigns/{id}")
+    public ApiResponse<VoucherCampaignDto> get(@PathVariable Long id) {
+        return ApiResponse.ok(campaignService.get(id));
+    }
+}
@@ -4,12 +4,15 @@ import com.example.promotion_service.common.ApiResponse;
 import com.example.promotion_service.dto.IdListRequest;
 import com.example.promotion_service.dto.VoucherDto;
 import com.example.promotion_service.dto.VoucherRequest;
+import com.example.promotion_service.dto.VoucherValidateRequest;
+import com.example.promotion_service.dto.VoucherValidationDto;
 import com.example.promotion_service.service.VoucherCustomerService;
 import com.example.promotion_service.service.VoucherService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/vouchers")
@@ -34,20 +37,61 @@ public class VoucherController {
                 .orElseGet(() -> ApiResponse.fail("Voucher not found with code: " + code));
     }
 
+    // GET /api/vouchers/version
+    // Phiên bản dữ liệu voucher: order-service poll để xóa cache voucher khi có thay đổi
+    @GetMapping("/version")
+    public ApiResponse<String> getVersion() {
+        return ApiResponse.ok(voucherService.getVersion());
+    }
+
     // Tạo mới voucher
     @PostMapping
     public ApiResponse<VoucherDto> create(@RequestBody VoucherRequest request) {
         return ApiResponse.ok("Created", voucherService.create(request));
     }
 
-    // Gắn voucher cho nhiều sản phẩm
+    // Cập nhật voucher
+    @PutMapping("/{id}")
+    public ApiResponse<VoucherDto> update(@PathVariable Long id, @RequestBody VoucherRequest request) {
+        return ApiResponse.ok("Updated", voucherService.update(id, request));
+    }
+
+    // Voucher đang hiệu lực
+    @GetMapping("/active")
+    public ApiResponse<List<VoucherDto>> getActive() {
+        return ApiResponse.ok(voucherService.getActive());
+    }
+
+    // POST /api/vouchers/validate {code, cartTotal, productIds}
+    // Kiểm tra voucher cho giỏ hàng và tính tiền giảm, trả lời từ bộ nhớ
+    @PostMapping("/validate")
+    public ApiResponse<VoucherValidationDto> validate(@RequestBody VoucherValidateRequest request) {
+        return ApiResponse.ok(voucherService.validate(request));
+    }
+
+    // GET /api/vouchers/applicable?productIds=1,2,3
+    // Voucher đang hiệu lực của từng sản phẩm trong giỏ, 1 lần gọi
+    @GetMapping("/applicable")
+    public ApiResponse<Map<Long, List<VoucherDto>>> getApplicable(@RequestParam List<Long> productIds) {
+        return ApiResponse.ok(voucherService.getApplicable(productIds));
+    }
+
+    // Gắn voucher cho nhiều sản phẩm, trả số sản phẩm gắn mới
     @PostMapping("/{voucherId}/products")
-    public ApiResponse<Void> attachToProducts(
+    public ApiResponse<Integer> attachToProducts(
+            @PathVariable Long voucherId,
+            @RequestBody IdListRequest request
+    ) {
+        return ApiResponse.ok("Attached to products", voucherService.attachToProducts(voucherId, request));
+    }
+
+    // Gỡ voucher khỏi nhiều sản phẩm, trả số sản phẩm đã gỡ
+    @DeleteMapping("/{voucherId}/products")
+    public ApiResponse<Integer> detachFromProducts(
             @PathVariable Long voucherId,
             @RequestBody IdListRequest request
     ) {
-        voucherService.attachToProducts(voucherId, request);
-        return ApiResponse.ok("Attached to products", null);
+        return ApiResponse.ok("Detached from products", voucherService.detachFromProducts(voucherId, request));
     }
 
     // Gắn voucher cho nhiều customer
@@ -0,0 +1,41 @@
+package com.example.promotion_service.controller;
+
+import com.example.promotion_service.common.ApiResponse;
+import com.example.promotion_service.dto.VoucherRedeemRequest;
+import com.example.promotion_service.dto.VoucherRedemptionDto;
+import com.example.promotion_service.security.IdentityHeaders;
+import com.example.promotion_service.service.VoucherRedemptionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/vouchers/redemptions")
+@RequiredArgsConstructor
+public class VoucherRedemptionController {
+
+    private final VoucherRedemptionService redemptionService;
+
+    // POST /api/vouchers/redemptions {code, orderId, redemptionKey}
+    // Giữ 1 lượt dùng voucher cho khách trong danh tính service gọi tới; hết lượt trả 409
+    @PostMapping
+    public ApiResponse<VoucherRedemptionDto> reserve(@RequestBody VoucherRedeemRequest request) {
+        Long customerId = IdentityHeaders.current()
+                .map(IdentityHeaders.AuthenticatedUser::id)
+                .orElse(null);
+        return ApiResponse.ok("Reserved", redemptionService.reserve(request, customerId));
+    }
+
+    // POST /api/vouchers/redemptions/{key}/release
+    // Trả lượt khi đơn bị hủy; gọi lại nhiều lần vẫn chỉ trả 1 lần
+    @PostMapping("/{key}/release")
+    public ApiResponse<VoucherRedemptionDto> release(@PathVariable String key) {
+        return ApiResponse.ok("Released", redemptionService.release(key).orElse(null));
+    }
+
+    @GetMapping("/{key}")
+    public ApiResponse<VoucherRedemptionDto> get(@PathVariable String key) {
+        return redemptionService.get(key)
+                .map(ApiResponse::ok)
+                .orElseGet(() -> ApiResponse.fail("Redemption not found: " + key));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.promotion_service.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Phân khúc khách theo đơn hàng ở order-service (GET /api/customers/segment)
+@Data
+public class CustomerSegmentRequest {
+    private LocalDate from;
+    private LocalDate to;
+    private String status;
+    private Long minOrders;
+    private Double minSpent;
+}
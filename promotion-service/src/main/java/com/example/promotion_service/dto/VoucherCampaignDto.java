@@ -0,0 +1,23 @@
+package com.example.promotion_service.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class VoucherCampaignDto {
+
+    private Long id;
+    private Long voucherId;
+    private String source;          // UPLOAD / SEGMENT
+    private String sourceDetail;
+    private String status;          // RUNNING / DONE / FAILED
+    private int processed;          // số id đã đọc
+    private int assigned;           // số khách được gắn mới
+    private int skipped;            // đã có voucher hoặc trùng trong nguồn
+    private int invalid;            // dòng không phải id hợp lệ
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
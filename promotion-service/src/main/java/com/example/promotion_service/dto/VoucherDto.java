@@ -5,6 +5,7 @@ import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 public class VoucherDto {
@@ -12,9 +13,13 @@ public class VoucherDto {
     private Long id;
     private String code;
     private String description;
+    private String type;
     private BigDecimal discountAmount;
+    private Integer maxUser;
+    private Integer maxPerCustomer;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    private List<Long> productIds;   // sản phẩm được gắn voucher; rỗng = mọi sản phẩm (null = không nạp)
 
     public static VoucherDto fromEntity(ShopVoucher entity) {
         VoucherDto dto = new VoucherDto();
@@ -22,7 +27,10 @@ public class VoucherDto {
         // field trong entity là voucherCode
         dto.setCode(entity.getVoucherCode());
         dto.setDescription(entity.getDescription());
+        dto.setType(entity.getType());
         dto.setDiscountAmount(entity.getDiscountAmount());
+        dto.setMaxUser(entity.getMaxUser());
+        dto.setMaxPerCustomer(entity.getMaxPerCustomer());
         dto.setStartDate(entity.getStartDate());
         dto.setEndDate(entity.getEndDate());
         return dto;
@@ -0,0 +1,11 @@
+package com.example.promotion_service.dto;
+
+import lombok.Data;
+
+// Khách dùng voucher lấy từ danh tính bên gọi (X-User-Id của danh tính service), không gửi trong body
+@Data
+public class VoucherRedeemRequest {
+    private String code;
+    private Long orderId;
+    private String redemptionKey;   // bên gọi sinh, gửi lại cùng key thì trả lượt đã giữ
+}
@@ -0,0 +1,18 @@
+package com.example.promotion_service.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class VoucherRedemptionDto {
+
+    private String redemptionKey;
+    private Long voucherId;
+    private String code;
+    private Long customerId;
+    private Long orderId;
+    private String status;        // RESERVED / RELEASED
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -10,7 +10,8 @@ public class VoucherRequest {
     private String description;
     private String type;          // AMOUNT / PERCENT
     private Double discountAmount;
-    private Integer maxUser;
+    private Integer maxUser;          // tổng lượt dùng, null = không giới hạn
+    private Integer maxPerCustomer;   // lượt dùng mỗi khách, null = không giới hạn
     private LocalDateTime startDate;
     private LocalDateTime endDate;
 }
@@ -0,0 +1,13 @@
+package com.example.promotion_service.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class VoucherValidateRequest {
+    private String code;
+    private BigDecimal cartTotal;     // tổng tiền hàng trong giỏ
+    private List<Long> productIds;    // sản phẩm trong giỏ (kiểm tra voucher gắn theo sản phẩm)
+}
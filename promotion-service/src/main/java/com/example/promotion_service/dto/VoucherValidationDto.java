@@ -0,0 +1,14 @@
+package com.example.promotion_service.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class VoucherValidationDto {
+    private String code;
+    private boolean valid;
+    private String reason;            // lý do không hợp lệ (valid = false)
+    private BigDecimal discount;      // số tiền được giảm trên cartTotal (valid = true)
+    private VoucherDto voucher;
+}
@@ -29,4 +29,8 @@ public class ShopCustomerVoucher {
     // không join sang service customer, chỉ lưu ID
     @Column(name = "customers_id")
     private Long customerId;
+
+    // Số lượt riêng cho khách này, ghi đè max_per_customer của voucher
+    @Column(name = "usage_limit")
+    private Integer usageLimit;
 }
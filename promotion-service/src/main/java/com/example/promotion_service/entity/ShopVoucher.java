@@ -28,6 +28,14 @@ public class ShopVoucher {
     @Column(name = "max_user")
     private Integer maxUser;
 
+    // Số lượt đã cấp: chỉ đổi bằng câu UPDATE có điều kiện (VoucherRedemptionJdbcRepository)
+    @Column(name = "used_count", insertable = false, updatable = false)
+    private Integer usedCount;
+
+    // Số lượt tối đa mỗi khách, null = không giới hạn
+    @Column(name = "max_per_customer")
+    private Integer maxPerCustomer;
+
     @Column(name = "type")
     private String type;
 
@@ -0,0 +1,189 @@
+package com.example.promotion_service.redemption;
+
+import com.example.promotion_service.repository.VoucherRedemptionJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lượt dùng voucher giới hạn tổng (max_user) cấp sẵn trong bộ nhớ.
+ *
+ * Mỗi instance xin trước 1 khối lượt từ DB bằng câu UPDATE có điều kiện
+ * (used_count + n <= max_user), rồi phát từng lượt bằng CAS trên các stripe
+ * AtomicInteger: voucher đang hot không còn bị khóa dòng mỗi lần dùng, DB chỉ ghi
+ * 1 lần mỗi khối. Khối thu nhỏ dần khi gần hết lượt để các instance chia đều phần cuối.
+ *
+ * Lượt cấp mà không dùng được trả lại DB khi nhàn rỗi và khi tắt; instance chết đột ngột
+ * chỉ làm mất tối đa 1 khối (phát thiếu), không bao giờ phát quá max_user.
+ */
+@Component
+@Slf4j
+public class VoucherUsagePool {
+
+    private final VoucherRedemptionJdbcRepository repo;
+    private final Map<Long, Pool> pools = new ConcurrentHashMap<>();
+
+    @Value("${promotion.redemption.block-size:50}")
+    private int blockSize;
+
+    @Value("${promotion.redemption.stripes:8}")
+    private int stripeCount;
+
+    // Hết lượt thì trong khoảng này từ chối luôn, không hỏi lại DB
+    @Value("${promotion.redemption.exhausted-recheck-ms:1000}")
+    private long exhaustedRecheckMs;
+
+    @Value("${promotion.redemption.idle-return-ms:30000}")
+    private long idleReturnMs;
+
+    public VoucherUsagePool(VoucherRedemptionJdbcRepository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * Lấy 1 lượt của voucher; false nếu đã hết lượt
+     */
+    public boolean tryAcquire(Long voucherId) {
+        Pool pool = pools.computeIfAbsent(voucherId, Pool::new);
+        return pool.tryTake() || pool.refillAndTake();
+    }
+
+    /**
+     * Trả 1 lượt (giữ chỗ bị hủy / ghi lỗi). Lượt vẫn đang tính trong used_count nên chỉ cần
+     * đưa lại vào bộ nhớ; nếu nhàn rỗi sẽ được trả về DB.
+     */
+    public void release(Long voucherId) {
+        Pool pool = pools.computeIfAbsent(voucherId, Pool::new);
+        pool.put(1);
+    }
+
+    /**
+     * Trả lượt của voucher không dùng tới trong idle-return-ms về DB cho instance khác
+     */
+    @Scheduled(fixedDelayString = "${promotion.redemption.idle-return-ms:30000}")
+    public void returnIdle() {
+        long idleBefore = System.currentTimeMillis() - idleReturnMs;
+        pools.values().forEach(pool -> {
+            // Giữ lại đối tượng pool (vài chục byte) để luồng đang cầm tham chiếu không ghi vào pool đã bỏ
+            if (pool.lastUsed < idleBefore) {
+                pool.drainToDb();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void returnAll() {
+        pools.values().forEach(Pool::drainToDb);
+    }
+
+    /**
+     * Voucher bị sửa (đổi max_user): trả lượt đang giữ để lần sau xin lại theo giới hạn mới
+     */
+    public void reset(Long voucherId) {
+        Pool pool = pools.get(voucherId);
+        if (pool != null) {
+            pool.drainToDb();
+        }
+    }
+
+    private final class Pool {
+
+        private final Long voucherId;
+        private final AtomicInteger[] stripes;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long exhaustedUntil;
+
+        Pool(Long voucherId) {
+            this.voucherId = voucherId;
+            this.stripes = new AtomicInteger[Math.max(1, stripeCount)];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new AtomicInteger();
+            }
+        }
+
+        boolean tryTake() {
+            lastUsed = System.currentTimeMillis();
+            int start = ThreadLocalRandom.current().nextInt(stripes.length);
+            for (int i = 0; i < stripes.length; i++) {
+                AtomicInteger stripe = stripes[(start + i) % stripes.length];
+                int v;
+                while ((v = stripe.get()) > 0) {
+                    if (stripe.compareAndSet(v, v - 1)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Chỉ 1 luồng xin khối mới; luồng khác chờ rồi lấy từ khối vừa nạp
+        synchronized boolean refillAndTake() {
+            if (tryTake()) {
+                return true;
+            }
+            if (System.currentTimeMillis() < exhaustedUntil) {
+                return false;
+            }
+            int granted = allocate();
+            if (granted <= 0) {
+                exhaustedUntil = System.currentTimeMillis() + exhaustedRecheckMs;
+                return false;
+            }
+            put(granted - 1);
+            return true;
+        }
+
+        private int allocate() {
+            while (true) {
+                Integer remaining = repo.remainingUses(voucherId);
+                if (remaining == null || remaining <= 0) {
+                    return 0;
+                }
+                // Gần hết thì xin ít lại: tối đa nửa phần còn lại
+                int want = Math.max(1, Math.min(blockSize, remaining / 2));
+                if (repo.allocateUses(voucherId, want)) {
+                    return want;
+                }
+                // Instance khác vừa lấy mất, đọc lại số còn lại
+            }
+        }
+
+        void put(int count) {
+            if (count <= 0) {
+                return;
+            }
+            int per = count / stripes.length;
+            int extra = count % stripes.length;
+            for (int i = 0; i < stripes.length; i++) {
+                int n = per + (i < extra ? 1 : 0);
+                if (n > 0) {
+                    stripes[i].addAndGet(n);
+                }
+            }
+            exhaustedUntil = 0;
+        }
+
+        synchronized void drainToDb() {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) {
+                total += stripe.getAndSet(0);
+            }
+            if (total > 0) {
+                try {
+                    repo.returnUses(voucherId, total);
+                } catch (Exception e) {
+                    // Không trả được thì giữ lại, lần sau thử tiếp
+                    put(total);
+                    log.warn("[REDEMPTION] Failed to return {} uses of voucher {}: {}", total, voucherId, e.getMessage());
+                }
+            }
+        }
+    }
+}
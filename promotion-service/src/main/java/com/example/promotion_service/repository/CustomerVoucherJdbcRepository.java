@@ -0,0 +1,56 @@
+package com.example.promotion_service.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bảng shop_customer_vouchers: phát voucher cho nhiều khách bằng JDBC batch
+ */
+@Repository
+public class CustomerVoucherJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    public CustomerVoucherJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Trong customerIds, khách nào đã được gắn voucher
+     */
+    public Set<Long> findAssigned(Long voucherId, Collection<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(namedJdbc.queryForList(
+                "SELECT customers_id FROM shop_customer_vouchers "
+                        + "WHERE vouchers_id = :voucherId AND customers_id IN (:ids)",
+                new MapSqlParameterSource("voucherId", voucherId).addValue("ids", customerIds),
+                Long.class));
+    }
+
+    /**
+     * Gắn voucher cho các khách; cặp đã tồn tại bị bỏ qua (unique vouchers_id + customers_id)
+     */
+    public void insertIgnore(Long voucherId, List<Long> customerIds, Timestamp now) {
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO shop_customer_vouchers (vouchers_id, customers_id, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?)",
+                customerIds, customerIds.size(), (ps, customerId) -> {
+                    ps.setLong(1, voucherId);
+                    ps.setLong(2, customerId);
+                    ps.setTimestamp(3, now);
+                    ps.setTimestamp(4, now);
+                });
+    }
+}
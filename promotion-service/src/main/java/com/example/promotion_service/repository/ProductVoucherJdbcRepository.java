@@ -0,0 +1,68 @@
+package com.example.promotion_service.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bảng shop_product_vouchers: gắn / gỡ voucher cho nhiều sản phẩm bằng JDBC batch
+ */
+@Repository
+public class ProductVoucherJdbcRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    public ProductVoucherJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public Set<Long> findProductIds(Long voucherId) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT products_id FROM shop_product_vouchers WHERE vouchers_id = ? AND products_id IS NOT NULL",
+                Long.class, voucherId));
+    }
+
+    // Khóa các dòng gắn của voucher tới hết transaction
+    public Set<Long> findProductIdsForUpdate(Long voucherId) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT products_id FROM shop_product_vouchers WHERE vouchers_id = ? AND products_id IS NOT NULL "
+                        + "FOR UPDATE",
+                Long.class, voucherId));
+    }
+
+    /**
+     * Gắn voucher cho các sản phẩm; cặp đã tồn tại bị bỏ qua (unique vouchers_id + products_id)
+     */
+    public void insertIgnore(Long voucherId, List<Long> productIds, Timestamp now) {
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO shop_product_vouchers (vouchers_id, products_id, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?)",
+                productIds, BATCH_SIZE, (ps, productId) -> {
+                    ps.setLong(1, voucherId);
+                    ps.setLong(2, productId);
+                    ps.setTimestamp(3, now);
+                    ps.setTimestamp(4, now);
+                });
+    }
+
+    public int delete(Long voucherId, List<Long> productIds) {
+        int deleted = 0;
+        for (int i = 0; i < productIds.size(); i += BATCH_SIZE) {
+            deleted += namedJdbc.update(
+                    "DELETE FROM shop_product_vouchers WHERE vouchers_id = :voucherId AND products_id IN (:ids)",
+                    new MapSqlParameterSource("voucherId", voucherId)
+                            .addValue("ids", productIds.subList(i, Math.min(i + BATCH_SIZE, productIds.size()))));
+        }
+        return deleted;
+    }
+}
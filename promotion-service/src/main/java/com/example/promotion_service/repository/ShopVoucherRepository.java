@@ -2,7 +2,9 @@ package com.example.promotion_service.repository;
 
 import com.example.promotion_service.entity.ShopVoucher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +13,16 @@ public interface ShopVoucherRepository extends JpaRepository<ShopVoucher, Long>
     // TÌM THEO MÃ VOUCHER => TÊN FIELD TRONG ENTITY LÀ voucherCode
     Optional<ShopVoucher> findByVoucherCode(String voucherCode);
 
+    // Phiên bản dữ liệu voucher: [số voucher, updated_at lớn nhất]; đổi khi thêm/sửa/xóa
+    @Query("SELECT COUNT(v), MAX(v.updatedAt) FROM ShopVoucher v")
+    List<Object[]> findVersionInfo();
+
+    // Voucher thêm / sửa từ mốc since (nạp lại index theo phần thay đổi)
+    List<ShopVoucher> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    @Query("SELECT v.id FROM ShopVoucher v")
+    List<Long> findAllIds();
+
     // nếu có dùng thêm findByType thì giữ, không bắt buộc
     List<ShopVoucher> findByType(String type);
 }
@@ -0,0 +1,107 @@
+package com.example.promotion_service.repository;
+
+import com.example.promotion_service.dto.VoucherCampaignDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bảng voucher_campaigns: tiến độ phát voucher hàng loạt, ghi sau mỗi chunk
+ * để instance nào cũng đọc được
+ */
+@Repository
+public class VoucherCampaignJdbcRepository {
+
+    private static final String SELECT_SQL = "SELECT id, vouchers_id, source, source_detail, status, processed, "
+            + "assigned, skipped, invalid, error, created_at, updated_at, finished_at FROM voucher_campaigns ";
+
+    private static final RowMapper<VoucherCampaignDto> MAPPER = (rs, i) -> {
+        VoucherCampaignDto dto = new VoucherCampaignDto();
+        dto.setId(rs.getLong("id"));
+        dto.setVoucherId(rs.getLong("vouchers_id"));
+        dto.setSource(rs.getString("source"));
+        dto.setSourceDetail(rs.getString("source_detail"));
+        dto.setStatus(rs.getString("status"));
+        dto.setProcessed(rs.getInt("processed"));
+        dto.setAssigned(rs.getInt("assigned"));
+        dto.setSkipped(rs.getInt("skipped"));
+        dto.setInvalid(rs.getInt("invalid"));
+        dto.setError(rs.getString("error"));
+        dto.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        dto.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        Timestamp finished = rs.getTimestamp("finished_at");
+        dto.setFinishedAt(finished != null ? finished.toLocalDateTime() : null);
+        return dto;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VoucherCampaignJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long create(Long voucherId, String source, String sourceDetail, Timestamp now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO voucher_campaigns (vouchers_id, source, source_detail, status, created_at, updated_at) "
+                            + "VALUES (?, ?, ?, 'RUNNING', ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, voucherId);
+            ps.setString(2, source);
+            ps.setString(3, sourceDetail);
+            ps.setTimestamp(4, now);
+            ps.setTimestamp(5, now);
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    public void updateProgress(VoucherCampaignDto c, Timestamp now) {
+        jdbcTemplate.update("UPDATE voucher_campaigns SET processed = ?, assigned = ?, skipped = ?, invalid = ?, "
+                        + "updated_at = ? WHERE id = ?",
+                c.getProcessed(), c.getAssigned(), c.getSkipped(), c.getInvalid(), now, c.getId());
+    }
+
+    public void finish(VoucherCampaignDto c, Timestamp now) {
+        jdbcTemplate.update("UPDATE voucher_campaigns SET status = ?, processed = ?, assigned = ?, skipped = ?, "
+                        + "invalid = ?, error = ?, updated_at = ?, finished_at = ? WHERE id = ?",
+                c.getStatus(), c.getProcessed(), c.getAssigned(), c.getSkipped(), c.getInvalid(), c.getError(),
+                now, now, c.getId());
+    }
+
+    /**
+     * Chiến dịch RUNNING không cập nhật tiến độ từ trước mốc staleBefore (instance chạy nó đã dừng / chết)
+     * chuyển FAILED; trả số chiến dịch bị đánh dấu
+     */
+    public int failStale(Timestamp staleBefore, String error, Timestamp now) {
+        return jdbcTemplate.update("UPDATE voucher_campaigns SET status = 'FAILED', error = ?, updated_at = ?, "
+                        + "finished_at = ? WHERE status = 'RUNNING' AND updated_at < ?",
+                error, now, now, staleBefore);
+    }
+
+    /**
+     * Chiến dịch còn RUNNING chuyển FAILED (bị ngắt khi instance tắt)
+     */
+    public void failIfRunning(Long id, String error, Timestamp now) {
+        jdbcTemplate.update("UPDATE voucher_campaigns SET status = 'FAILED', error = ?, updated_at = ?, "
+                        + "finished_at = ? WHERE id = ? AND status = 'RUNNING'",
+                error, now, now, id);
+    }
+
+    public Optional<VoucherCampaignDto> findById(Long id) {
+        return jdbcTemplate.query(SELECT_SQL + "WHERE id = ?", MAPPER, id).stream().findFirst();
+    }
+
+    public List<VoucherCampaignDto> findByVoucherId(Long voucherId) {
+        return jdbcTemplate.query(SELECT_SQL + "WHERE vouchers_id = ? ORDER BY id DESC", MAPPER, voucherId);
+    }
+}
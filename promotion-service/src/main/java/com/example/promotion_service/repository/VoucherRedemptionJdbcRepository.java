@@ -0,0 +1,167 @@
+package com.example.promotion_service.repository;
+
+import com.example.promotion_service.dto.VoucherRedemptionDto;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lượt dùng voucher: bộ đếm tổng (shop_vouchers.used_count), bộ đếm theo khách
+ * (voucher_customer_usage) và các lượt giữ chỗ (voucher_redemptions).
+ *
+ * Mọi câu tăng bộ đếm đều kèm điều kiện không vượt giới hạn, nên dù nhiều instance
+ * cùng ghi cũng không cấp quá số lượt.
+ */
+@Repository
+public class VoucherRedemptionJdbcRepository {
+
+    private static final String SELECT_REDEMPTION = "SELECT r.redemption_key, r.vouchers_id, v.voucher_code, "
+            + "r.customers_id, r.order_id, r.status, r.created_at, r.updated_at "
+            + "FROM voucher_redemptions r JOIN shop_vouchers v ON v.vouchers_id = r.vouchers_id ";
+
+    private static final RowMapper<VoucherRedemptionDto> MAPPER = (rs, i) -> {
+        VoucherRedemptionDto dto = new VoucherRedemptionDto();
+        dto.setRedemptionKey(rs.getString("redemption_key"));
+        dto.setVoucherId(rs.getLong("vouchers_id"));
+        dto.setCode(rs.getString("voucher_code"));
+        long customerId = rs.getLong("customers_id");
+        dto.setCustomerId(rs.wasNull() ? null : customerId);
+        long orderId = rs.getLong("order_id");
+        dto.setOrderId(rs.wasNull() ? null : orderId);
+        dto.setStatus(rs.getString("status"));
+        dto.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        dto.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        return dto;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VoucherRedemptionJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // ---------- bộ đếm tổng ----------
+
+    /**
+     * Số lượt còn lại theo DB (max_user - used_count); null nếu voucher không giới hạn hoặc không tồn tại
+     */
+    public Integer remainingUses(Long voucherId) {
+        List<Integer> rows = jdbcTemplate.queryForList(
+                "SELECT max_user - used_count FROM shop_vouchers WHERE vouchers_id = ? AND max_user IS NOT NULL",
+                Integer.class, voucherId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Cấp trước {@code count} lượt cho 1 instance bằng 1 câu UPDATE có điều kiện.
+     *
+     * @return true nếu đủ lượt và đã cấp; false nếu còn ít hơn count (không cấp gì)
+     */
+    public boolean allocateUses(Long voucherId, int count) {
+        return jdbcTemplate.update(
+                "UPDATE shop_vouchers SET used_count = used_count + ? "
+                        + "WHERE vouchers_id = ? AND max_user IS NOT NULL AND used_count + ? <= max_user",
+                count, voucherId, count) == 1;
+    }
+
+    /**
+     * Trả lại lượt đã cấp mà instance không dùng hết
+     */
+    public void returnUses(Long voucherId, int count) {
+        jdbcTemplate.update(
+                "UPDATE shop_vouchers SET used_count = GREATEST(used_count - ?, 0) WHERE vouchers_id = ?",
+                count, voucherId);
+    }
+
+    // ---------- bộ đếm theo khách ----------
+
+    /**
+     * Giới hạn lượt của khách: usage_limit ở shop_customer_vouchers (nếu khách được gắn voucher)
+     * ghi đè max_per_customer của voucher; null = không giới hạn
+     */
+    public Integer customerLimit(Long voucherId, Long customerId, Integer voucherDefault) {
+        List<Integer> rows = jdbcTemplate.queryForList(
+                "SELECT MAX(usage_limit) FROM shop_customer_vouchers "
+                        + "WHERE vouchers_id = ? AND customers_id = ? AND usage_limit IS NOT NULL",
+                Integer.class, voucherId, customerId);
+        Integer assigned = rows.isEmpty() ? null : rows.get(0);
+        return assigned != null ? assigned : voucherDefault;
+    }
+
+    /**
+     * Tăng lượt dùng của khách nếu chưa tới giới hạn
+     *
+     * @return false nếu khách đã dùng hết lượt
+     */
+    public boolean incrementCustomerUsage(Long voucherId, Long customerId, int limit) {
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO voucher_customer_usage (vouchers_id, customers_id, used_count) VALUES (?, ?, 0)",
+                voucherId, customerId);
+        return jdbcTemplate.update(
+                "UPDATE voucher_customer_usage SET used_count = used_count + 1 "
+                        + "WHERE vouchers_id = ? AND customers_id = ? AND used_count < ?",
+                voucherId, customerId, limit) == 1;
+    }
+
+    public void decrementCustomerUsage(Long voucherId, Long customerId) {
+        jdbcTemplate.update(
+                "UPDATE voucher_customer_usage SET used_count = used_count - 1 "
+                        + "WHERE vouchers_id = ? AND customers_id = ? AND used_count > 0",
+                voucherId, customerId);
+    }
+
+    // ---------- lượt giữ chỗ ----------
+
+    public Optional<VoucherRedemptionDto> findByKey(String redemptionKey) {
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(
+                    SELECT_REDEMPTION + "WHERE r.redemption_key = ?", MAPPER, redemptionKey));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Ghi lượt giữ chỗ; trùng redemption_key thì ném DuplicateKeyException
+     */
+    public void insert(String redemptionKey, Long voucherId, Long customerId, Long orderId,
+            String status, Timestamp now) {
+        jdbcTemplate.update(
+                "INSERT INTO voucher_redemptions "
+                        + "(redemption_key, vouchers_id, customers_id, order_id, status, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                ps -> {
+                    ps.setString(1, redemptionKey);
+                    ps.setLong(2, voucherId);
+                    if (customerId != null) {
+                        ps.setLong(3, customerId);
+                    } else {
+                        ps.setNull(3, Types.BIGINT);
+                    }
+                    if (orderId != null) {
+                        ps.setLong(4, orderId);
+                    } else {
+                        ps.setNull(4, Types.BIGINT);
+                    }
+                    ps.setString(5, status);
+                    ps.setTimestamp(6, now);
+                    ps.setTimestamp(7, now);
+                });
+    }
+
+    /**
+     * Đổi trạng thái nếu đang ở trạng thái from; trả false nếu đã bị đổi trước đó
+     * (2 lần hủy cùng lúc chỉ 1 lần trả lượt)
+     */
+    public boolean updateStatus(String redemptionKey, String from, String to, Timestamp now) {
+        return jdbcTemplate.update(
+                "UPDATE voucher_redemptions SET status = ?, updated_at = ? WHERE redemption_key = ? AND status = ?",
+                to, now, redemptionKey, from) == 1;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.promotion_service.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Serializable;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Header danh tính do api-gateway ký sau khi đã verify JWT.
+ *
+ * X-Identity-Signature = Base64url(HMAC-SHA256(identity.secret, id \n name \n roles \n expires)).
+ * Request qua gateway chỉ cần kiểm tra HMAC và hạn ở đây, không parse JWT lần nữa.
+ *
+ * Service gọi nhau ngoài request người dùng thì tự ký danh tính service (quyền SERVICE, gateway
+ * không cấp quyền này cho người dùng), X-User-Id là khách mà lời gọi làm thay.
+ */
+@Component
+public class IdentityHeaders {
+
+    private static final String USER_ID = "X-User-Id";
+    private static final String USER_NAME = "X-User-Name";
+    private static final String USER_ROLES = "X-User-Roles";
+    private static final String EXPIRES = "X-Identity-Expires";
+    private static final String SIGNATURE = "X-Identity-Signature";
+
+    public static final String SERVICE_AUTHORITY = "SERVICE";
+    // Danh tính service chỉ dùng cho 1 lời gọi
+    private static final long SERVICE_TTL_SECONDS = 60;
+
+    private final ThreadLocal<Mac> mac;
+    private final String serviceName;
+
+    public IdentityHeaders(@Value("${identity.secret}") String secret,
+            @Value("${spring.application.name}") String serviceName) {
+        this.serviceName = serviceName;
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(key);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Người dùng trong header nếu chữ ký đúng và chưa hết hạn; không có header / sai thì rỗng
+     */
+    public Optional<AuthenticatedUser> verify(HttpServletRequest request) {
+        String name = request.getHeader(USER_NAME);
+        String expires = request.getHeader(EXPIRES);
+        String signature = request.getHeader(SIGNATURE);
+        if (name == null || name.isEmpty() || expires == null || signature == null) {
+            return Optional.empty();
+        }
+        String id = nullToEmpty(request.getHeader(USER_ID));
+        String roles = nullToEmpty(request.getHeader(USER_ROLES));
+        try {
+            if (Long.parseLong(expires) * 1000 <= System.currentTimeMillis()) {
+                return Optional.empty();
+            }
+            byte[] expected = sign(id, name, roles, expires);
+            if (!MessageDigest.isEqual(expected, Base64.getUrlDecoder().decode(signature))) {
+                return Optional.empty();
+            }
+            return Optional.of(new AuthenticatedUser(
+                    id.isEmpty() ? null : Long.valueOf(id),
+                    decode(name),
+                    roles.isEmpty() ? List.of() : Arrays.asList(decode(roles).split(","))));
+        } catch (IllegalArgumentException e) { // số / Base64 sai định dạng
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Header danh tính của chính service này (quyền SERVICE, hạn 60s)
+     * @param actingForId khách mà lời gọi làm thay, null nếu không có
+     */
+    public Consumer<HttpHeaders> service(Long actingForId) {
+        String id = actingForId != null ? actingForId.toString() : "";
+        String name = "service:" + serviceName;
+        String expires = Long.toString(System.currentTimeMillis() / 1000 + SERVICE_TTL_SECONDS);
+        String signature = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sign(id, name, SERVICE_AUTHORITY, expires));
+        return headers -> {
+            headers.set(USER_ID, id);
+            headers.set(USER_NAME, name);
+            headers.set(USER_ROLES, SERVICE_AUTHORITY);
+            headers.set(EXPIRES, expires);
+            headers.set(SIGNATURE, signature);
+        };
+    }
+
+    private byte[] sign(String id, String name, String roles, String expires) {
+        String payload = id + "\n" + name + "\n" + roles + "\n" + expires;
+        return mac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Người dùng của request hiện tại (đã qua JwtAuthenticationFilter)
+     */
+    public static Optional<AuthenticatedUser> current() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return Optional.empty();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Principal đặt vào SecurityContext; getName() trả username nên auth.getName() dùng như cũ
+     */
+    public record AuthenticatedUser(Long id, String username, List<String> roles)
+            implements AuthenticatedPrincipal, Serializable {
+
+        // Dựng từ claims của JWT (request gọi thẳng service, không qua gateway)
+        public static AuthenticatedUser of(Object uid, String username, Object roles) {
+            Long id = uid instanceof Number n ? Long.valueOf(n.longValue()) : null;
+            // Quyền SERVICE chỉ có ở danh tính do service ký, không nhận từ JWT
+            List<String> roleList = roles instanceof List<?> list
+                    ? list.stream().map(Object::toString).filter(r -> !SERVICE_AUTHORITY.equals(r)).toList()
+                    : List.of();
+            return new AuthenticatedUser(id, username, roleList);
+        }
+
+        public List<GrantedAuthority> authorities() {
+            return roles.stream()
+                    .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                    .toList();
+        }
+
+        @Override
+        public String getName() {
+            return username;
+        }
+    }
+}
@@ -23,6 +23,10 @@ public class SecurityConfig {
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/**").permitAll() // nếu có health check
+                        // Chỉ service (order-service, danh tính service tự ký) được giữ / trả lượt dùng voucher
+                        .requestMatchers("/api/vouchers/redemptions", "/api/vouchers/redemptions/**")
+                        .hasAuthority(IdentityHeaders.SERVICE_AUTHORITY)
+                        // Tra voucher theo mã / phiên bản / validate: order-service gọi bằng danh tính service
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
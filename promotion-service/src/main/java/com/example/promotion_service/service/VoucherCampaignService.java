@@ -0,0 +1,20 @@
+package com.example.promotion_service.service;
+
+import com.example.promotion_service.dto.CustomerSegmentRequest;
+import com.example.promotion_service.dto.VoucherCampaignDto;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+public interface VoucherCampaignService {
+
+    // Phát voucher cho danh sách id khách trong file (mỗi dòng 1 id, hoặc cột đầu của CSV); chạy nền
+    VoucherCampaignDto startFromFile(Long voucherId, MultipartFile file);
+
+    // Phát voucher cho khách thuộc phân khúc đơn hàng (order-service, gọi bằng danh tính service); chạy nền
+    VoucherCampaignDto startFromSegment(Long voucherId, CustomerSegmentRequest segment);
+
+    VoucherCampaignDto get(Long campaignId);
+
+    List<VoucherCampaignDto> getByVoucher(Long voucherId);
+}
@@ -0,0 +1,18 @@
+package com.example.promotion_service.service;
+
+import com.example.promotion_service.dto.VoucherRedeemRequest;
+import com.example.promotion_service.dto.VoucherRedemptionDto;
+
+import java.util.Optional;
+
+public interface VoucherRedemptionService {
+
+    // Giữ 1 lượt dùng voucher (tổng + theo khách); gửi lại cùng redemptionKey thì trả lượt đã giữ
+    // customerId lấy từ danh tính bên gọi, không lấy từ body
+    VoucherRedemptionDto reserve(VoucherRedeemRequest request, Long customerId);
+
+    // Trả lượt đã giữ (đơn bị hủy); key không tồn tại hoặc đã trả thì bỏ qua
+    Optional<VoucherRedemptionDto> release(String redemptionKey);
+
+    Optional<VoucherRedemptionDto> get(String redemptionKey);
+}
@@ -3,8 +3,11 @@ package com.example.promotion_service.service;
 import com.example.promotion_service.dto.IdListRequest;
 import com.example.promotion_service.dto.VoucherDto;
 import com.example.promotion_service.dto.VoucherRequest;
+import com.example.promotion_service.dto.VoucherValidateRequest;
+import com.example.promotion_service.dto.VoucherValidationDto;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface VoucherService {
@@ -13,8 +16,25 @@ public interface VoucherService {
 
     VoucherDto create(VoucherRequest request);
 
-    // Gắn voucher cho nhiều sản phẩm
-    void attachToProducts(Long voucherId, IdListRequest request);
+    VoucherDto update(Long id, VoucherRequest request);
+
+    // Gắn voucher cho nhiều sản phẩm (JDBC batch, bỏ qua cặp đã gắn); trả số sản phẩm gắn mới
+    int attachToProducts(Long voucherId, IdListRequest request);
+
+    // Gỡ voucher khỏi nhiều sản phẩm; trả số sản phẩm đã gỡ. Không cho gỡ hết (sẽ thành voucher toàn shop)
+    int detachFromProducts(Long voucherId, IdListRequest request);
+
+    // Voucher đang hiệu lực áp được cho từng sản phẩm (đọc từ bộ nhớ)
+    Map<Long, List<VoucherDto>> getApplicable(List<Long> productIds);
 
     Optional<VoucherDto> getByCode(String code);
+
+    // Chuỗi phiên bản dữ liệu voucher, bên gọi cache voucher so sánh để biết khi nào cần làm mới
+    String getVersion();
+
+    // Voucher đang trong thời gian hiệu lực (đọc từ bộ nhớ)
+    List<VoucherDto> getActive();
+
+    // Kiểm tra mã + giỏ hàng và tính số tiền giảm, không truy vấn DB
+    VoucherValidationDto validate(VoucherValidateRequest request);
 }
@@ -0,0 +1,328 @@
+package com.example.promotion_service.service.impl;
+
+import com.example.promotion_service.client.OrderServiceClient;
+import com.example.promotion_service.dto.CustomerSegmentRequest;
+import com.example.promotion_service.dto.VoucherCampaignDto;
+import com.example.promotion_service.exception.NotFoundException;
+import com.example.promotion_service.repository.CustomerVoucherJdbcRepository;
+import com.example.promotion_service.repository.ShopVoucherRepository;
+import com.example.promotion_service.repository.VoucherCampaignJdbcRepository;
+import com.example.promotion_service.service.VoucherCampaignService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phát voucher cho rất nhiều khách (chiến dịch).
+ *
+ * Nguồn id được đọc tuần tự (file từng dòng / order-service từng trang keyset) và ghi mỗi
+ * {@code chunk-size} id: 1 câu SELECT lọc khách đã có voucher + 1 batch INSERT IGNORE trong
+ * 1 transaction, rồi cập nhật tiến độ ở voucher_campaigns. Bộ nhớ chỉ giữ 1 chunk.
+ *
+ * Tắt service thì chiến dịch đang chạy ở instance này chuyển FAILED; chiến dịch RUNNING không
+ * cập nhật tiến độ quá {@code stale-ms} (instance chạy nó chết) cũng chuyển FAILED khi quét định kỳ.
+ */
+@Service
+@Slf4j
+public class VoucherCampaignServiceImpl implements VoucherCampaignService {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ShopVoucherRepository voucherRepository;
+    private final CustomerVoucherJdbcRepository customerVoucherRepo;
+    private final VoucherCampaignJdbcRepository campaignRepo;
+    private final OrderServiceClient orderClient;
+    private final TransactionTemplate chunkTx;
+    private final ExecutorService executor;
+    // Chiến dịch đang chạy ở instance này
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    @Value("${promotion.campaign.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${promotion.campaign.stale-ms:600000}")
+    private long staleMs;
+
+    public VoucherCampaignServiceImpl(ShopVoucherRepository voucherRepository,
+            CustomerVoucherJdbcRepository customerVoucherRepo,
+            VoucherCampaignJdbcRepository campaignRepo,
+            OrderServiceClient orderClient,
+            PlatformTransactionManager transactionManager,
+            @Value("${promotion.campaign.workers:2}") int workers) {
+        this.voucherRepository = voucherRepository;
+        this.customerVoucherRepo = customerVoucherRepo;
+        this.campaignRepo = campaignRepo;
+        this.orderClient = orderClient;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "voucher-campaign");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Long id : running) {
+            try {
+                campaignRepo.failIfRunning(id, "Interrupted: service shutdown", now());
+            } catch (Exception e) {
+                log.warn("[CAMPAIGN] Cannot mark campaign {} as failed: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Chiến dịch RUNNING bị bỏ dở (instance chết giữa chừng) chuyển FAILED; chạy khi khởi động và định kỳ
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${promotion.campaign.stale-ms:600000}", initialDelayString = "${promotion.campaign.stale-ms:600000}")
+    public void failStaleCampaigns() {
+        try {
+            long nowMs = System.currentTimeMillis();
+            int failed = campaignRepo.failStale(new Timestamp(nowMs - staleMs),
+                    "Interrupted: no progress for " + staleMs + " ms", new Timestamp(nowMs));
+            if (failed > 0) {
+                log.warn("[CAMPAIGN] Marked {} stale campaigns as FAILED", failed);
+            }
+        } catch (Exception e) {
+            log.warn("[CAMPAIGN] Failed to check stale campaigns: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public VoucherCampaignDto startFromFile(Long voucherId, MultipartFile file) {
+        requireVoucher(voucherId);
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("File danh sách khách hàng trống");
+        }
+        // File upload bị xóa khi request kết thúc: chép ra file tạm để job nền đọc
+        Path tmp;
+        try {
+            tmp = Files.createTempFile("voucher-campaign-", ".txt");
+            file.transferTo(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không đọc được file danh sách khách hàng", e);
+        }
+        try {
+            return start(voucherId, "UPLOAD", file.getOriginalFilename(), writer -> {
+                try (BufferedReader reader = Files.newBufferedReader(tmp, StandardCharsets.UTF_8)) {
+                    String line;
+                    boolean first = true;
+                    while ((line = reader.readLine()) != null) {
+                        writer.acceptLine(line, first);
+                        first = false;
+                    }
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            });
+        } catch (RuntimeException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("[CAMPAIGN] Cannot delete temp file {}", file);
+        }
+    }
+
+    @Override
+    public VoucherCampaignDto startFromSegment(Long voucherId, CustomerSegmentRequest segment) {
+        requireVoucher(voucherId);
+        CustomerSegmentRequest s = segment != null ? segment : new CustomerSegmentRequest();
+        String detail = "from=" + s.getFrom() + ", to=" + s.getTo() + ", status=" + s.getStatus()
+                + ", minOrders=" + s.getMinOrders() + ", minSpent=" + s.getMinSpent();
+        return start(voucherId, "SEGMENT", detail, writer -> {
+            long afterId = 0;
+            List<Long> page;
+            do {
+                page = orderClient.segmentCustomerIds(s, afterId, chunkSize);
+                for (Long id : page) {
+                    writer.accept(id);
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1);
+                }
+            } while (page.size() >= chunkSize);
+        });
+    }
+
+    @Override
+    public VoucherCampaignDto get(Long campaignId) {
+        return campaignRepo.findById(campaignId)
+                .orElseThrow(() -> new NotFoundException("Campaign not found: " + campaignId));
+    }
+
+    @Override
+    public List<VoucherCampaignDto> getByVoucher(Long voucherId) {
+        return campaignRepo.findByVoucherId(voucherId);
+    }
+
+    private void requireVoucher(Long voucherId) {
+        if (!voucherRepository.existsById(voucherId)) {
+            throw new NotFoundException("Voucher not found with id: " + voucherId);
+        }
+    }
+
+    private VoucherCampaignDto start(Long voucherId, String source, String detail, Source body) {
+        String sourceDetail = detail != null && detail.length() > 500 ? detail.substring(0, 500) : detail;
+        long id = campaignRepo.create(voucherId, source, sourceDetail, now());
+        VoucherCampaignDto campaign = get(id);
+        running.add(id);
+        try {
+            executor.submit(() -> run(campaign, body));
+        } catch (RejectedExecutionException e) { // đang tắt service
+            running.remove(id);
+            campaignRepo.failIfRunning(id, "Interrupted: service shutdown", now());
+            throw new IllegalStateException("Service đang dừng, thử lại sau");
+        }
+        return campaign;
+    }
+
+    private void run(VoucherCampaignDto campaign, Source body) {
+        long started = System.currentTimeMillis();
+        ChunkWriter writer = new ChunkWriter(campaign);
+        try {
+            body.readInto(writer);
+            writer.flush();
+            campaign.setStatus(DONE);
+        } catch (Exception e) {
+            log.error("[CAMPAIGN] Campaign {} failed after {} ids", campaign.getId(), campaign.getProcessed(), e);
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            campaign.setStatus(FAILED);
+            campaign.setError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        }
+        campaignRepo.finish(campaign, now());
+        running.remove(campaign.getId());
+        log.info("[CAMPAIGN] Campaign {} {}: {} ids, {} assigned, {} skipped, {} invalid in {} ms",
+                campaign.getId(), campaign.getStatus(), campaign.getProcessed(), campaign.getAssigned(),
+                campaign.getSkipped(), campaign.getInvalid(), System.currentTimeMillis() - started);
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    @FunctionalInterface
+    private interface Source {
+        void readInto(ChunkWriter writer) throws Exception;
+    }
+
+    /**
+     * Gom id thành chunk, bỏ trùng trong chunk; chunk đầy thì ghi và cập nhật tiến độ
+     */
+    private final class ChunkWriter {
+
+        private final VoucherCampaignDto campaign;
+        private final Set<Long> chunk = new LinkedHashSet<>();
+
+        ChunkWriter(VoucherCampaignDto campaign) {
+            this.campaign = campaign;
+        }
+
+        // Dòng file: id ở cột đầu (phân tách , ; tab); dòng đầu không phải số coi là tiêu đề
+        void acceptLine(String line, boolean firstLine) {
+            String value = line.trim();
+            if (value.isEmpty()) {
+                return;
+            }
+            int sep = indexOfSeparator(value);
+            if (sep >= 0) {
+                value = value.substring(0, sep).trim();
+            }
+            if (value.startsWith("\uFEFF")) {
+                value = value.substring(1);
+            }
+            try {
+                long id = Long.parseLong(value.replace("\"", ""));
+                if (id <= 0) {
+                    throw new NumberFormatException();
+                }
+                accept(id);
+            } catch (NumberFormatException e) {
+                if (!firstLine) {
+                    campaign.setProcessed(campaign.getProcessed() + 1);
+                    campaign.setInvalid(campaign.getInvalid() + 1);
+                }
+            }
+        }
+
+        void accept(Long customerId) {
+            campaign.setProcessed(campaign.getProcessed() + 1);
+            if (customerId == null || !chunk.add(customerId)) {
+                campaign.setSkipped(campaign.getSkipped() + 1);
+                return;
+            }
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!chunk.isEmpty()) {
+                List<Long> ids = new ArrayList<>(chunk);
+                chunk.clear();
+                int assigned = chunkTx.execute(status -> {
+                    Set<Long> existing = customerVoucherRepo.findAssigned(campaign.getVoucherId(), ids);
+                    List<Long> toInsert = ids.stream().filter(id -> !existing.contains(id)).toList();
+                    if (!toInsert.isEmpty()) {
+                        customerVoucherRepo.insertIgnore(campaign.getVoucherId(), toInsert, now());
+                    }
+                    return toInsert.size();
+                });
+                campaign.setAssigned(campaign.getAssigned() + assigned);
+                campaign.setSkipped(campaign.getSkipped() + ids.size() - assigned);
+            }
+            campaignRepo.updateProgress(campaign, now());
+        }
+    }
+
+    private static int indexOfSeparator(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',' || c == ';' || c == '\t') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -2,37 +2,50 @@ package com.example.promotion_service.service.impl;
 
 import com.example.promotion_service.dto.VoucherDto;
 import com.example.promotion_service.entity.ShopCustomerVoucher;
-import com.example.promotion_service.entity.ShopVoucher;
+import com.example.promotion_service.exception.NotFoundException;
+import com.example.promotion_service.repository.CustomerVoucherJdbcRepository;
 import com.example.promotion_service.repository.ShopCustomerVoucherRepository;
 import com.example.promotion_service.repository.ShopVoucherRepository;
 import com.example.promotion_service.service.VoucherCustomerService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class VoucherCustomerServiceImpl implements VoucherCustomerService {
 
     private final ShopVoucherRepository voucherRepository;
+    private static final int BATCH_SIZE = 5000;
+
     private final ShopCustomerVoucherRepository customerVoucherRepository;
+    private final CustomerVoucherJdbcRepository customerVoucherJdbcRepo;
 
     @Override
+    @Transactional
     public void attachVoucherToCustomers(Long voucherId, List<Long> customerIds) {
-        ShopVoucher voucher = voucherRepository.findById(voucherId)
-                .orElseThrow(() -> new RuntimeException("Voucher not found"));
-
-        LocalDateTime now = LocalDateTime.now();
-
-        for (Long customerId : customerIds) {
-            ShopCustomerVoucher rel = new ShopCustomerVoucher();
-            rel.setVoucher(voucher);          
-            rel.setCustomerId(customerId);
-            rel.setCreatedAt(now);
-            rel.setUpdatedAt(now);
-            customerVoucherRepository.save(rel);
+        if (!voucherRepository.existsById(voucherId)) {
+            throw new NotFoundException("Voucher not found with id: " + voucherId);
+        }
+        if (customerIds == null || customerIds.isEmpty()) {
+            return;
+        }
+
+        // Bỏ id trùng và khách đã có voucher, gắn phần còn lại bằng JDBC batch
+        List<Long> ids = customerIds.stream().filter(Objects::nonNull).distinct().toList();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            Set<Long> existing = customerVoucherJdbcRepo.findAssigned(voucherId, chunk);
+            List<Long> toInsert = chunk.stream().filter(id -> !existing.contains(id)).toList();
+            if (!toInsert.isEmpty()) {
+                customerVoucherJdbcRepo.insertIgnore(voucherId, toInsert, now);
+            }
         }
     }
 
@@ -0,0 +1,142 @@
+package com.example.promotion_service.service.impl;
+
+import com.example.promotion_service.cache.VoucherEntry;
+import com.example.promotion_service.cache.VoucherIndex;
+import com.example.promotion_service.dto.VoucherRedeemRequest;
+import com.example.promotion_service.dto.VoucherRedemptionDto;
+import com.example.promotion_service.exception.NotFoundException;
+import com.example.promotion_service.redemption.VoucherUsagePool;
+import com.example.promotion_service.repository.VoucherRedemptionJdbcRepository;
+import com.example.promotion_service.service.VoucherRedemptionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * Giữ / trả lượt dùng voucher.
+ *
+ * Lượt tổng lấy từ {@link VoucherUsagePool} (bộ nhớ, DB chỉ ghi theo khối); lượt theo khách
+ * và dòng voucher_redemptions ghi trong 1 transaction. Ghi lỗi thì trả lượt tổng về pool.
+ */
+@Service
+@Slf4j
+public class VoucherRedemptionServiceImpl implements VoucherRedemptionService {
+
+    public static final String RESERVED = "RESERVED";
+    public static final String RELEASED = "RELEASED";
+
+    private final VoucherIndex voucherIndex;
+    private final VoucherUsagePool usagePool;
+    private final VoucherRedemptionJdbcRepository redemptionRepo;
+    private final TransactionTemplate tx;
+
+    public VoucherRedemptionServiceImpl(VoucherIndex voucherIndex,
+            VoucherUsagePool usagePool,
+            VoucherRedemptionJdbcRepository redemptionRepo,
+            PlatformTransactionManager transactionManager) {
+        this.voucherIndex = voucherIndex;
+        this.usagePool = usagePool;
+        this.redemptionRepo = redemptionRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public VoucherRedemptionDto reserve(VoucherRedeemRequest request, Long customerId) {
+        if (request.getRedemptionKey() == null || request.getRedemptionKey().isBlank()) {
+            throw new IllegalArgumentException("redemptionKey không được để trống");
+        }
+        String key = request.getRedemptionKey().trim();
+        VoucherEntry voucher = voucherIndex.get(request.getCode())
+                .orElseThrow(() -> new NotFoundException("Voucher not found with code: " + request.getCode()));
+
+        // Gửi lại (retry sau timeout): trả lượt đã giữ, không trừ thêm
+        Optional<VoucherRedemptionDto> existing = redemptionRepo.findByKey(key);
+        if (existing.isPresent()) {
+            return sameVoucher(existing.get(), voucher);
+        }
+        if (!voucherIndex.isActive(voucher)) {
+            throw new IllegalStateException("Voucher không trong thời gian áp dụng");
+        }
+
+        boolean globalLimited = voucher.maxUser() != null;
+        if (globalLimited && !usagePool.tryAcquire(voucher.id())) {
+            throw new IllegalStateException("Voucher đã hết lượt sử dụng");
+        }
+        try {
+            tx.executeWithoutResult(status -> {
+                if (customerId != null) {
+                    Integer limit = redemptionRepo.customerLimit(voucher.id(), customerId, voucher.maxPerCustomer());
+                    if (limit != null && !redemptionRepo.incrementCustomerUsage(voucher.id(), customerId, limit)) {
+                        throw new IllegalStateException("Khách hàng đã dùng hết lượt của voucher này");
+                    }
+                }
+                redemptionRepo.insert(key, voucher.id(), customerId, request.getOrderId(),
+                        RESERVED, new Timestamp(System.currentTimeMillis()));
+            });
+        } catch (DuplicateKeyException e) {
+            // Cùng key gửi song song: request kia đã giữ lượt
+            if (globalLimited) {
+                usagePool.release(voucher.id());
+            }
+            return redemptionRepo.findByKey(key)
+                    .map(r -> sameVoucher(r, voucher))
+                    .orElseThrow(() -> e);
+        } catch (RuntimeException e) {
+            if (globalLimited) {
+                usagePool.release(voucher.id());
+            }
+            throw e;
+        }
+        return redemptionRepo.findByKey(key).orElseThrow();
+    }
+
+    private static VoucherRedemptionDto sameVoucher(VoucherRedemptionDto redemption, VoucherEntry voucher) {
+        if (!redemption.getVoucherId().equals(voucher.id())) {
+            throw new IllegalStateException("redemptionKey đã dùng cho voucher khác");
+        }
+        if (RELEASED.equals(redemption.getStatus())) {
+            throw new IllegalStateException("Lượt giữ chỗ đã được trả, dùng redemptionKey mới");
+        }
+        return redemption;
+    }
+
+    @Override
+    public Optional<VoucherRedemptionDto> release(String redemptionKey) {
+        Optional<VoucherRedemptionDto> found = redemptionRepo.findByKey(redemptionKey);
+        if (found.isEmpty() || RELEASED.equals(found.get().getStatus())) {
+            return found;
+        }
+        VoucherRedemptionDto redemption = found.get();
+        Boolean released = tx.execute(status -> {
+            if (!redemptionRepo.updateStatus(redemptionKey, RESERVED, RELEASED,
+                    new Timestamp(System.currentTimeMillis()))) {
+                return false;
+            }
+            if (redemption.getCustomerId() != null) {
+                redemptionRepo.decrementCustomerUsage(redemption.getVoucherId(), redemption.getCustomerId());
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(released)) {
+            // Voucher đã bỏ giới hạn tổng thì used_count không còn ý nghĩa, không cần trả
+            boolean globalLimited = voucherIndex.getById(redemption.getVoucherId())
+                    .map(v -> v.maxUser() != null)
+                    .orElse(false);
+            if (globalLimited) {
+                usagePool.release(redemption.getVoucherId());
+            }
+            log.info("[REDEMPTION] Released {} (voucher {})", redemptionKey, redemption.getVoucherId());
+        }
+        return redemptionRepo.findByKey(redemptionKey);
+    }
+
+    @Override
+    public Optional<VoucherRedemptionDto> get(String redemptionKey) {
+        return redemptionRepo.findByKey(redemptionKey);
+    }
+}
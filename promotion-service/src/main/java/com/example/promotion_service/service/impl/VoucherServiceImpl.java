@@ -1,28 +1,44 @@
 package com.example.promotion_service.service.impl;
 
+import com.example.promotion_service.cache.VoucherEntry;
+import com.example.promotion_service.cache.VoucherIndex;
 import com.example.promotion_service.dto.IdListRequest;
 import com.example.promotion_service.dto.VoucherDto;
 import com.example.promotion_service.dto.VoucherRequest;
-import com.example.promotion_service.entity.ShopProductVoucher;
+import com.example.promotion_service.dto.VoucherValidateRequest;
+import com.example.promotion_service.dto.VoucherValidationDto;
 import com.example.promotion_service.entity.ShopVoucher;
 import com.example.promotion_service.exception.NotFoundException;
-import com.example.promotion_service.repository.ShopProductVoucherRepository;
+import com.example.promotion_service.redemption.VoucherUsagePool;
+import com.example.promotion_service.repository.ProductVoucherJdbcRepository;
 import com.example.promotion_service.repository.ShopVoucherRepository;
 import com.example.promotion_service.service.VoucherService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class VoucherServiceImpl implements VoucherService {
 
     private final ShopVoucherRepository voucherRepository;
-    private final ShopProductVoucherRepository productVoucherRepository;
+    private final VoucherIndex voucherIndex;
+    private final VoucherUsagePool usagePool;
+    private final ProductVoucherJdbcRepository productVoucherJdbcRepo;
 
     @Override
     public List<VoucherDto> getAll() {
@@ -34,45 +50,201 @@ public class VoucherServiceImpl implements VoucherService {
 
     @Override
     public VoucherDto create(VoucherRequest request) {
+        checkRequest(request, null);
         ShopVoucher voucher = new ShopVoucher();
-        // chú ý: field trong entity là voucherCode
-        voucher.setVoucherCode(request.getCode());
-        voucher.setDescription(request.getDescription());
+        apply(voucher, request);
+        voucher.setCreatedAt(LocalDateTime.now());
+
+        ShopVoucher saved = voucherRepository.save(voucher);
+        voucherIndex.put(VoucherEntry.of(saved, Set.of()));
+        return VoucherDto.fromEntity(saved);
+    }
+
+    @Override
+    public VoucherDto update(Long id, VoucherRequest request) {
+        ShopVoucher voucher = voucherRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Voucher not found with id: " + id));
+        checkRequest(request, id);
+        boolean limitChanged = !Objects.equals(voucher.getMaxUser(), request.getMaxUser());
+        apply(voucher, request);
+
+        ShopVoucher saved = voucherRepository.save(voucher);
+        voucherIndex.put(VoucherEntry.of(saved, productVoucherJdbcRepo.findProductIds(id)));
+        if (limitChanged) {
+            // Trả lượt đang giữ trong bộ nhớ, lần cấp sau theo max_user mới
+            usagePool.reset(id);
+        }
+        return VoucherDto.fromEntity(saved);
+    }
 
-        if (request.getDiscountAmount() != null) {
-            // convert Double -> BigDecimal
-            voucher.setDiscountAmount(BigDecimal.valueOf(request.getDiscountAmount()));
+    private void checkRequest(VoucherRequest request, Long currentId) {
+        if (request.getCode() == null || request.getCode().isBlank()) {
+            throw new IllegalArgumentException("Mã voucher không được để trống");
         }
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && !request.getEndDate().isAfter(request.getStartDate())) {
+            throw new IllegalArgumentException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        if ((request.getMaxUser() != null && request.getMaxUser() < 0)
+                || (request.getMaxPerCustomer() != null && request.getMaxPerCustomer() < 0)) {
+            throw new IllegalArgumentException("Số lượt dùng không được âm");
+        }
+        voucherIndex.get(request.getCode())
+                .filter(existing -> !existing.id().equals(currentId))
+                .ifPresent(existing -> {
+                    throw new IllegalArgumentException("Mã voucher đã tồn tại: " + request.getCode());
+                });
+    }
 
+    private static void apply(ShopVoucher voucher, VoucherRequest request) {
+        // chú ý: field trong entity là voucherCode
+        voucher.setVoucherCode(request.getCode().trim());
+        voucher.setDescription(request.getDescription());
+        voucher.setType(request.getType());
+        voucher.setMaxUser(request.getMaxUser());
+        voucher.setMaxPerCustomer(request.getMaxPerCustomer());
+        // convert Double -> BigDecimal
+        voucher.setDiscountAmount(request.getDiscountAmount() != null
+                ? BigDecimal.valueOf(request.getDiscountAmount())
+                : null);
         voucher.setStartDate(request.getStartDate());
         voucher.setEndDate(request.getEndDate());
-        voucher.setCreatedAt(LocalDateTime.now());
         voucher.setUpdatedAt(LocalDateTime.now());
+    }
 
-        ShopVoucher saved = voucherRepository.save(voucher);
-        return VoucherDto.fromEntity(saved);
+    @Override
+    @Transactional
+    public int attachToProducts(Long voucherId, IdListRequest request) {
+        ShopVoucher voucher = voucherRepository.findById(voucherId)
+                .orElseThrow(() -> new NotFoundException("Voucher not found with id: " + voucherId));
+
+        // Bỏ id trùng trong request và cặp đã gắn; INSERT IGNORE chặn nốt cặp instance khác vừa gắn
+        Set<Long> linked = productVoucherJdbcRepo.findProductIds(voucherId);
+        List<Long> toInsert = distinctIds(request).stream()
+                .filter(id -> !linked.contains(id))
+                .toList();
+        if (toInsert.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        productVoucherJdbcRepo.insertIgnore(voucherId, toInsert, Timestamp.valueOf(now));
+        linked.addAll(toInsert);
+        touch(voucher, now, linked);
+        return toInsert.size();
     }
 
     @Override
-    public void attachToProducts(Long voucherId, IdListRequest request) {
-        if (!voucherRepository.existsById(voucherId)) {
-            throw new NotFoundException("Voucher not found with id: " + voucherId);
+    @Transactional
+    public int detachFromProducts(Long voucherId, IdListRequest request) {
+        ShopVoucher voucher = voucherRepository.findById(voucherId)
+                .orElseThrow(() -> new NotFoundException("Voucher not found with id: " + voucherId));
+
+        // Khóa các dòng gắn của voucher: 2 lần gỡ song song không cùng gỡ hết được
+        Set<Long> linked = productVoucherJdbcRepo.findProductIdsForUpdate(voucherId);
+        List<Long> ids = distinctIds(request);
+        Set<Long> remaining = new HashSet<>(linked);
+        ids.forEach(remaining::remove);
+        // Không còn sản phẩm nào = áp dụng cho mọi sản phẩm: không để voucher giới hạn sản phẩm
+        // âm thầm thành voucher toàn shop
+        if (!linked.isEmpty() && remaining.isEmpty()) {
+            throw new IllegalStateException("Không thể gỡ hết sản phẩm của voucher " + voucher.getVoucherCode()
+                    + " (voucher sẽ áp dụng cho mọi sản phẩm); hãy xóa hoặc kết thúc voucher");
+        }
+        int deleted = productVoucherJdbcRepo.delete(voucherId, ids);
+        if (deleted > 0) {
+            touch(voucher, LocalDateTime.now(), remaining);
         }
+        return deleted;
+    }
 
-        LocalDateTime now = LocalDateTime.now();
-        for (Long productId : request.getIds()) {
-            ShopProductVoucher pv = new ShopProductVoucher();
-            pv.setVoucherId(voucherId);
-            pv.setProductId(productId);
-            pv.setCreatedAt(now);
-            pv.setUpdatedAt(now);
-            productVoucherRepository.save(pv);
+    // Đổi updated_at để phiên bản dữ liệu đổi (instance khác / cache order-service làm mới)
+    private void touch(ShopVoucher voucher, LocalDateTime now, Set<Long> productIds) {
+        voucher.setUpdatedAt(now);
+        voucherRepository.save(voucher);
+        VoucherEntry entry = VoucherEntry.of(voucher, productIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                voucherIndex.put(entry);
+            }
+        });
+    }
+
+    private static List<Long> distinctIds(IdListRequest request) {
+        if (request == null || request.getIds() == null) {
+            return List.of();
         }
+        return request.getIds().stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    @Override
+    public Map<Long, List<VoucherDto>> getApplicable(List<Long> productIds) {
+        Map<Long, List<VoucherDto>> result = new LinkedHashMap<>();
+        voucherIndex.applicableTo(productIds).forEach((productId, vouchers) ->
+                result.put(productId, vouchers.stream().map(VoucherEntry::toDto).toList()));
+        return result;
+    }
+
+    @Override
+    public String getVersion() {
+        return voucherIndex.dbVersion();
     }
 
     @Override
     public Optional<VoucherDto> getByCode(String code) {
-        return voucherRepository.findByVoucherCode(code)
-                .map(VoucherDto::fromEntity);
+        return voucherIndex.get(code).map(VoucherEntry::toDto);
+    }
+
+    @Override
+    public List<VoucherDto> getActive() {
+        return voucherIndex.activeVouchers().stream()
+                .map(VoucherEntry::toDto)
+                .toList();
+    }
+
+    @Override
+    public VoucherValidationDto validate(VoucherValidateRequest request) {
+        VoucherValidationDto result = new VoucherValidationDto();
+        result.setCode(request.getCode());
+
+        Optional<VoucherEntry> found = voucherIndex.get(request.getCode());
+        if (found.isEmpty()) {
+            return invalid(result, "Mã voucher không tồn tại");
+        }
+        VoucherEntry voucher = found.get();
+        result.setVoucher(voucher.toDto());
+
+        if (!voucherIndex.isActive(voucher)) {
+            LocalDateTime now = LocalDateTime.now();
+            return invalid(result, voucher.startDate() != null && voucher.startDate().isAfter(now)
+                    ? "Voucher chưa đến thời gian áp dụng"
+                    : "Voucher đã hết hạn");
+        }
+        if (!voucher.productIds().isEmpty()) {
+            List<Long> cartProducts = request.getProductIds() != null ? request.getProductIds() : List.of();
+            if (cartProducts.stream().noneMatch(voucher.productIds()::contains)) {
+                return invalid(result, "Voucher không áp dụng cho sản phẩm trong giỏ hàng");
+            }
+        }
+
+        BigDecimal cartTotal = request.getCartTotal() != null ? request.getCartTotal() : BigDecimal.ZERO;
+        BigDecimal amount = voucher.discountAmount() != null ? voucher.discountAmount() : BigDecimal.ZERO;
+        BigDecimal discount = voucher.isPercent()
+                ? cartTotal.multiply(amount).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP)
+                : amount;
+        // Không giảm quá tổng tiền hàng
+        result.setDiscount(discount.min(cartTotal).max(BigDecimal.ZERO));
+        result.setValid(true);
+        return result;
+    }
+
+    private static VoucherValidationDto invalid(VoucherValidationDto result, String reason) {
+        result.setValid(false);
+        result.setReason(reason);
+        result.setDiscount(BigDecimal.ZERO);
+        return result;
     }
 }
@@ -0,0 +1,35 @@
+-- Giới hạn lượt dùng voucher
+--  - shop_vouchers.max_user: tổng lượt dùng tối đa (đã có), used_count: lượt đã cấp
+--    (gồm lượt instance đang giữ sẵn trong bộ nhớ, trả lại khi không dùng hết)
+--  - max_per_customer: số lượt tối đa mỗi khách; shop_customer_vouchers.usage_limit ghi đè cho từng khách
+ALTER TABLE shop_vouchers
+    ADD COLUMN used_count INT NOT NULL DEFAULT 0,
+    ADD COLUMN max_per_customer INT NULL;
+
+ALTER TABLE shop_customer_vouchers
+    ADD COLUMN usage_limit INT NULL;
+
+CREATE INDEX idx_customer_vouchers_voucher_customer ON shop_customer_vouchers(vouchers_id, customers_id);
+
+-- Số lượt đã dùng của từng khách cho từng voucher
+CREATE TABLE voucher_customer_usage (
+    vouchers_id   BIGINT NOT NULL,
+    customers_id  BIGINT NOT NULL,
+    used_count    INT    NOT NULL DEFAULT 0,
+    PRIMARY KEY (vouchers_id, customers_id)
+);
+
+-- Mỗi lần giữ chỗ voucher (theo redemption_key do bên gọi sinh, dùng làm khóa idempotency)
+CREATE TABLE voucher_redemptions (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    redemption_key  VARCHAR(100) NOT NULL,
+    vouchers_id     BIGINT       NOT NULL,
+    customers_id    BIGINT       NULL,
+    order_id        BIGINT       NULL,
+    status          VARCHAR(20)  NOT NULL,
+    created_at      DATETIME(3)  NOT NULL,
+    updated_at      DATETIME(3)  NOT NULL,
+    CONSTRAINT uk_voucher_redemptions_key UNIQUE (redemption_key)
+);
+
+CREATE INDEX idx_voucher_redemptions_voucher ON voucher_redemptions(vouchers_id, status);
@@ -0,0 +1,11 @@
+-- Gắn voucher-sản phẩm theo batch dùng INSERT IGNORE: mỗi cặp chỉ 1 dòng
+DELETE a FROM shop_product_vouchers a
+    JOIN shop_product_vouchers b
+      ON a.vouchers_id = b.vouchers_id
+     AND a.products_id = b.products_id
+     AND a.product_vouchers_id > b.product_vouchers_id;
+
+ALTER TABLE shop_product_vouchers
+    ADD CONSTRAINT uk_product_vouchers_pair UNIQUE (vouchers_id, products_id);
+
+CREATE INDEX idx_product_vouchers_product ON shop_product_vouchers(products_id);
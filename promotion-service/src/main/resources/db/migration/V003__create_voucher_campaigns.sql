@@ -0,0 +1,30 @@
+-- Phát voucher cho khách theo batch dùng INSERT IGNORE: mỗi cặp voucher-khách chỉ 1 dòng
+DELETE a FROM shop_customer_vouchers a
+    JOIN shop_customer_vouchers b
+      ON a.vouchers_id = b.vouchers_id
+     AND a.customers_id = b.customers_id
+     AND a.customer_vouchers_id > b.customer_vouchers_id;
+
+DROP INDEX idx_customer_vouchers_voucher_customer ON shop_customer_vouchers;
+
+ALTER TABLE shop_customer_vouchers
+    ADD CONSTRAINT uk_customer_vouchers_pair UNIQUE (vouchers_id, customers_id);
+
+-- Mỗi lần phát voucher hàng loạt (chiến dịch) và tiến độ
+CREATE TABLE voucher_campaigns (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    vouchers_id   BIGINT       NOT NULL,
+    source        VARCHAR(20)  NOT NULL,   -- UPLOAD / SEGMENT
+    source_detail VARCHAR(500) NULL,
+    status        VARCHAR(20)  NOT NULL,   -- RUNNING / DONE / FAILED
+    processed     INT          NOT NULL DEFAULT 0,
+    assigned      INT          NOT NULL DEFAULT 0,
+    skipped       INT          NOT NULL DEFAULT 0,
+    invalid       INT          NOT NULL DEFAULT 0,
+    error         VARCHAR(1000) NULL,
+    created_at    DATETIME(3)  NOT NULL,
+    updated_at    DATETIME(3)  NOT NULL,
+    finished_at   DATETIME(3)  NULL
+);
+
+CREATE INDEX idx_voucher_campaigns_voucher ON voucher_campaigns(vouchers_id, id);
@@ -0,0 +1,191 @@
+package com.example.promotion_service.redemption;
+
+import com.example.promotion_service.repository.VoucherRedemptionJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nhiều luồng cùng lấy / trả lượt trong khi job trả lượt nhàn rỗi và reset chạy song song:
+ * tổng lượt đang phát ra không bao giờ vượt max_user.
+ */
+class VoucherUsagePoolTest {
+
+    private static final long VOUCHER_ID = 1L;
+    private static final int MAX_USER = 500;
+    private static final int THREADS = 16;
+
+    private InMemoryRedemptionRepository repo;
+    private VoucherUsagePool pool;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryRedemptionRepository(MAX_USER);
+        pool = new VoucherUsagePool(repo);
+        ReflectionTestUtils.setField(pool, "blockSize", 20);
+        ReflectionTestUtils.setField(pool, "stripeCount", 4);
+        // Hết lượt thì hỏi lại DB ngay, idle = 0 để returnIdle luôn trả hết về DB
+        ReflectionTestUtils.setField(pool, "exhaustedRecheckMs", 0L);
+        ReflectionTestUtils.setField(pool, "idleReturnMs", 0L);
+    }
+
+    @Test
+    void neverGrantsMoreThanMaxUser() throws Exception {
+        AtomicInteger acquired = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<?> maintenance = executor.submit(() -> {
+                while (!stop.get()) {
+                    pool.returnIdle();
+                    pool.reset(VOUCHER_ID);
+                }
+            });
+            List<Future<?>> workers = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < MAX_USER; i++) {
+                        if (pool.tryAcquire(VOUCHER_ID)) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+            stop.set(true);
+            maintenance.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Số lần thử gấp nhiều lần max_user: phát đúng max_user lượt, không hơn, không thiếu
+        pool.returnAll();
+        assertThat(acquired.get()).isEqualTo(MAX_USER);
+        assertThat(repo.used()).isEqualTo(MAX_USER);
+        assertThat(repo.maxSeen()).isLessThanOrEqualTo(MAX_USER);
+    }
+
+    @Test
+    void releasedUsesAreReusedWithoutOvershoot() throws Exception {
+        repo.failReturns(true);
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<?> maintenance = executor.submit(() -> {
+                while (!stop.get()) {
+                    pool.returnIdle();
+                    pool.reset(VOUCHER_ID);
+                }
+            });
+            List<Future<?>> workers = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    int mine = 0;
+                    for (int i = 0; i < 5_000; i++) {
+                        if (mine > 0 && ThreadLocalRandom.current().nextBoolean()) {
+                            // Giữ chỗ bị hủy: bỏ khỏi số đang giữ trước khi trả vào pool
+                            mine--;
+                            held.decrementAndGet();
+                            pool.release(VOUCHER_ID);
+                        } else if (pool.tryAcquire(VOUCHER_ID)) {
+                            mine++;
+                            maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+            stop.set(true);
+            maintenance.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxHeld.get()).isLessThanOrEqualTo(MAX_USER);
+        assertThat(repo.maxSeen()).isLessThanOrEqualTo(MAX_USER);
+
+        // Trả hết phần pool đang giữ: DB chỉ còn tính các lượt thực sự đang được giữ
+        repo.failReturns(false);
+        pool.returnAll();
+        assertThat(repo.used()).isEqualTo(held.get());
+    }
+
+    /**
+     * Bộ đếm used_count / max_user trong bộ nhớ với cùng điều kiện như các câu UPDATE thật;
+     * bật failReturns thì returnUses thỉnh thoảng lỗi (như mất kết nối DB)
+     */
+    private static final class InMemoryRedemptionRepository extends VoucherRedemptionJdbcRepository {
+
+        private final int maxUser;
+        private int used;
+        private int maxSeen;
+        private volatile boolean failReturns;
+
+        InMemoryRedemptionRepository(int maxUser) {
+            super(null);
+            this.maxUser = maxUser;
+        }
+
+        @Override
+        public synchronized Integer remainingUses(Long voucherId) {
+            return maxUser - used;
+        }
+
+        @Override
+        public synchronized boolean allocateUses(Long voucherId, int count) {
+            if (used + count > maxUser) {
+                return false;
+            }
+            used += count;
+            maxSeen = Math.max(maxSeen, used);
+            return true;
+        }
+
+        @Override
+        public synchronized void returnUses(Long voucherId, int count) {
+            if (failReturns && ThreadLocalRandom.current().nextInt(10) == 0) {
+                throw new IllegalStateException("connection lost");
+            }
+            used = Math.max(used - count, 0);
+        }
+
+        void failReturns(boolean fail) {
+            this.failReturns = fail;
+        }
+
+        synchronized int used() {
+            return used;
+        }
+
+        synchronized int maxSeen() {
+            return maxSeen;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.example.settings_cms_service;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableDiscoveryClient  
+@EnableDiscoveryClient
+@EnableScheduling
 public class SettingsCmsServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(SettingsCmsServiceApplication.class, args);
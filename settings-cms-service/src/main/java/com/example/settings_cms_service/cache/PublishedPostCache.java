@@ -0,0 +1,120 @@
+package com.example.settings_cms_service.cache;
+
+import com.example.settings_cms_service.common.TransactionHooks;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * JSON đã serialize của bài viết đã đăng và danh sách bài theo danh mục (trang công khai).
+ *
+ * - Lưu sẵn byte + ETag (băm nội dung, giống nhau giữa các instance), trang xem không đọc DB
+ *   và không serialize lại
+ * - Giới hạn max-size: bỏ mục hết hạn trước rồi tới mục nạp lâu nhất; ttl-ms giới hạn độ trễ
+ *   khi bài được sửa ở instance khác
+ * - Sửa bài / danh mục thì xóa cả cache sau khi commit; lần nạp chồng lên lần xóa không được lưu
+ */
+@Component
+public class PublishedPostCache {
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${cms.post-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${cms.post-cache.max-size:2000}")
+    private int maxSize;
+
+    public PublishedPostCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param etag ETag dạng "..." (có ngoặc kép) dùng thẳng cho header
+     */
+    public record Entry(byte[] body, String etag, long expiresAt) {
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    /**
+     * Lấy từ cache, không có thì gọi loader rồi serialize; loader trả null (không tìm thấy) thì
+     * trả null và không lưu.
+     */
+    public Entry get(String key, Supplier<Object> loader) {
+        Entry cached = cache.get(key);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+        long generationAtStart = generation.get();
+        Object value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + key, e);
+        }
+        Entry entry = new Entry(body, etag(body), System.currentTimeMillis() + ttlMs);
+        // So generation và put dưới cùng lock với invalidateAll: lần xóa không thể chen giữa 2 bước
+        synchronized (this) {
+            if (generation.get() == generationAtStart) {
+                cache.put(key, entry);
+                if (cache.size() > maxSize) {
+                    evict();
+                }
+            }
+        }
+        return entry;
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    public void invalidateAfterCommit() {
+        TransactionHooks.afterCommit(this::invalidateAll);
+    }
+
+    private synchronized void evict() {
+        cache.values().removeIf(Entry::isExpired);
+        int excess = cache.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        // Bỏ thêm 10% để không phải evict ở mỗi lần nạp
+        int toRemove = Math.max(excess, maxSize / 10);
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                .limit(toRemove)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(cache::remove);
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
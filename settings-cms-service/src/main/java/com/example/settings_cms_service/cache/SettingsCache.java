@@ -0,0 +1,132 @@
+package com.example.settings_cms_service.cache;
+
+import com.example.settings_cms_service.entity.ShopSetting;
+import com.example.settings_cms_service.repository.ShopSettingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Toàn bộ bảng shop_settings trong bộ nhớ (bảng nhỏ, đọc ở hầu hết mọi trang).
+ *
+ * Mỗi lần nạp tạo 1 snapshot bất biến rồi thay cả snapshot (người đọc không thấy trạng thái
+ * dở dang). Phiên bản = băm nội dung, nên mọi instance có cùng dữ liệu thì cùng phiên bản.
+ * Ghi qua service thì nạp lại ngay; scheduler nạp lại để bắt thay đổi từ instance khác.
+ */
+@Component
+@Slf4j
+public class SettingsCache {
+
+    private final ShopSettingRepository repo;
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    public SettingsCache(ShopSettingRepository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * @param byKey setting theo key (bản sao, không gắn với persistence context)
+     */
+    public record Snapshot(String version, Map<String, ShopSetting> byKey) {
+    }
+
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        return s != null ? s : reload();
+    }
+
+    /**
+     * Được gọi mỗi khi phiên bản đổi
+     */
+    public void addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("[SETTINGS] Failed to load settings", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${settings.cache.refresh-ms:5000}", initialDelayString = "${settings.cache.refresh-ms:5000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("[SETTINGS] Failed to refresh settings: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Snapshot reload() {
+        Map<String, ShopSetting> byKey = new TreeMap<>();
+        for (ShopSetting s : repo.findAll()) {
+            if (s.getSettingKey() != null) {
+                byKey.put(s.getSettingKey(), copy(s));
+            }
+        }
+        Snapshot fresh = new Snapshot(version(byKey), Collections.unmodifiableMap(byKey));
+        Snapshot previous = snapshot;
+        if (previous != null && previous.version().equals(fresh.version())) {
+            return previous;
+        }
+        snapshot = fresh;
+        if (previous != null) {
+            log.info("[SETTINGS] Settings changed ({} -> {}), {} keys", previous.version(), fresh.version(), byKey.size());
+            listeners.forEach(l -> {
+                try {
+                    l.accept(fresh);
+                } catch (Exception e) {
+                    log.warn("[SETTINGS] Listener failed: {}", e.getMessage());
+                }
+            });
+        }
+        return fresh;
+    }
+
+    private static ShopSetting copy(ShopSetting s) {
+        return ShopSetting.builder()
+                .id(s.getId())
+                .settingKey(s.getSettingKey())
+                .value(s.getValue())
+                .description(s.getDescription())
+                .createdAt(s.getCreatedAt())
+                .updatedAt(s.getUpdatedAt())
+                .build();
+    }
+
+    // Băm (key, value, description) theo thứ tự key
+    private static String version(Map<String, ShopSetting> byKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (ShopSetting s : byKey.values()) {
+                digest.update(s.getSettingKey().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Objects.toString(s.getValue(), "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Objects.toString(s.getDescription(), "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 1);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
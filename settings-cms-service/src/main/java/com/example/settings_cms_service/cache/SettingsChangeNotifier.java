@@ -0,0 +1,121 @@
+package com.example.settings_cms_service.cache;
+
+import com.example.settings_cms_service.dto.SettingsSnapshotDto;
+import com.example.settings_cms_service.entity.ShopSetting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Đẩy thay đổi setting cho service khác: long-poll (trả khi phiên bản khác phiên bản client
+ * đang có, hết hạn thì 304) và SSE (mỗi lần đổi gửi nguyên snapshot).
+ *
+ * SSE có hạn ({@code stream-timeout-ms}, client tự kết nối lại) và gửi comment heartbeat định kỳ
+ * để proxy không cắt kết nối rảnh, đồng thời phát hiện sớm subscriber đã mất.
+ */
+@Component
+@Slf4j
+public class SettingsChangeNotifier {
+
+    private final SettingsCache cache;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final Queue<SseEmitter> emitters = new ConcurrentLinkedQueue<>();
+
+    @Value("${settings.changes.max-timeout-ms:60000}")
+    private long maxTimeoutMs;
+
+    @Value("${settings.changes.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    public SettingsChangeNotifier(SettingsCache cache) {
+        this.cache = cache;
+        cache.addListener(this::publish);
+    }
+
+    private record Waiter(String version, DeferredResult<ResponseEntity<SettingsSnapshotDto>> result) {
+    }
+
+    public static SettingsSnapshotDto toDto(SettingsCache.Snapshot snapshot) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (ShopSetting s : snapshot.byKey().values()) {
+            values.put(s.getSettingKey(), s.getValue());
+        }
+        return new SettingsSnapshotDto(snapshot.version(), values);
+    }
+
+    /**
+     * Long-poll: version rỗng hoặc khác hiện tại thì trả ngay
+     */
+    public DeferredResult<ResponseEntity<SettingsSnapshotDto>> poll(String version, long timeoutMs) {
+        long timeout = Math.max(1000, Math.min(timeoutMs, maxTimeoutMs));
+        DeferredResult<ResponseEntity<SettingsSnapshotDto>> result =
+                new DeferredResult<>(timeout, ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        Waiter waiter = new Waiter(version, result);
+        result.onCompletion(() -> waiters.remove(waiter));
+        waiters.add(waiter);
+
+        // Kiểm tra sau khi đăng ký: thay đổi xảy ra giữa 2 bước vẫn không bị lỡ
+        SettingsCache.Snapshot current = cache.current();
+        if (version == null || version.isBlank() || !current.version().equals(version)) {
+            result.setResult(ResponseEntity.ok(toDto(current)));
+        }
+        return result;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        send(emitter, toDto(cache.current()));
+        return emitter;
+    }
+
+    private void publish(SettingsCache.Snapshot snapshot) {
+        SettingsSnapshotDto dto = toDto(snapshot);
+        for (Waiter waiter : waiters) {
+            if (!snapshot.version().equals(waiter.version())) {
+                waiter.result().setResult(ResponseEntity.ok(dto));
+            }
+        }
+        for (SseEmitter emitter : emitters) {
+            send(emitter, dto);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${settings.changes.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private void send(SseEmitter emitter, SettingsSnapshotDto dto) {
+        send(emitter, SseEmitter.event()
+                .id(dto.getVersion())
+                .name("settings")
+                .data(dto));
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+            log.debug("[SETTINGS] Drop subscriber: {}", e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.settings_cms_service.controller;
 
+import com.example.settings_cms_service.cache.PublishedPostCache;
 import com.example.settings_cms_service.dto.PostRequest;
+import com.example.settings_cms_service.dto.PostViewDto;
 import com.example.settings_cms_service.entity.ShopPost;
 import com.example.settings_cms_service.service.PostService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/posts")
@@ -27,6 +35,46 @@ public class PostController {
         return postService.search(status, categoryId, keyword, PageRequest.of(page, size));
     }
 
+    // ===== Trang công khai (bài đã đăng), phục vụ từ cache, có ETag =====
+
+    @GetMapping("/published")
+    public ResponseEntity<byte[]> published(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest
+    ) {
+        return cached(postService.getPublishedByCategory(categoryId, page, size), webRequest);
+    }
+
+    @GetMapping("/published/{slug}")
+    public ResponseEntity<byte[]> publishedDetail(@PathVariable String slug, WebRequest webRequest) {
+        return cached(postService.getPublished(slug), webRequest);
+    }
+
+    // Trang bài viết gọi mỗi lần được xem; chỉ cộng trong bộ nhớ
+    @PostMapping("/{id}/views")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void recordView(@PathVariable Long id) {
+        postService.recordView(id);
+    }
+
+    @GetMapping("/most-viewed")
+    public List<PostViewDto> mostViewed(@RequestParam(defaultValue = "10") int limit) {
+        return postService.getMostViewed(limit);
+    }
+
+    // If-None-Match khớp thì 304 không body
+    private static ResponseEntity<byte[]> cached(PublishedPostCache.Entry entry, WebRequest webRequest) {
+        if (webRequest.checkNotModified(entry.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.body());
+    }
+
     @GetMapping("/{id}")
     public ShopPost detail(@PathVariable Long id) {
         return postService.getById(id);
@@ -1,11 +1,18 @@
 package com.example.settings_cms_service.controller;
 
+import com.example.settings_cms_service.cache.SettingsChangeNotifier;
 import com.example.settings_cms_service.dto.SettingRequest;
+import com.example.settings_cms_service.dto.SettingsSnapshotDto;
 import com.example.settings_cms_service.entity.ShopSetting;
 import com.example.settings_cms_service.service.SettingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -15,10 +22,35 @@ import java.util.List;
 public class SettingController {
 
     private final SettingService settingService;
+    private final SettingsChangeNotifier changeNotifier;
 
+    // ?keys=a,b,c để lấy nhiều key 1 lần; ETag theo phiên bản, If-None-Match khớp thì 304
     @GetMapping
-    public List<ShopSetting> getAll() {
-        return settingService.getAll();
+    public ResponseEntity<List<ShopSetting>> getAll(@RequestParam(required = false) List<String> keys,
+                                                    WebRequest webRequest) {
+        // Đọc phiên bản trước dữ liệu: nếu đổi giữa chừng, ETag cũ chỉ làm client tải lại lần sau
+        String etag = "\"" + settingService.getVersion() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        List<ShopSetting> settings = keys == null || keys.isEmpty()
+                ? settingService.getAll()
+                : settingService.getByKeys(keys);
+        return ResponseEntity.ok().eTag(etag).body(settings);
+    }
+
+    // Long-poll: trả ngay nếu version khác phiên bản hiện tại, không thì chờ tới khi đổi (hết hạn -> 304)
+    @GetMapping("/changes")
+    public DeferredResult<ResponseEntity<SettingsSnapshotDto>> changes(
+            @RequestParam(required = false) String version,
+            @RequestParam(defaultValue = "30000") long timeoutMs) {
+        return changeNotifier.poll(version, timeoutMs);
+    }
+
+    // SSE: gửi snapshot hiện tại rồi mỗi lần setting đổi gửi snapshot mới (event "settings")
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return changeNotifier.subscribe();
     }
 
     @GetMapping("/{key}")
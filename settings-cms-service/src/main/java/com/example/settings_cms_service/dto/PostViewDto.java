@@ -0,0 +1,18 @@
+package com.example.settings_cms_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Bài trong danh sách xem nhiều (chỉ các cột cần hiển thị)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostViewDto {
+    private Long id;
+    private String slug;
+    private String title;
+    private String excerpt;
+    private String image;
+    private Long viewCount;
+}
@@ -0,0 +1,16 @@
+package com.example.settings_cms_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Toàn bộ setting (key -> value) kèm phiên bản, cho service khác giữ bản sao cục bộ
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettingsSnapshotDto {
+    private String version;
+    private Map<String, String> values;
+}
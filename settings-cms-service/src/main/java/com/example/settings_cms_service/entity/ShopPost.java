@@ -5,6 +5,8 @@ package com.example.settings_cms_service.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "shop_posts")
 @Getter @Setter
@@ -40,4 +42,18 @@ public class ShopPost {
 
     @Column(name = "user_id")
     private Long userId;   // id user bên AUTH-SERVICE
+
+    // Chỉ PostViewCounter cộng dồn, JPA không ghi đè
+    @Column(name = "view_count", insertable = false, updatable = false)
+    private Long viewCount;
+
+    // Index tìm kiếm dựa vào cột này để nạp lại bài sửa ở instance khác
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onChange() {
+        updatedAt = LocalDateTime.now();
+    }
 }
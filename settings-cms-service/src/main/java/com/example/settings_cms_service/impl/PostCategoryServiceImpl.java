@@ -1,11 +1,13 @@
 package com.example.settings_cms_service.impl;
 
+import com.example.settings_cms_service.cache.PublishedPostCache;
 import com.example.settings_cms_service.dto.PostCategoryRequest;
 import com.example.settings_cms_service.entity.ShopPostCategory;
 import com.example.settings_cms_service.repository.ShopPostCategoryRepository;
 import com.example.settings_cms_service.service.PostCategoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,6 +17,7 @@ import java.util.List;
 public class PostCategoryServiceImpl implements PostCategoryService {
 
     private final ShopPostCategoryRepository repo;
+    private final PublishedPostCache publishedCache;
 
     @Override
     public List<ShopPostCategory> getAll() {
@@ -40,6 +43,7 @@ public class PostCategoryServiceImpl implements PostCategoryService {
     }
 
     @Override
+    @Transactional
     public ShopPostCategory update(Long id, PostCategoryRequest request) {
         ShopPostCategory cate = getById(id);
         cate.setCode(request.getCode());
@@ -47,11 +51,16 @@ public class PostCategoryServiceImpl implements PostCategoryService {
         cate.setDescription(request.getDescription());
         cate.setImage(request.getImage());
         cate.setUpdatedAt(LocalDateTime.now());
-        return repo.save(cate);
+        ShopPostCategory saved = repo.save(cate);
+        // Bài viết đã cache có kèm thông tin danh mục
+        publishedCache.invalidateAfterCommit();
+        return saved;
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
         repo.deleteById(id);
+        publishedCache.invalidateAfterCommit();
     }
 }
@@ -1,27 +1,55 @@
 package com.example.settings_cms_service.impl;
 
+import com.example.settings_cms_service.cache.PublishedPostCache;
 import com.example.settings_cms_service.dto.PostRequest;
+import com.example.settings_cms_service.dto.PostViewDto;
 import com.example.settings_cms_service.entity.ShopPost;
 import com.example.settings_cms_service.entity.ShopPostCategory;
 import com.example.settings_cms_service.repository.ShopPostCategoryRepository;
 import com.example.settings_cms_service.repository.ShopPostRepository;
+import com.example.settings_cms_service.search.PostSearchIndex;
 import com.example.settings_cms_service.service.PostService;
+import com.example.settings_cms_service.view.PostViewCounter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class PostServiceImpl implements PostService {
 
+    private static final int MAX_PUBLIC_PAGE_SIZE = 50;
+
     private final ShopPostRepository postRepo;
     private final ShopPostCategoryRepository cateRepo;
+    private final PostSearchIndex searchIndex;
+    private final PublishedPostCache publishedCache;
+    private final PostViewCounter viewCounter;
+    private final TransactionTemplate tx;
+
+    @Value("${cms.posts.published-status:published}")
+    private String publishedStatus;
 
     @Override
     public Page<ShopPost> search(String status, Long categoryId, String keyword, Pageable pageable) {
         if (StringUtils.hasText(keyword)) {
+            if (searchIndex.isReady()) {
+                return searchIndexed(keyword, status, categoryId, pageable);
+            }
             return postRepo.findByTitleContainingIgnoreCase(keyword, pageable);
         }
         if (categoryId != null) {
@@ -37,6 +65,21 @@ public class PostServiceImpl implements PostService {
         return postRepo.findAll(pageable);
     }
 
+    // Lấy trang id từ index rồi chỉ đọc các dòng đó, giữ thứ tự theo độ liên quan
+    private Page<ShopPost> searchIndexed(String keyword, String status, Long categoryId, Pageable pageable) {
+        PostSearchIndex.SearchResult result = searchIndex.search(keyword, status, categoryId, pageable);
+        if (result.ids().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, result.total());
+        }
+        Map<Long, ShopPost> byId = postRepo.findAllById(result.ids()).stream()
+                .collect(Collectors.toMap(ShopPost::getId, Function.identity()));
+        List<ShopPost> content = result.ids().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, pageable, result.total());
+    }
+
     @Override
     public ShopPost getById(Long id) {
         return postRepo.findById(id)
@@ -44,6 +87,51 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
+    public PublishedPostCache.Entry getPublished(String slug) {
+        PublishedPostCache.Entry entry = publishedCache.get("post:" + slug, () -> tx.execute(status ->
+                postRepo.findFirstBySlugAndStatus(slug, publishedStatus)
+                        .map(PostServiceImpl::detach)
+                        .orElse(null)));
+        if (entry == null) {
+            throw new RuntimeException("Post not found");
+        }
+        return entry;
+    }
+
+    @Override
+    public PublishedPostCache.Entry getPublishedByCategory(Long categoryId, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PUBLIC_PAGE_SIZE));
+        int pageNo = Math.max(0, page);
+        String key = "category:" + categoryId + ":" + pageNo + ":" + pageSize;
+        return publishedCache.get(key, () -> tx.execute(status -> {
+            Pageable pageable = PageRequest.of(pageNo, pageSize, Sort.by(Sort.Direction.DESC, "id"));
+            Page<ShopPost> posts = categoryId != null
+                    ? postRepo.findByCategory_IdAndStatus(categoryId, publishedStatus, pageable)
+                    : postRepo.findByStatus(publishedStatus, pageable);
+            return posts.map(PostServiceImpl::detach);
+        }));
+    }
+
+    @Override
+    public void recordView(Long id) {
+        // Endpoint công khai: chỉ đếm bài đã đăng còn tồn tại, id rác không chiếm chỗ bộ đếm
+        Boolean published = searchIndex.hasStatus(id, publishedStatus);
+        if (published == null) {
+            // Index đang build (vừa khởi động)
+            published = postRepo.existsByIdAndStatus(id, publishedStatus);
+        }
+        if (published) {
+            viewCounter.record(id);
+        }
+    }
+
+    @Override
+    public List<PostViewDto> getMostViewed(int limit) {
+        return viewCounter.mostViewed(Math.min(limit, MAX_PUBLIC_PAGE_SIZE));
+    }
+
+    @Override
+    @Transactional
     public ShopPost create(PostRequest request) {
         ShopPostCategory cate = cateRepo.findById(request.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
@@ -60,10 +148,14 @@ public class PostServiceImpl implements PostService {
                 .category(cate)
                 .userId(request.getUserId())
                 .build();
-        return postRepo.save(post);
+        ShopPost saved = postRepo.save(post);
+        searchIndex.indexAfterCommit(saved);
+        publishedCache.invalidateAfterCommit();
+        return saved;
     }
 
     @Override
+    @Transactional
     public ShopPost update(Long id, PostRequest request) {
         ShopPost post = getById(id);
 
@@ -81,12 +173,18 @@ public class PostServiceImpl implements PostService {
         }
         if (request.getUserId() != null) post.setUserId(request.getUserId());
 
-        return postRepo.save(post);
+        ShopPost saved = postRepo.save(post);
+        searchIndex.indexAfterCommit(saved);
+        publishedCache.invalidateAfterCommit();
+        return saved;
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
         postRepo.deleteById(id);
+        searchIndex.removeAfterCommit(id);
+        publishedCache.invalidateAfterCommit();
     }
 
     private String generateSlug(String title) {
@@ -94,4 +192,29 @@ public class PostServiceImpl implements PostService {
                 .replaceAll("[^a-z0-9\\s-]", "")
                 .replaceAll("\\s+", "-");
     }
+
+    // Bản sao không gắn session (danh mục đã nạp, không còn proxy) để serialize ngoài transaction
+    private static ShopPost detach(ShopPost p) {
+        ShopPostCategory c = p.getCategory();
+        return ShopPost.builder()
+                .id(p.getId())
+                .slug(p.getSlug())
+                .title(p.getTitle())
+                .content(p.getContent())
+                .excerpt(p.getExcerpt())
+                .status(p.getStatus())
+                .image(p.getImage())
+                .userId(p.getUserId())
+                .viewCount(p.getViewCount())
+                .category(c == null ? null : ShopPostCategory.builder()
+                        .id(c.getId())
+                        .code(c.getCode())
+                        .name(c.getName())
+                        .description(c.getDescription())
+                        .image(c.getImage())
+                        .createdAt(c.getCreatedAt())
+                        .updatedAt(c.getUpdatedAt())
+                        .build())
+                .build();
+    }
 }
@@ -1,33 +1,63 @@
 package com.example.settings_cms_service.impl;
 
+import com.example.settings_cms_service.cache.SettingsCache;
+import com.example.settings_cms_service.common.TransactionHooks;
 import com.example.settings_cms_service.dto.SettingRequest;
 import com.example.settings_cms_service.entity.ShopSetting;
 import com.example.settings_cms_service.repository.ShopSettingRepository;
 import com.example.settings_cms_service.service.SettingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+/**
+ * Đọc từ {@link SettingsCache}; ghi vào DB rồi nạp lại cache sau khi commit.
+ */
 @Service
 @RequiredArgsConstructor
 public class SettingServiceImpl implements SettingService {
 
     private final ShopSettingRepository repo;
+    private final SettingsCache cache;
 
     @Override
     public List<ShopSetting> getAll() {
-        return repo.findAll();
+        return new ArrayList<>(cache.current().byKey().values());
     }
 
     @Override
     public ShopSetting getByKey(String key) {
-        return repo.findBySettingKey(key)
-                .orElseThrow(() -> new RuntimeException("Setting not found"));
+        ShopSetting setting = cache.current().byKey().get(key);
+        if (setting == null) {
+            throw new RuntimeException("Setting not found");
+        }
+        return setting;
     }
 
     @Override
+    public List<ShopSetting> getByKeys(Collection<String> keys) {
+        Map<String, ShopSetting> byKey = cache.current().byKey();
+        return new LinkedHashSet<>(keys).stream()
+                .map(byKey::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public String getVersion() {
+        return cache.current().version();
+    }
+
+    @Override
+    @Transactional
     public ShopSetting createOrUpdate(SettingRequest request) {
         ShopSetting setting = repo.findBySettingKey(request.getKey())
                 .orElse(ShopSetting.builder()
@@ -37,11 +67,20 @@ public class SettingServiceImpl implements SettingService {
         setting.setValue(request.getValue());
         setting.setDescription(request.getDescription());
         setting.setUpdatedAt(LocalDateTime.now());
-        return repo.save(setting);
+        ShopSetting saved = repo.save(setting);
+        reloadAfterCommit();
+        return saved;
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
         repo.deleteById(id);
+        reloadAfterCommit();
+    }
+
+    private void reloadAfterCommit() {
+        // Lỗi nạp lại không làm hỏng request đã commit; scheduler sẽ nạp lại sau
+        TransactionHooks.afterCommit(cache::refresh);
     }
 }
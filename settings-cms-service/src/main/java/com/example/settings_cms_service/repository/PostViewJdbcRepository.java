@@ -0,0 +1,55 @@
+package com.example.settings_cms_service.repository;
+
+import com.example.settings_cms_service.dto.PostViewDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class PostViewJdbcRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Cộng lượt xem cho nhiều bài trong 1 câu UPDATE (join với bảng dẫn xuất id, delta)
+     */
+    public int addViews(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE shop_posts p JOIN (");
+        List<Object> args = new ArrayList<>(deltas.size() * 2);
+        boolean first = true;
+        for (Map.Entry<Long, Long> e : deltas.entrySet()) {
+            sql.append(first ? "SELECT ? AS id, ? AS delta" : " UNION ALL SELECT ?, ?");
+            args.add(e.getKey());
+            args.add(e.getValue());
+            first = false;
+        }
+        sql.append(") d ON p.id = d.id SET p.view_count = p.view_count + d.delta");
+        return jdbc.update(sql.toString(), args.toArray());
+    }
+
+    public List<PostViewDto> findMostViewed(String status, int limit) {
+        return jdbc.query("""
+                SELECT id, post_slug, post_title, post_excerpt, post_image, view_count
+                FROM shop_posts
+                WHERE post_status = ?
+                ORDER BY view_count DESC, id DESC
+                LIMIT ?
+                """,
+                (rs, i) -> new PostViewDto(
+                        rs.getLong("id"),
+                        rs.getString("post_slug"),
+                        rs.getString("post_title"),
+                        rs.getString("post_excerpt"),
+                        rs.getString("post_image"),
+                        rs.getLong("view_count")),
+                status, limit);
+    }
+}
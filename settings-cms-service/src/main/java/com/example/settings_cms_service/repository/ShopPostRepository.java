@@ -5,6 +5,11 @@ import com.example.settings_cms_service.entity.ShopPostCategory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface ShopPostRepository extends JpaRepository<ShopPost, Long> {
 
@@ -16,4 +21,22 @@ public interface ShopPostRepository extends JpaRepository<ShopPost, Long> {
 
     Page<ShopPost> findByTitleContainingIgnoreCase(String keyword,
                                                    Pageable pageable);
-}
\ No newline at end of file
+
+    // Build index theo lô (keyset theo id)
+    List<ShopPost> findTop500ByIdGreaterThanOrderByIdAsc(Long id);
+
+    Optional<ShopPost> findFirstBySlugAndStatus(String slug, String status);
+
+    Page<ShopPost> findByCategory_IdAndStatus(Long categoryId, String status, Pageable pageable);
+
+    boolean existsByIdAndStatus(Long id, String status);
+
+    // Phiên bản dữ liệu bài viết: [số bài, updated_at lớn nhất]; đổi khi thêm/sửa/xóa
+    @Query("SELECT COUNT(p), MAX(p.updatedAt) FROM ShopPost p")
+    List<Object[]> findVersionInfo();
+
+    List<ShopPost> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    @Query("SELECT p.id FROM ShopPost p")
+    List<Long> findAllIds();
+}
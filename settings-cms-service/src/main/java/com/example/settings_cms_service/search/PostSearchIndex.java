@@ -0,0 +1,447 @@
+package com.example.settings_cms_service.search;
+
+import com.example.settings_cms_service.common.TransactionHooks;
+import com.example.settings_cms_service.entity.ShopPost;
+import com.example.settings_cms_service.repository.ShopPostRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.Bits;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index (Lucene, nằm trong RAM) trên tiêu đề và nội dung bài viết.
+ *
+ * - Bỏ dấu tiếng Việt cả khi index lẫn khi tìm ("khuyen mai" khớp "Khuyến mãi")
+ * - Nội dung HTML được bỏ thẻ trước khi tách từ; tiêu đề được ưu tiên hơn nội dung
+ * - Build lại toàn bộ khi khởi động, cập nhật theo từng bài sau khi commit
+ * - Scheduler so phiên bản DB (số bài + updated_at lớn nhất), khác thì index lại các bài mới sửa
+ *   và bỏ bài đã xóa: thấy được bài sửa ở instance khác
+ *
+ * Khi index chưa build xong thì {@link #isReady()} = false, service dùng lại truy vấn DB.
+ */
+@Component
+@Slf4j
+public class PostSearchIndex {
+
+    private static final String F_ID = "id";
+    private static final String F_TITLE = "title";
+    private static final String F_CONTENT = "content";
+    private static final String F_STATUS = "status";
+    private static final String F_CATE = "cate";
+    private static final String F_ID_SORT = "id_sort";
+    // Nạp lùi lại 1 khoảng so với mốc trước: ghi commit muộn hơn updated_at vẫn được thấy
+    private static final long REFRESH_OVERLAP_SECONDS = 5;
+
+    private final ShopPostRepository repo;
+    private final Analyzer analyzer = new FoldingAnalyzer();
+    private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    private volatile boolean ready = false;
+    // Các id bị ghi trong lúc đang build lại, cần index lại sau khi build xong
+    private final Set<Long> dirtyDuringBuild = ConcurrentHashMap.newKeySet();
+    private volatile String loadedVersion;
+    // updated_at lớn nhất ở lần build / refresh trước
+    private volatile LocalDateTime loadedUpTo;
+
+    public PostSearchIndex(ShopPostRepository repo) throws IOException {
+        this.repo = repo;
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Build index ở thread riêng để không chặn khởi động service.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread t = new Thread(this::rebuild, "post-search-index-build");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public synchronized void rebuild() {
+        ready = false;
+        long start = System.currentTimeMillis();
+        try {
+            // Lấy phiên bản trước khi đọc: có ghi xen giữa thì lần refresh sau sẽ nạp lại
+            Object[] version = repo.findVersionInfo().get(0);
+            writer.deleteAll();
+            long lastId = 0L;
+            int total = 0;
+            List<ShopPost> batch;
+            while (!(batch = repo.findTop500ByIdGreaterThanOrderByIdAsc(lastId)).isEmpty()) {
+                for (ShopPost p : batch) {
+                    writer.updateDocument(new Term(F_ID, p.getId().toString()), toDocument(PostDoc.of(p)));
+                }
+                total += batch.size();
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            reindexDirty();
+            searcherManager.maybeRefreshBlocking();
+            loadedVersion = version(version);
+            loadedUpTo = (LocalDateTime) version[1];
+            ready = true;
+            log.info("[SEARCH] Indexed {} posts in {} ms", total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("[SEARCH] Failed to build post index, falling back to DB search", e);
+        }
+    }
+
+    /**
+     * Index lại bài có updated_at từ mốc lần trước (trừ khoảng chồng lấn) và bỏ bài không còn trong DB
+     * nếu phiên bản dữ liệu đổi. Ghi local cũng đổi phiên bản nên lần sau chỉ index lại vài bài đó.
+     */
+    @Scheduled(fixedDelayString = "${cms.search.refresh-ms:5000}", initialDelayString = "${cms.search.refresh-ms:5000}")
+    public synchronized void refreshIfChanged() {
+        if (!ready) {
+            return;
+        }
+        try {
+            Object[] version = repo.findVersionInfo().get(0);
+            if (version(version).equals(loadedVersion)) {
+                return;
+            }
+            // Chưa bài nào có updated_at (dữ liệu trước migration) thì lấy mọi bài đã có updated_at
+            LocalDateTime since = loadedUpTo;
+            List<ShopPost> changed = repo.findByUpdatedAtGreaterThanEqual(since != null
+                    ? since.minusSeconds(REFRESH_OVERLAP_SECONDS)
+                    : LocalDateTime.of(1970, 1, 1, 0, 0));
+            for (ShopPost p : changed) {
+                writer.updateDocument(new Term(F_ID, p.getId().toString()), toDocument(PostDoc.of(p)));
+            }
+            Set<Long> existing = new HashSet<>(repo.findAllIds());
+            int removed = 0;
+            for (Long id : indexedIds()) {
+                if (!existing.contains(id)) {
+                    writer.deleteDocuments(new Term(F_ID, id.toString()));
+                    removed++;
+                }
+            }
+            searcherManager.maybeRefreshBlocking();
+            loadedVersion = version(version);
+            if (version[1] != null) {
+                loadedUpTo = (LocalDateTime) version[1];
+            }
+            log.debug("[SEARCH] Refreshed {} changed, {} removed posts", changed.size(), removed);
+        } catch (Exception e) {
+            log.warn("[SEARCH] Failed to refresh post index: {}", e.getMessage());
+        }
+    }
+
+    private List<Long> indexedIds() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            List<Long> ids = new ArrayList<>();
+            StoredFields fields = searcher.storedFields();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                Bits live = leaf.reader().getLiveDocs();
+                for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+                    if (live == null || live.get(i)) {
+                        ids.add(Long.valueOf(fields.document(leaf.docBase + i, Set.of(F_ID)).get(F_ID)));
+                    }
+                }
+            }
+            return ids;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private static String version(Object[] row) {
+        long count = ((Number) row[0]).longValue();
+        return count + "-" + (row[1] != null ? row[1].toString() : "0");
+    }
+
+    /**
+     * Cập nhật index sau khi transaction hiện tại commit (rollback thì không đụng tới index).
+     */
+    public void indexAfterCommit(ShopPost post) {
+        PostDoc doc = PostDoc.of(post);
+        TransactionHooks.afterCommit(() -> index(List.of(doc)));
+    }
+
+    public void removeAfterCommit(Long postId) {
+        TransactionHooks.afterCommit(() -> remove(postId));
+    }
+
+    public void index(Collection<PostDoc> posts) {
+        if (posts.isEmpty()) {
+            return;
+        }
+        try {
+            for (PostDoc p : posts) {
+                if (!ready) {
+                    dirtyDuringBuild.add(p.id());
+                }
+                writer.updateDocument(new Term(F_ID, p.id().toString()), toDocument(p));
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            log.error("[SEARCH] Failed to index posts", e);
+        }
+    }
+
+    public void remove(Long postId) {
+        try {
+            if (!ready) {
+                dirtyDuringBuild.add(postId);
+            }
+            writer.deleteDocuments(new Term(F_ID, postId.toString()));
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            log.error("[SEARCH] Failed to remove post {} from index", postId, e);
+        }
+    }
+
+    /**
+     * Tìm id bài viết theo từ khóa (+ trạng thái, danh mục), sắp theo độ liên quan, đã phân trang.
+     *
+     * @return id của trang hiện tại (đúng thứ tự) và tổng số kết quả
+     */
+    public SearchResult search(String keyword, String status, Long categoryId, Pageable pageable) {
+        BooleanQuery.Builder qb = new BooleanQuery.Builder();
+        List<String> tokens = analyze(keyword);
+        if (tokens.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        for (String token : tokens) {
+            qb.add(tokenQuery(token), BooleanClause.Occur.MUST);
+        }
+        if (status != null && !status.isBlank()) {
+            qb.add(new TermQuery(new Term(F_STATUS, status.trim().toLowerCase())), BooleanClause.Occur.FILTER);
+        }
+        if (categoryId != null) {
+            qb.add(new TermQuery(new Term(F_CATE, categoryId.toString())), BooleanClause.Occur.FILTER);
+        }
+        Query query = qb.build();
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int total = searcher.count(query);
+            int offset = pageable.isPaged() ? (int) pageable.getOffset() : 0;
+            int limit = pageable.isPaged() ? pageable.getPageSize() : total;
+            if (offset >= total || limit <= 0) {
+                return new SearchResult(List.of(), total);
+            }
+
+            // Cùng điểm thì bài mới trước
+            Sort sort = new Sort(SortField.FIELD_SCORE, new SortField(F_ID_SORT, SortField.Type.LONG, true));
+            TopDocs top = searcher.search(query, offset + limit, sort);
+            List<Long> ids = new ArrayList<>(limit);
+            ScoreDoc[] hits = top.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                Document doc = searcher.storedFields().document(hits[i].doc, Set.of(F_ID));
+                ids.add(Long.valueOf(doc.get(F_ID)));
+            }
+            return new SearchResult(ids, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("[SEARCH] Failed to release searcher", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bài có trong index với trạng thái này không; null khi index chưa build xong
+     */
+    public Boolean hasStatus(Long postId, String status) {
+        if (!ready) {
+            return null;
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(F_ID, postId.toString())), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(F_STATUS, status.trim().toLowerCase())), BooleanClause.Occur.FILTER)
+                .build();
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            return searcher.count(query) > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("[SEARCH] Failed to release searcher", e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    // ---------- query helpers ----------
+
+    /**
+     * Mỗi từ phải khớp (chính xác > tiền tố > gần đúng) ở tiêu đề hoặc nội dung.
+     */
+    private Query tokenQuery(String token) {
+        BooleanQuery.Builder b = new BooleanQuery.Builder();
+        for (String field : new String[] { F_TITLE, F_CONTENT }) {
+            float weight = F_TITLE.equals(field) ? 1f : 0.3f;
+            b.add(new BoostQuery(new TermQuery(new Term(field, token)), 3f * weight), BooleanClause.Occur.SHOULD);
+            b.add(new BoostQuery(new PrefixQuery(new Term(field, token)), 2f * weight), BooleanClause.Occur.SHOULD);
+            int edits = token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+            if (edits > 0) {
+                b.add(new BoostQuery(new FuzzyQuery(new Term(field, token), edits, 1), weight),
+                        BooleanClause.Occur.SHOULD);
+            }
+        }
+        return b.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        try (TokenStream ts = analyzer.tokenStream(F_TITLE, text)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            ts.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    // ---------- document mapping ----------
+
+    private Document toDocument(PostDoc p) {
+        Document doc = new Document();
+        doc.add(new StringField(F_ID, p.id().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(F_ID_SORT, p.id()));
+        if (p.title() != null) {
+            doc.add(new TextField(F_TITLE, p.title(), Field.Store.NO));
+        }
+        if (p.content() != null) {
+            doc.add(new TextField(F_CONTENT, stripHtml(p.content()), Field.Store.NO));
+        }
+        if (p.status() != null) {
+            doc.add(new StringField(F_STATUS, p.status().trim().toLowerCase(), Field.Store.NO));
+        }
+        if (p.categoryId() != null) {
+            doc.add(new StringField(F_CATE, p.categoryId().toString(), Field.Store.NO));
+        }
+        return doc;
+    }
+
+    private void reindexDirty() throws IOException {
+        if (dirtyDuringBuild.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(dirtyDuringBuild);
+        dirtyDuringBuild.removeAll(ids);
+        Set<Long> found = new HashSet<>();
+        for (ShopPost p : repo.findAllById(ids)) {
+            PostDoc doc = PostDoc.of(p);
+            writer.updateDocument(new Term(F_ID, doc.id().toString()), toDocument(doc));
+            found.add(doc.id());
+        }
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                writer.deleteDocuments(new Term(F_ID, id.toString()));
+            }
+        }
+    }
+
+    // Thẻ HTML và entity (&nbsp; ...) không phải nội dung
+    private static String stripHtml(String html) {
+        return html.replaceAll("<[^>]*>", " ").replaceAll("&[a-zA-Z#0-9]+;", " ");
+    }
+
+    /**
+     * Tách từ chuẩn -> chữ thường -> bỏ dấu (ASCII folding, gồm cả đ -> d)
+     */
+    private static final class FoldingAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new LowerCaseFilter(tokenizer);
+            stream = new ASCIIFoldingFilter(stream);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    }
+
+    /**
+     * Các cột cần để index 1 bài (không giữ entity / proxy danh mục)
+     */
+    public record PostDoc(Long id, String title, String content, String status, Long categoryId) {
+
+        static PostDoc of(ShopPost p) {
+            return new PostDoc(p.getId(), p.getTitle(), p.getContent(), p.getStatus(),
+                    p.getCategory() != null ? p.getCategory().getId() : null);
+        }
+    }
+
+    public record SearchResult(List<Long> ids, long total) {
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.settings_cms_service.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -23,6 +25,12 @@ public class SecurityConfig {
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/**").permitAll() // nếu có health check
+                        // Trang bài viết công khai cho khách chưa đăng nhập
+                        .requestMatchers(HttpMethod.GET, "/api/posts/published", "/api/posts/published/**",
+                                "/api/posts/most-viewed").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/posts/*/views").permitAll()
+                        // Long-poll/SSE trả kết quả qua async dispatch, request gốc đã được xác thực
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
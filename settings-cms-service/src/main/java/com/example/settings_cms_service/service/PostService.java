@@ -1,13 +1,23 @@
 package com.example.settings_cms_service.service;
 
+import com.example.settings_cms_service.cache.PublishedPostCache;
 import com.example.settings_cms_service.dto.PostRequest;
+import com.example.settings_cms_service.dto.PostViewDto;
 import com.example.settings_cms_service.entity.ShopPost;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface PostService {
     Page<ShopPost> search(String status, Long categoryId, String keyword, Pageable pageable);
     ShopPost getById(Long id);
+    // Trang công khai: JSON đã serialize sẵn (kèm ETag) từ cache
+    PublishedPostCache.Entry getPublished(String slug);
+    PublishedPostCache.Entry getPublishedByCategory(Long categoryId, int page, int size);
+    // Đếm lượt xem trong bộ nhớ, ghi DB theo lô
+    void recordView(Long id);
+    List<PostViewDto> getMostViewed(int limit);
     ShopPost create(PostRequest request);
     ShopPost update(Long id, PostRequest request);
     void delete(Long id);
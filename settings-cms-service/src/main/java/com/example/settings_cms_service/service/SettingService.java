@@ -3,11 +3,16 @@ package com.example.settings_cms_service.service;
 import com.example.settings_cms_service.dto.SettingRequest;
 import com.example.settings_cms_service.entity.ShopSetting;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface SettingService {
     List<ShopSetting> getAll();
     ShopSetting getByKey(String key);
+    // Chỉ các key yêu cầu (key không tồn tại thì bỏ qua)
+    List<ShopSetting> getByKeys(Collection<String> keys);
+    // Phiên bản hiện tại của toàn bộ setting, đổi mỗi khi có setting thay đổi
+    String getVersion();
     ShopSetting createOrUpdate(SettingRequest request);
     void delete(Long id);
 }
@@ -0,0 +1,161 @@
+package com.example.settings_cms_service.view;
+
+import com.example.settings_cms_service.dto.PostViewDto;
+import com.example.settings_cms_service.repository.PostViewJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lượt xem bài viết đếm trong bộ nhớ, ghi DB theo lô.
+ *
+ * Mỗi bài 1 LongAdder (cộng trên nhiều cell, không tranh chấp khi bài đang hot). Scheduler
+ * lấy phần chênh so với lần ghi trước của mọi bài và cộng vào DB bằng 1 câu UPDATE; ghi lỗi
+ * thì giữ nguyên phần chênh để lần sau ghi tiếp. Tắt service thì ghi nốt.
+ *
+ * Bộ đếm đã ghi hết và không có lượt xem mới trong idle-ms thì bỏ, nên max-tracked chỉ tính
+ * các bài đang được xem.
+ *
+ * Top bài xem nhiều đọc lại từ DB định kỳ (gồm lượt của instance khác) cộng phần chưa ghi
+ * của instance này, rồi giữ sẵn trong bộ nhớ.
+ */
+@Component
+@Slf4j
+public class PostViewCounter {
+
+    private static final int FLUSH_CHUNK = 500;
+
+    private final PostViewJdbcRepository repo;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private volatile List<PostViewDto> mostViewed = List.of();
+
+    @Value("${cms.posts.published-status:published}")
+    private String publishedStatus;
+
+    // Số bài tối đa theo dõi (chặn id rác làm phình bộ nhớ)
+    @Value("${cms.views.max-tracked:100000}")
+    private int maxTracked;
+
+    @Value("${cms.views.top-size:100}")
+    private int topSize;
+
+    @Value("${cms.views.idle-ms:600000}")
+    private long idleMs;
+
+    public PostViewCounter(PostViewJdbcRepository repo) {
+        this.repo = repo;
+    }
+
+    private static final class Counter {
+        final LongAdder views = new LongAdder();
+        // Chỉ luồng flush ghi
+        volatile long flushed;
+        volatile long lastSeen = System.currentTimeMillis();
+
+        long pending() {
+            return views.sum() - flushed;
+        }
+    }
+
+    public void record(Long postId) {
+        Counter counter = counters.get(postId);
+        if (counter == null) {
+            if (counters.size() >= maxTracked) {
+                return;
+            }
+            counter = counters.computeIfAbsent(postId, id -> new Counter());
+        }
+        counter.views.increment();
+        counter.lastSeen = System.currentTimeMillis();
+    }
+
+    /**
+     * Top bài đã đăng xem nhiều nhất (tối đa top-size), không đọc DB
+     */
+    public List<PostViewDto> mostViewed(int limit) {
+        List<PostViewDto> top = mostViewed;
+        return top.subList(0, Math.min(Math.max(limit, 0), top.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${cms.views.flush-ms:5000}")
+    public synchronized void flush() {
+        Map<Counter, Long> taken = new LinkedHashMap<>();
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<Long, Counter> e : counters.entrySet()) {
+            long delta = e.getValue().pending();
+            if (delta > 0) {
+                taken.put(e.getValue(), delta);
+                deltas.put(e.getKey(), delta);
+            }
+            if (deltas.size() >= FLUSH_CHUNK) {
+                write(deltas, taken);
+                deltas = new LinkedHashMap<>();
+                taken = new LinkedHashMap<>();
+            }
+        }
+        write(deltas, taken);
+        evictIdle();
+    }
+
+    private void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - idleMs;
+        for (Map.Entry<Long, Counter> e : counters.entrySet()) {
+            Counter counter = e.getValue();
+            if (counter.lastSeen < idleBefore && counter.pending() == 0 && counters.remove(e.getKey(), counter)) {
+                // Lượt xem chen vào đúng lúc bỏ: chuyển sang bộ đếm mới để lần flush sau ghi
+                long late = counter.pending();
+                if (late > 0) {
+                    counters.computeIfAbsent(e.getKey(), id -> new Counter()).views.add(late);
+                }
+            }
+        }
+    }
+
+    private void write(Map<Long, Long> deltas, Map<Counter, Long> taken) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            repo.addViews(deltas);
+            taken.forEach((counter, delta) -> counter.flushed += delta);
+        } catch (Exception e) {
+            log.warn("[VIEWS] Failed to flush views of {} posts: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${cms.views.top-refresh-ms:30000}", initialDelayString = "${cms.views.top-refresh-ms:30000}")
+    public void refreshMostViewed() {
+        try {
+            List<PostViewDto> top = new ArrayList<>(repo.findMostViewed(publishedStatus, topSize));
+            for (PostViewDto p : top) {
+                Counter counter = counters.get(p.getId());
+                if (counter != null) {
+                    p.setViewCount(p.getViewCount() + Math.max(0, counter.pending()));
+                }
+            }
+            top.sort(Comparator.comparing(PostViewDto::getViewCount).reversed()
+                    .thenComparing(PostViewDto::getId, Comparator.reverseOrder()));
+            mostViewed = List.copyOf(top);
+        } catch (Exception e) {
+            log.warn("[VIEWS] Failed to refresh most viewed posts: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
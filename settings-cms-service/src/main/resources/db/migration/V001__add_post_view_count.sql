@@ -0,0 +1,6 @@
+-- Lượt xem bài viết: cộng dồn theo lô từ bộ nhớ (PostViewCounter), không UPDATE mỗi lượt xem
+ALTER TABLE shop_posts
+    ADD COLUMN view_count BIGINT NOT NULL DEFAULT 0;
+
+-- Top bài xem nhiều
+CREATE INDEX idx_posts_status_view_count ON shop_posts(post_status, view_count);
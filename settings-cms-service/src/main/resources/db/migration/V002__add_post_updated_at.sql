@@ -0,0 +1,6 @@
+-- Thời điểm sửa bài (JPA set khi thêm / sửa, cộng lượt xem không đổi cột này):
+-- index tìm kiếm poll COUNT + MAX(updated_at) để thấy bài sửa ở instance khác
+ALTER TABLE shop_posts
+    ADD COLUMN updated_at DATETIME(3) NULL;
+
+CREATE INDEX idx_posts_updated_at ON shop_posts(updated_at);